@@ -0,0 +1,109 @@
+package de.unistuttgart.iste.gits.reward.service.calculation;
+
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Benchmarks the nightly recalculation and the calculation on content worked on of the score calculators,
+ * for synthetic courses of different sizes.
+ * <p>
+ * The calculators change the reward scores they are given, so each invocation calculates on new reward scores.
+ * Creating them is part of the measured time, but it is small and the same for all course sizes.
+ */
+@State(Scope.Benchmark)
+public class ScoreCalculatorBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int contentCount;
+
+    private final HealthScoreCalculator healthScoreCalculator = new HealthScoreCalculator();
+    private final FitnessScoreCalculator fitnessScoreCalculator = new FitnessScoreCalculator();
+    private final GrowthScoreCalculator growthScoreCalculator = new GrowthScoreCalculator();
+    private final PowerScoreCalculator powerScoreCalculator = new PowerScoreCalculator();
+
+    private List<Content> contents;
+    private UserProgressUpdatedEvent event;
+
+    @Setup(Level.Trial)
+    public void generateCourse() {
+        final SyntheticCourse course = SyntheticCourse.generate(contentCount);
+        contents = course.getContents();
+        event = UserProgressUpdatedEvent.builder()
+                .courseId(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .chapterId(UUID.randomUUID())
+                .contentId(course.getLearnedContent().getId())
+                .correctness(0.8)
+                .hintsUsed(0)
+                .success(true)
+                .build();
+    }
+
+    @Benchmark
+    public RewardScoreEntity healthRecalculateScore() {
+        return healthScoreCalculator.recalculateScore(createRewardScores(), contents);
+    }
+
+    @Benchmark
+    public RewardScoreEntity healthCalculateOnContentWorkedOn() {
+        return healthScoreCalculator.calculateOnContentWorkedOn(createRewardScores(), contents, event);
+    }
+
+    @Benchmark
+    public RewardScoreEntity fitnessRecalculateScore() {
+        return fitnessScoreCalculator.recalculateScore(createRewardScores(), contents);
+    }
+
+    @Benchmark
+    public RewardScoreEntity fitnessCalculateOnContentWorkedOn() {
+        return fitnessScoreCalculator.calculateOnContentWorkedOn(createRewardScores(), contents, event);
+    }
+
+    @Benchmark
+    public RewardScoreEntity growthRecalculateScore() {
+        return growthScoreCalculator.recalculateScore(createRewardScores(), contents);
+    }
+
+    @Benchmark
+    public RewardScoreEntity growthCalculateOnContentWorkedOn() {
+        return growthScoreCalculator.calculateOnContentWorkedOn(createRewardScores(), contents, event);
+    }
+
+    @Benchmark
+    public RewardScoreEntity powerRecalculateScore() {
+        return powerScoreCalculator.recalculateScore(createRewardScores(), contents);
+    }
+
+    @Benchmark
+    public RewardScoreEntity powerCalculateOnContentWorkedOn() {
+        return powerScoreCalculator.calculateOnContentWorkedOn(createRewardScores(), contents, event);
+    }
+
+    /**
+     * Creates reward scores that are not at their maximum, so that the calculators do not return early.
+     */
+    private AllRewardScoresEntity createRewardScores() {
+        return AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(event.getCourseId(), event.getUserId()))
+                .health(createRewardScore(80))
+                .fitness(createRewardScore(70))
+                .growth(createRewardScore(0))
+                .strength(createRewardScore(0))
+                .power(createRewardScore(50))
+                .build();
+    }
+
+    private static RewardScoreEntity createRewardScore(final int value) {
+        final RewardScoreEntity rewardScore = new RewardScoreEntity();
+        rewardScore.setValue(value);
+        rewardScore.setLog(new ArrayList<>());
+        return rewardScore;
+    }
+}
@@ -0,0 +1,101 @@
+package de.unistuttgart.iste.gits.reward.service.calculation;
+
+import de.unistuttgart.iste.gits.generated.dto.*;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates the contents of a synthetic course with the progress data of one user.
+ * The contents are generated from a fixed seed, so that all benchmark runs use the same course.
+ * <p>
+ * About half of the contents are learned and have a progress log of one to five reviews. A fifth of the learned
+ * contents are due for review. Most contents have a suggested date in the past, so that the contents that were
+ * never learned are due.
+ */
+final class SyntheticCourse {
+
+    private static final long SEED = 42;
+    private static final int MAX_REVIEWS = 5;
+    private static final int MAX_REWARD_POINTS = 10;
+
+    private final List<Content> contents;
+    private final Content learnedContent;
+
+    private SyntheticCourse(final List<Content> contents, final Content learnedContent) {
+        this.contents = contents;
+        this.learnedContent = learnedContent;
+    }
+
+    /**
+     * Generates a course with the given number of contents.
+     *
+     * @param contentCount the number of contents, at least 1
+     * @return the course
+     */
+    static SyntheticCourse generate(final int contentCount) {
+        final Random random = new Random(SEED);
+        final OffsetDateTime now = OffsetDateTime.now();
+        final List<Content> contents = new ArrayList<>(contentCount);
+        Content learnedContent = null;
+
+        for (int i = 0; i < contentCount; i++) {
+            // the first content is always learned, so that there is a content with a history to work on
+            final boolean learned = i == 0 || random.nextBoolean();
+            final Content content = createContent(random, now, learned);
+            if (learned && learnedContent == null) {
+                learnedContent = content;
+            }
+            contents.add(content);
+        }
+        return new SyntheticCourse(List.copyOf(contents), learnedContent);
+    }
+
+    private static Content createContent(final Random random, final OffsetDateTime now, final boolean learned) {
+        final List<ProgressLogItem> log = new ArrayList<>();
+        if (learned) {
+            final int reviews = 1 + random.nextInt(MAX_REVIEWS);
+            for (int i = 0; i < reviews; i++) {
+                // the log is ordered from the newest to the oldest review
+                log.add(ProgressLogItem.builder()
+                        .setTimestamp(now.minusDays(1 + i * 7L + random.nextInt(7)))
+                        .setCorrectness(random.nextDouble())
+                        .setSuccess(random.nextInt(4) != 0)
+                        .setHintsUsed(random.nextInt(3))
+                        .build());
+            }
+        }
+
+        final boolean dueForReview = learned && random.nextInt(5) == 0;
+        final UserProgressData progressData = UserProgressData.builder()
+                .setIsLearned(learned)
+                .setIsDueForReview(dueForReview)
+                .setNextLearnDate(dueForReview ? now.minusDays(random.nextInt(10)) : now.plusDays(1 + random.nextInt(30)))
+                .setLog(log)
+                .build();
+
+        return FlashcardSetAssessment.builder()
+                .setId(UUID.randomUUID())
+                .setMetadata(ContentMetadata.builder()
+                        .setSuggestedDate(now.plusDays(random.nextInt(60) - 50L))
+                        .setRewardPoints(1 + random.nextInt(MAX_REWARD_POINTS))
+                        .build())
+                .setAssessmentMetadata(AssessmentMetadata.builder().build())
+                .setUserProgressData(progressData)
+                .build();
+    }
+
+    List<Content> getContents() {
+        return contents;
+    }
+
+    /**
+     * Returns a content that was learned before, which is used as the content of the events.
+     */
+    Content getLearnedContent() {
+        return learnedContent;
+    }
+}
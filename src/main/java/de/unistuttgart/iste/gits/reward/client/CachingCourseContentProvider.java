@@ -0,0 +1,156 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * {@link CourseContentProvider} that caches the contents of a course and only fetches the progress data of the
+ * users from the content service.
+ * <p>
+ * A cache hit still needs one request to the content service, because the progress data changes with every event
+ * of the user. It replaces the request for the whole course, whose response contains the metadata of all contents,
+ * with a request for the progress data only.
+ * <p>
+ * The progress data contains an entry for each content of the course, so a content that was added or removed since
+ * the contents were cached is detected by comparing the content ids. The contents are then fetched again and the
+ * cache is updated. Other changes, e.g., of the dates of a content, become visible when the cache of the course is
+ * invalidated, because the course or the content changed, or when the cached contents expire after a fixed time.
+ * The cache is also bounded in size.
+ * If the progress data cannot be fetched on its own, the contents are fetched from the delegate provider.
+ */
+@Slf4j
+public class CachingCourseContentProvider implements CourseContentProvider {
+
+    private final CourseContentProvider delegate;
+    private final UserProgressClient userProgressClient;
+
+    private final Cache<UUID, List<Content>> contentsByCourse;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate           the provider used to fetch the contents if they are not cached
+     * @param userProgressClient the client used to fetch the progress data of users for cached contents
+     * @param maximumSize        the maximum number of courses kept in the cache
+     * @param timeToLive         the time after which cached contents expire
+     * @param meterRegistry      the registry to which the hit and miss metrics of the cache are published
+     */
+    public CachingCourseContentProvider(final CourseContentProvider delegate,
+                                        final UserProgressClient userProgressClient,
+                                        final long maximumSize,
+                                        final Duration timeToLive,
+                                        final MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.userProgressClient = userProgressClient;
+        this.contentsByCourse = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, contentsByCourse, "courseContents");
+    }
+
+    @Override
+    public List<Content> getContentsOfCourse(final UUID courseId, final UUID userId)
+            throws ContentServiceConnectionException {
+        final List<Content> cachedContents = contentsByCourse.getIfPresent(courseId);
+        if (cachedContents != null) {
+            final Map<UUID, UserProgressData> progressByContent = queryProgressOfUsers(courseId, List.of(userId)).get(userId);
+            if (matchesContents(cachedContents, progressByContent)) {
+                return ContentProgressOverlay.withProgress(cachedContents, progressByContent);
+            }
+        }
+
+        final List<Content> contents = delegate.getContentsOfCourse(courseId, userId);
+        contentsByCourse.put(courseId, List.copyOf(contents));
+        return contents;
+    }
+
+    @Override
+    public Map<UUID, List<Content>> getContentsOfCourseForUsers(final UUID courseId, final List<UUID> userIds)
+            throws ContentServiceConnectionException {
+        final List<Content> cachedContents = contentsByCourse.getIfPresent(courseId);
+        if (cachedContents == null) {
+            return fetchContentsOfCourseForUsers(courseId, userIds);
+        }
+
+        final Map<UUID, Map<UUID, UserProgressData>> progressByUser = queryProgressOfUsers(courseId, userIds);
+        final boolean contentsChanged = progressByUser.values().stream().anyMatch(progressByContent ->
+                progressByContent != null && !matchesContents(cachedContents, progressByContent));
+        if (contentsChanged) {
+            log.info("The contents of course {} changed since they were cached, fetching them again", courseId);
+            return fetchContentsOfCourseForUsers(courseId, userIds);
+        }
+
+        final Map<UUID, List<Content>> contentsByUser = new HashMap<>();
+        for (final UUID userId : userIds) {
+            final Map<UUID, UserProgressData> progressByContent = progressByUser.get(userId);
+            if (ContentProgressOverlay.hasProgressForAll(cachedContents, progressByContent)) {
+                contentsByUser.put(userId, ContentProgressOverlay.withProgress(cachedContents, progressByContent));
+            } else {
+                try {
+                    contentsByUser.put(userId, delegate.getContentsOfCourse(courseId, userId));
+                } catch (final Exception e) {
+                    log.error("Could not fetch contents for user {} in course {}", userId, courseId, e);
+                }
+            }
+        }
+        return contentsByUser;
+    }
+
+    @Override
+    public void invalidateCourse(final UUID courseId) {
+        contentsByCourse.invalidate(courseId);
+        delegate.invalidateCourse(courseId);
+    }
+
+    /**
+     * Invalidates the cached courses that contain one of the contents.
+     * New contents are not contained in any cached course, they are detected by their progress data instead.
+     */
+    @Override
+    public void invalidateContents(final Collection<UUID> contentIds) {
+        final Set<UUID> changedContentIds = Set.copyOf(contentIds);
+        contentsByCourse.asMap().entrySet().removeIf(entry -> entry.getValue().stream()
+                .anyMatch(content -> changedContentIds.contains(content.getId())));
+        delegate.invalidateContents(contentIds);
+    }
+
+    private Map<UUID, List<Content>> fetchContentsOfCourseForUsers(final UUID courseId, final List<UUID> userIds)
+            throws ContentServiceConnectionException {
+        final Map<UUID, List<Content>> contentsByUser = delegate.getContentsOfCourseForUsers(courseId, userIds);
+        if (!userIds.isEmpty() && contentsByUser.containsKey(userIds.get(0))) {
+            contentsByCourse.put(courseId, List.copyOf(contentsByUser.get(userIds.get(0))));
+        }
+        return contentsByUser;
+    }
+
+    /**
+     * Returns whether the progress data has an entry for each of the cached contents and for no other contents,
+     * i.e., whether the contents of the course did not change since they were cached.
+     */
+    private static boolean matchesContents(final List<Content> cachedContents,
+                                           final Map<UUID, UserProgressData> progressByContent) {
+        return ContentProgressOverlay.hasProgressForAll(cachedContents, progressByContent)
+               && !ContentProgressOverlay.hasProgressForOtherContents(cachedContents, progressByContent);
+    }
+
+    private Map<UUID, Map<UUID, UserProgressData>> queryProgressOfUsers(final UUID courseId, final List<UUID> userIds) {
+        try {
+            return userProgressClient.queryProgressOfUsers(courseId, userIds);
+        } catch (final Exception e) {
+            log.warn("Could not query the progress of {} users in course {}, fetching the contents instead",
+                    userIds.size(), courseId, e);
+            return Map.of();
+        }
+    }
+}
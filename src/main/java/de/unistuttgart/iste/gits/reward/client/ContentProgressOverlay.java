@@ -0,0 +1,86 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Creates copies of a content with the progress data of another user.
+ * This allows sharing the content metadata of a course between users without fetching the contents again.
+ * The copies are shallow, i.e., the metadata objects are shared between the copies.
+ */
+public final class ContentProgressOverlay {
+
+    private ContentProgressOverlay() {
+        // utility class
+    }
+
+    /**
+     * Returns a shallow copy of the given content with the given progress data.
+     * The copy has the same concrete type as the given content, so type checks and equals work as for the content.
+     *
+     * @param content      the content
+     * @param progressData the progress data of the user
+     * @return a copy of the content with the given progress data
+     */
+    public static Content withProgress(final Content content, final UserProgressData progressData) {
+        final Content copy = BeanUtils.instantiateClass(content.getClass());
+        BeanUtils.copyProperties(content, copy, "userProgressData");
+        new BeanWrapperImpl(copy).setPropertyValue("userProgressData", progressData);
+        return copy;
+    }
+
+    /**
+     * Returns copies of the given contents with the progress data of a user.
+     *
+     * @param contents          the contents
+     * @param progressByContent the progress data of the user, by content id
+     * @return copies of the contents with the progress data of the user
+     */
+    public static List<Content> withProgress(final List<Content> contents,
+                                             final Map<UUID, UserProgressData> progressByContent) {
+        return contents.stream()
+                .map(content -> withProgress(content, progressByContent.get(content.getId())))
+                .toList();
+    }
+
+    /**
+     * Checks if the given progress data contains an entry for each of the given contents.
+     *
+     * @param contents          the contents
+     * @param progressByContent the progress data of a user by content id, may be null
+     * @return true if the progress data is complete
+     */
+    public static boolean hasProgressForAll(final List<Content> contents,
+                                            final Map<UUID, UserProgressData> progressByContent) {
+        if (progressByContent == null) {
+            return false;
+        }
+        return contents.stream().allMatch(content -> progressByContent.get(content.getId()) != null);
+    }
+
+    /**
+     * Checks if the given progress data contains entries for contents that are not among the given contents,
+     * e.g., because contents were added to the course after the given contents were fetched.
+     *
+     * @param contents          the contents
+     * @param progressByContent the progress data of a user by content id, may be null
+     * @return true if the progress data contains entries for other contents
+     */
+    public static boolean hasProgressForOtherContents(final List<Content> contents,
+                                                      final Map<UUID, UserProgressData> progressByContent) {
+        if (progressByContent == null) {
+            return false;
+        }
+        final Set<UUID> contentIds = contents.stream().map(Content::getId).collect(Collectors.toSet());
+        return !contentIds.containsAll(progressByContent.keySet());
+    }
+}
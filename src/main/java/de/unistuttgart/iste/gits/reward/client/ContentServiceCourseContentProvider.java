@@ -0,0 +1,79 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * {@link CourseContentProvider} that fetches the contents from the content service.
+ * <p>
+ * For several users, the structure of the course is fetched only once, together with the progress data of the first
+ * user. The progress data of the other users is fetched with a single {@link UserProgressClient} request and laid
+ * over the shared contents. If this request fails, the contents are fetched separately for each user.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ContentServiceCourseContentProvider implements CourseContentProvider {
+
+    private final ContentServiceClient contentServiceClient;
+    private final UserProgressClient userProgressClient;
+
+    @Override
+    public List<Content> getContentsOfCourse(final UUID courseId, final UUID userId)
+            throws ContentServiceConnectionException {
+        return contentServiceClient.queryContentsOfCourse(userId, courseId);
+    }
+
+    @Override
+    public Map<UUID, List<Content>> getContentsOfCourseForUsers(final UUID courseId, final List<UUID> userIds)
+            throws ContentServiceConnectionException {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        final Map<UUID, List<Content>> contentsByUser = new HashMap<>();
+
+        final UUID firstUserId = userIds.get(0);
+        final List<Content> contents = contentServiceClient.queryContentsOfCourse(firstUserId, courseId);
+        contentsByUser.put(firstUserId, contents);
+
+        final List<UUID> otherUserIds = userIds.subList(1, userIds.size());
+        if (otherUserIds.isEmpty()) {
+            return contentsByUser;
+        }
+
+        Map<UUID, Map<UUID, UserProgressData>> progressByUser;
+        try {
+            progressByUser = userProgressClient.queryProgressOfUsers(courseId, otherUserIds);
+        } catch (final Exception e) {
+            log.warn("Could not query the progress of {} users in course {} at once, querying them one by one",
+                    otherUserIds.size(), courseId, e);
+            progressByUser = Map.of();
+        }
+
+        for (final UUID userId : otherUserIds) {
+            final Map<UUID, UserProgressData> progressByContent = progressByUser.get(userId);
+            if (ContentProgressOverlay.hasProgressForAll(contents, progressByContent)) {
+                contentsByUser.put(userId, ContentProgressOverlay.withProgress(contents, progressByContent));
+            } else {
+                queryContentsOfUser(courseId, userId).ifPresent(userContents -> contentsByUser.put(userId, userContents));
+            }
+        }
+
+        return contentsByUser;
+    }
+
+    private Optional<List<Content>> queryContentsOfUser(final UUID courseId, final UUID userId) {
+        try {
+            return Optional.of(contentServiceClient.queryContentsOfCourse(userId, courseId));
+        } catch (final Exception e) {
+            log.error("Could not fetch contents for user {} in course {}", userId, courseId, e);
+            return Optional.empty();
+        }
+    }
+}
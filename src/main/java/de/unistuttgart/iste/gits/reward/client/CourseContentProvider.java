@@ -0,0 +1,56 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.Content;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Provides the contents of a course together with the progress data of users.
+ */
+public interface CourseContentProvider {
+
+    /**
+     * Returns the contents of a course with the progress data of the given user.
+     *
+     * @param courseId the id of the course
+     * @param userId   the id of the user
+     * @return the contents of the course
+     * @throws ContentServiceConnectionException if the contents could not be fetched
+     */
+    List<Content> getContentsOfCourse(UUID courseId, UUID userId) throws ContentServiceConnectionException;
+
+    /**
+     * Returns the contents of a course for several users.
+     * The structure of the course is the same for all users, only the progress data differs.
+     *
+     * @param courseId the id of the course
+     * @param userIds  the ids of the users
+     * @return the contents of the course with the progress data of the user, for each user id.
+     * Users for which the contents could not be fetched are not contained in the map.
+     * @throws ContentServiceConnectionException if the structure of the course could not be fetched
+     */
+    Map<UUID, List<Content>> getContentsOfCourseForUsers(UUID courseId, List<UUID> userIds)
+            throws ContentServiceConnectionException;
+
+    /**
+     * Discards all data of the course that is kept by this provider, e.g. in a cache.
+     *
+     * @param courseId the id of the course
+     */
+    default void invalidateCourse(final UUID courseId) {
+        // nothing is kept by default
+    }
+
+    /**
+     * Discards all data of the courses of the given contents that is kept by this provider, e.g. in a cache.
+     *
+     * @param contentIds the ids of the contents
+     */
+    default void invalidateContents(final Collection<UUID> contentIds) {
+        // nothing is kept by default
+    }
+}
@@ -0,0 +1,105 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import org.springframework.graphql.client.GraphQlClient;
+
+import java.util.*;
+
+/**
+ * {@link UserProgressClient} that queries the content service via GraphQL.
+ * <p>
+ * The progress data of all users is requested in one document, using one alias per user
+ * on the progress field of each content of the course.
+ */
+@RequiredArgsConstructor
+public class GraphQlUserProgressClient implements UserProgressClient {
+
+    private static final String CONTENTS_FIELD = "contentsByCourseIds[0]";
+
+    private static final String PROGRESS_FRAGMENT = """
+            fragment ProgressFields on UserProgressData {
+                isLearned
+                isDueForReview
+                nextLearnDate
+                log {
+                    timestamp
+                    success
+                    correctness
+                    hintsUsed
+                }
+            }
+            """;
+
+    private final GraphQlClient graphQlClient;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Map<UUID, Map<UUID, UserProgressData>> queryProgressOfUsers(final UUID courseId, final List<UUID> userIds)
+            throws ContentServiceConnectionException {
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("courseId", courseId);
+        for (int i = 0; i < userIds.size(); i++) {
+            variables.put(userAlias(i), userIds.get(i));
+        }
+
+        final ClientGraphQlResponse response;
+        try {
+            response = graphQlClient.document(buildDocument(userIds.size()))
+                    .variables(variables)
+                    .execute()
+                    .block();
+        } catch (final RuntimeException e) {
+            throw new ContentServiceConnectionException("Error while querying the progress of users: " + e.getMessage());
+        }
+
+        if (response == null || !response.isValid() || !response.getErrors().isEmpty()) {
+            throw new ContentServiceConnectionException("Error while querying the progress of users: "
+                                                        + (response == null ? "no response" : response.getErrors()));
+        }
+
+        return parseResponse(response, userIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UUID, Map<UUID, UserProgressData>> parseResponse(final ClientGraphQlResponse response,
+                                                                 final List<UUID> userIds) {
+        final List<Map<String, Object>> contents = response.field(CONTENTS_FIELD).toEntityList(Map.class).stream()
+                .map(content -> (Map<String, Object>) content)
+                .toList();
+
+        final Map<UUID, Map<UUID, UserProgressData>> progressByUser = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            final Map<UUID, UserProgressData> progressByContent = new HashMap<>();
+            for (final Map<String, Object> content : contents) {
+                final UUID contentId = UUID.fromString((String) content.get("id"));
+                final UserProgressData progressData = objectMapper.convertValue(content.get(userAlias(i)),
+                        UserProgressData.class);
+                progressByContent.put(contentId, progressData);
+            }
+            progressByUser.put(userIds.get(i), progressByContent);
+        }
+        return progressByUser;
+    }
+
+    private static String buildDocument(final int numberOfUsers) {
+        final StringBuilder document = new StringBuilder("query($courseId: UUID!");
+        for (int i = 0; i < numberOfUsers; i++) {
+            document.append(", $").append(userAlias(i)).append(": UUID!");
+        }
+        document.append(") {\n    contentsByCourseIds(courseIds: [$courseId]) {\n        id\n");
+        for (int i = 0; i < numberOfUsers; i++) {
+            document.append("        ").append(userAlias(i))
+                    .append(": progressDataForUser(userId: $").append(userAlias(i)).append(") { ...ProgressFields }\n");
+        }
+        document.append("    }\n}\n").append(PROGRESS_FRAGMENT);
+        return document.toString();
+    }
+
+    private static String userAlias(final int index) {
+        return "user" + index;
+    }
+}
@@ -0,0 +1,26 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Queries the progress data of several users for the contents of a course in a single request.
+ */
+@FunctionalInterface
+public interface UserProgressClient {
+
+    /**
+     * Queries the progress data of the given users for all contents of the course.
+     *
+     * @param courseId the id of the course
+     * @param userIds  the ids of the users
+     * @return for each user id, a map from content id to the progress data of the user for that content
+     * @throws ContentServiceConnectionException if the progress data could not be fetched
+     */
+    Map<UUID, Map<UUID, UserProgressData>> queryProgressOfUsers(UUID courseId, List<UUID> userIds)
+            throws ContentServiceConnectionException;
+}
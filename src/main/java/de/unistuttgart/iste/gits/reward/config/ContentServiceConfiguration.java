@@ -1,6 +1,9 @@
 package de.unistuttgart.iste.gits.reward.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.unistuttgart.iste.gits.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.gits.reward.client.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,17 +11,47 @@ import org.springframework.graphql.client.GraphQlClient;
 import org.springframework.graphql.client.HttpGraphQlClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
+
 @Configuration
 public class ContentServiceConfiguration {
 
     @Value("${content_service.url}")
     private String contentServiceUrl;
 
+    @Value("${content_service.cache.max_size}")
+    private long contentCacheMaxSize;
+
+    @Value("${content_service.cache.ttl_seconds}")
+    private long contentCacheTtlSeconds;
+
     @Bean
-    public ContentServiceClient contentServiceClient() {
+    public GraphQlClient contentServiceGraphQlClient() {
         final WebClient webClient = WebClient.builder().baseUrl(contentServiceUrl).build();
 
-        final GraphQlClient graphQlClient = HttpGraphQlClient.builder(webClient).build();
-        return new ContentServiceClient(graphQlClient);
+        return HttpGraphQlClient.builder(webClient).build();
+    }
+
+    @Bean
+    public ContentServiceClient contentServiceClient(final GraphQlClient contentServiceGraphQlClient) {
+        return new ContentServiceClient(contentServiceGraphQlClient);
+    }
+
+    @Bean
+    public UserProgressClient userProgressClient(final GraphQlClient contentServiceGraphQlClient,
+                                                 final ObjectMapper objectMapper) {
+        return new GraphQlUserProgressClient(contentServiceGraphQlClient, objectMapper);
+    }
+
+    @Bean
+    public CourseContentProvider courseContentProvider(final ContentServiceClient contentServiceClient,
+                                                       final UserProgressClient userProgressClient,
+                                                       final MeterRegistry meterRegistry) {
+        return new CachingCourseContentProvider(
+                new ContentServiceCourseContentProvider(contentServiceClient, userProgressClient),
+                userProgressClient,
+                contentCacheMaxSize,
+                Duration.ofSeconds(contentCacheTtlSeconds),
+                meterRegistry);
     }
 }
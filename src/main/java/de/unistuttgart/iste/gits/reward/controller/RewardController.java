@@ -2,26 +2,45 @@ package de.unistuttgart.iste.gits.reward.controller;
 
 import de.unistuttgart.iste.gits.common.user_handling.LoggedInUser;
 import de.unistuttgart.iste.gits.common.user_handling.UserCourseAccessValidator;
-import de.unistuttgart.iste.gits.generated.dto.RewardScores;
-import de.unistuttgart.iste.gits.generated.dto.ScoreboardItem;
+import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.service.RewardScoreKey;
 import de.unistuttgart.iste.gits.reward.service.RewardService;
-import lombok.RequiredArgsConstructor;
+import de.unistuttgart.iste.gits.reward.service.ScoreboardService;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.DataFetchingEnvironment;
 import lombok.extern.slf4j.Slf4j;
+import org.dataloader.DataLoader;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.ContextValue;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Controller
-@RequiredArgsConstructor
 public class RewardController {
 
     private final RewardService rewardService;
+    private final ScoreboardService scoreboardService;
+
+    public RewardController(final RewardService rewardService,
+                            final ScoreboardService scoreboardService,
+                            final BatchLoaderRegistry batchLoaderRegistry) {
+        this.rewardService = rewardService;
+        this.scoreboardService = scoreboardService;
+
+        // reward scores requested in the same GraphQL request are loaded together
+        batchLoaderRegistry.forTypePair(AllRewardScoresEntity.PrimaryKey.class, RewardScores.class)
+                .registerMappedBatchLoader((ids, env) -> Mono.fromCallable(() -> rewardService.getRewardScores(ids)));
+    }
 
     @QueryMapping
     public RewardScores userCourseRewardScores(@Argument final UUID courseId, @ContextValue final LoggedInUser currentUser) {
@@ -30,15 +49,88 @@ public class RewardController {
     }
 
     @QueryMapping
-    public RewardScores courseRewardScoresForUser(@Argument final UUID courseId, @Argument final UUID userId, @ContextValue final LoggedInUser currentUser) {
+    public CompletableFuture<RewardScores> courseRewardScoresForUser(@Argument final UUID courseId, @Argument final UUID userId, @ContextValue final LoggedInUser currentUser,
+                                                                     final DataLoader<AllRewardScoresEntity.PrimaryKey, RewardScores> rewardScoresLoader) {
+        UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
+        return rewardScoresLoader.load(new AllRewardScoresEntity.PrimaryKey(courseId, userId));
+    }
+
+    @QueryMapping
+    public CompletableFuture<List<RewardScores>> courseRewardScoresForUsers(@Argument final UUID courseId, @Argument final List<UUID> userIds, @ContextValue final LoggedInUser currentUser,
+                                                                            final DataLoader<AllRewardScoresEntity.PrimaryKey, RewardScores> rewardScoresLoader) {
+        UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
+        return rewardScoresLoader.loadMany(userIds.stream()
+                .map(userId -> new AllRewardScoresEntity.PrimaryKey(courseId, userId))
+                .toList());
+    }
+
+    @QueryMapping
+    public List<RewardScores> courseRewardScores(@Argument final UUID courseId, @ContextValue final LoggedInUser currentUser) {
         UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
-        return rewardService.getRewardScores(courseId, userId);
+        return rewardService.getRewardScoresOfCourse(courseId);
     }
 
     @QueryMapping
     public List<ScoreboardItem> scoreboard(@Argument final UUID courseId, @ContextValue final LoggedInUser currentUser) {
         UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
-        return rewardService.getScoreboard(courseId);
+        rewardService.applyPendingDecayOfCourse(courseId);
+        return scoreboardService.getScoreboard(courseId);
+    }
+
+    @QueryMapping
+    public List<RankedScoreboardItem> scoreboardTop(@Argument final UUID courseId, @Argument final int limit, @ContextValue final LoggedInUser currentUser) {
+        UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
+        rewardService.applyPendingDecayOfCourse(courseId);
+        return scoreboardService.getTop(courseId, limit);
+    }
+
+    @QueryMapping
+    public List<RankedScoreboardItem> scoreboardRank(@Argument final UUID courseId, @Argument final UUID userId, @Argument final int window, @ContextValue final LoggedInUser currentUser) {
+        UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.STUDENT, courseId);
+        rewardService.applyPendingDecayOfCourse(courseId);
+        return scoreboardService.getRankWindow(courseId, userId, window);
+    }
+
+    @SchemaMapping(typeName = "RewardScores")
+    public DataFetcherResult<RewardScore> health(final RewardScores rewardScores) {
+        return withRewardScoreKey(rewardScores, RewardScoreType.HEALTH, rewardScores.getHealth());
+    }
+
+    @SchemaMapping(typeName = "RewardScores")
+    public DataFetcherResult<RewardScore> fitness(final RewardScores rewardScores) {
+        return withRewardScoreKey(rewardScores, RewardScoreType.FITNESS, rewardScores.getFitness());
+    }
+
+    @SchemaMapping(typeName = "RewardScores")
+    public DataFetcherResult<RewardScore> growth(final RewardScores rewardScores) {
+        return withRewardScoreKey(rewardScores, RewardScoreType.GROWTH, rewardScores.getGrowth());
+    }
+
+    @SchemaMapping(typeName = "RewardScores")
+    public DataFetcherResult<RewardScore> strength(final RewardScores rewardScores) {
+        return withRewardScoreKey(rewardScores, RewardScoreType.STRENGTH, rewardScores.getStrength());
+    }
+
+    @SchemaMapping(typeName = "RewardScores")
+    public DataFetcherResult<RewardScore> power(final RewardScores rewardScores) {
+        return withRewardScoreKey(rewardScores, RewardScoreType.POWER, rewardScores.getPower());
+    }
+
+    /**
+     * Resolves the log of a reward score. The log is only loaded if it is requested.
+     * Access to the reward score is already checked by the query that returned it.
+     */
+    @SchemaMapping(typeName = "RewardScore", field = "log")
+    public List<RewardLogItem> log(@Argument final Pagination pagination, final DataFetchingEnvironment env) {
+        return rewardService.getRewardScoreLog(env.getLocalContext(), pagination);
+    }
+
+    @SchemaMapping(typeName = "RewardScore", field = "logConnection")
+    public RewardLogConnection logConnection(@Argument final RewardLogFilter filter,
+                                             @Argument final int first,
+                                             @Argument final String after,
+                                             final DataFetchingEnvironment env) {
+        return rewardService.getRewardScoreLogPage(env.getLocalContext(), filter, first, after);
     }
 
     @MutationMapping
@@ -46,4 +138,16 @@ public class RewardController {
         UserCourseAccessValidator.validateUserHasAccessToCourse(currentUser, LoggedInUser.UserRoleInCourse.ADMINISTRATOR, courseId);
         return rewardService.recalculateScores(courseId, userId);
     }
+
+    /**
+     * Passes the key of the reward score to the fields of the reward score, which is needed to resolve its log.
+     */
+    private static DataFetcherResult<RewardScore> withRewardScoreKey(final RewardScores rewardScores,
+                                                                     final RewardScoreType scoreType,
+                                                                     final RewardScore rewardScore) {
+        return DataFetcherResult.<RewardScore>newResult()
+                .data(rewardScore)
+                .localContext(new RewardScoreKey(rewardScores.getCourseId(), rewardScores.getUserId(), scoreType))
+                .build();
+    }
 }
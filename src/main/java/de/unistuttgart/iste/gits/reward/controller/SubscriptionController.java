@@ -1,42 +1,121 @@
 package de.unistuttgart.iste.gits.reward.controller;
 
+import de.unistuttgart.iste.gits.common.event.ContentChangeEvent;
 import de.unistuttgart.iste.gits.common.event.CourseChangeEvent;
 import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
 import de.unistuttgart.iste.gits.generated.dto.RewardScores;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
 import de.unistuttgart.iste.gits.reward.service.RewardService;
+import de.unistuttgart.iste.gits.reward.service.event.UserProgressEventProcessor;
 import io.dapr.Topic;
-import io.dapr.client.domain.CloudEvent;
+import io.dapr.client.domain.*;
+import io.dapr.springboot.annotations.BulkSubscribe;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequiredArgsConstructor
 @Slf4j
 public class SubscriptionController {
 
     private final RewardService rewardService;
+    private final CourseContentProvider courseContentProvider;
+    private final UserProgressEventProcessor userProgressEventProcessor;
 
     /**
-     * Event handler for the user-progress-updated event
+     * Handler for a single user-progress-updated event.
+     * The subscription to the topic uses {@link #onUserProgressBulk}, this endpoint remains for single events.
+     * The event is processed on the worker threads of the {@link UserProgressEventProcessor}, so the request
+     * thread is not blocked. If the processor is overloaded, the event is rejected with status 429,
+     * so that it is delivered again later.
      */
-    @Topic(name = "user-progress-updated", pubsubName = "gits")
     @PostMapping(path = "/reward-service/user-progress-pubsub")
     public Mono<RewardScores> onUserProgress(@RequestBody final CloudEvent<UserProgressUpdatedEvent> cloudEvent) {
         log.info("Received event: {}", cloudEvent.getData());
-        return Mono.fromCallable(() -> {
-            try {
-                return rewardService.calculateScoresOnContentWorkedOn(cloudEvent.getData());
-            } catch (final Exception e) {
-                log.error("Error while processing user progress event", e);
-                return null;
+        return userProgressEventProcessor.process(cloudEvent.getData())
+                .onErrorMap(RejectedExecutionException.class, e ->
+                        new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many user progress events", e))
+                .onErrorResume(e -> !(e instanceof ResponseStatusException), e -> {
+                    log.error("Error while processing user progress event", e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Event handler for the user-progress-updated event, which receives the events in bulk.
+     * The events are grouped by course and user and the events of each group are processed together, in one
+     * transaction. The status of each event is returned, so that only the events of failed groups are
+     * delivered again. Incomplete events and events of deleted courses are dropped.
+     *
+     * @param bulkMessage the events
+     * @return the status of each event
+     */
+    @BulkSubscribe
+    @Topic(name = "user-progress-updated", pubsubName = "gits")
+    @PostMapping(path = "/reward-service/user-progress-bulk-pubsub")
+    public Mono<BulkSubscribeAppResponse> onUserProgressBulk(
+            @RequestBody final BulkSubscribeMessage<CloudEvent<UserProgressUpdatedEvent>> bulkMessage) {
+        log.info("Received {} events", bulkMessage.getEntries().size());
+
+        final List<BulkSubscribeAppResponseEntry> statuses = new ArrayList<>();
+        final Map<AllRewardScoresEntity.PrimaryKey, List<BulkSubscribeMessageEntry<CloudEvent<UserProgressUpdatedEvent>>>> entriesByUser
+                = new LinkedHashMap<>();
+        for (final BulkSubscribeMessageEntry<CloudEvent<UserProgressUpdatedEvent>> entry : bulkMessage.getEntries()) {
+            final UserProgressUpdatedEvent event = entry.getEvent() == null ? null : entry.getEvent().getData();
+            if (event == null || event.getCourseId() == null || event.getUserId() == null) {
+                log.error("Dropping incomplete user progress event {}", entry.getEntryId());
+                statuses.add(new BulkSubscribeAppResponseEntry(entry.getEntryId(), BulkSubscribeAppResponseStatus.DROP));
+                continue;
             }
-        });
+            entriesByUser.computeIfAbsent(new AllRewardScoresEntity.PrimaryKey(event.getCourseId(), event.getUserId()),
+                    key -> new ArrayList<>()).add(entry);
+        }
+
+        return Flux.fromIterable(entriesByUser.values())
+                .flatMap(this::processEntriesOfUser)
+                .collectList()
+                .map(groupStatuses -> {
+                    groupStatuses.forEach(statuses::addAll);
+                    return new BulkSubscribeAppResponse(statuses);
+                });
     }
 
     /**
-     * Event handler for when a course is deleted
+     * Processes the events of one course and user together.
+     *
+     * @return the status of each event, which is the same for all of them
+     */
+    private Mono<List<BulkSubscribeAppResponseEntry>> processEntriesOfUser(
+            final List<BulkSubscribeMessageEntry<CloudEvent<UserProgressUpdatedEvent>>> entries) {
+        final List<UserProgressUpdatedEvent> events = entries.stream()
+                .map(entry -> entry.getEvent().getData())
+                .toList();
+
+        return userProgressEventProcessor.process(events)
+                .map(rewardScores -> BulkSubscribeAppResponseStatus.SUCCESS)
+                // the events of deleted courses are ignored and must not be delivered again
+                .defaultIfEmpty(BulkSubscribeAppResponseStatus.DROP)
+                .onErrorResume(e -> {
+                    log.error("Error while processing {} user progress events, they are retried", events.size(), e);
+                    return Mono.just(BulkSubscribeAppResponseStatus.RETRY);
+                })
+                .map(status -> entries.stream()
+                        .map(entry -> new BulkSubscribeAppResponseEntry(entry.getEntryId(), status))
+                        .toList());
+    }
+
+    /**
+     * Event handler for when a course is changed or deleted.
+     * The cached contents of the course are invalidated in both cases.
      *
      * @param cloudEvent the cloud event
      */
@@ -47,10 +126,33 @@ public class SubscriptionController {
         return Mono.fromRunnable(
                 () -> {
                     try {
+                        if (cloudEvent.getData().getCourseId() != null) {
+                            courseContentProvider.invalidateCourse(cloudEvent.getData().getCourseId());
+                        }
                         rewardService.removeRewardData(cloudEvent.getData());
                     } catch (final Exception e) {
                         log.error(e.getMessage());
                     }
                 });
     }
+
+    /**
+     * Event handler for when contents are created, updated or deleted.
+     * The cached contents of the courses of the changed contents are invalidated, so that the next calculation of
+     * reward scores uses the changed contents, e.g., with changed dates.
+     *
+     * @param cloudEvent the cloud event
+     */
+    @Topic(name = "content-changed", pubsubName = "gits")
+    @PostMapping(path = "/reward-service/content-changed-pubsub")
+    public Mono<Void> onContentChanged(@RequestBody final CloudEvent<ContentChangeEvent> cloudEvent) {
+        return Mono.fromRunnable(() -> {
+            final ContentChangeEvent event = cloudEvent.getData();
+            if (event == null || event.getContentIds() == null) {
+                log.error("Ignoring incomplete content changed event");
+                return;
+            }
+            courseContentProvider.invalidateContents(event.getContentIds());
+        });
+    }
 }
@@ -0,0 +1,50 @@
+package de.unistuttgart.iste.gits.reward.persistence.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Stores a list of UUIDs as a single binary value of 16 bytes per UUID, in the order of the list.
+ * <p>
+ * This is used instead of an element collection, which would need one row in a separate table per UUID,
+ * so that a list with many UUIDs is read and written together with its owner in a single statement.
+ */
+@Converter
+public class UuidListConverter implements AttributeConverter<List<UUID>, byte[]> {
+
+    private static final int UUID_BYTES = 16;
+
+    @Override
+    public byte[] convertToDatabaseColumn(final List<UUID> uuids) {
+        if (uuids == null) {
+            return null;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(uuids.size() * UUID_BYTES);
+        for (final UUID uuid : uuids) {
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public List<UUID> convertToEntityAttribute(final byte[] bytes) {
+        if (bytes == null) {
+            return new ArrayList<>();
+        }
+        if (bytes.length % UUID_BYTES != 0) {
+            throw new IllegalArgumentException("Length of stored UUID list is not a multiple of " + UUID_BYTES);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final List<UUID> uuids = new ArrayList<>(bytes.length / UUID_BYTES);
+        while (buffer.hasRemaining()) {
+            uuids.add(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        return uuids;
+    }
+}
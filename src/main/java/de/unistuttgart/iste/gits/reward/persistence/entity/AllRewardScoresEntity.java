@@ -1,14 +1,16 @@
 package de.unistuttgart.iste.gits.reward.persistence.entity;
 
+import de.unistuttgart.iste.gits.reward.persistence.converter.UuidListConverter;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.OnDelete;
-import org.hibernate.annotations.OnDeleteAction;
 
 import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Entity(name = "RewardScores")
+@Table(indexes = @Index(name = "idx_reward_scores_next_recalculation", columnList = "next_recalculation_at"))
 @Data
 @Builder
 @AllArgsConstructor
@@ -18,24 +20,65 @@ public class AllRewardScoresEntity {
     @EmbeddedId
     private PrimaryKey id;
 
-    @OneToOne(optional = false, cascade = CascadeType.ALL)
-    @OnDelete(action = OnDeleteAction.CASCADE)
+    /**
+     * Version for optimistic locking, so that concurrent updates of the reward scores do not overwrite each other.
+     * It is null for reward scores that were not saved yet.
+     */
+    @Version
+    private Long version;
+
+    /**
+     * The time up to which the daily decay of health and fitness was applied, if the decay is evaluated lazily.
+     * It is null for reward scores whose decay is applied by the nightly recalculation.
+     */
+    private OffsetDateTime decayEvaluatedAt;
+
+    /**
+     * The earliest time at which the nightly recalculation can change the reward scores, see
+     * {@link de.unistuttgart.iste.gits.reward.service.RecalculationPlanner}.
+     * The reward scores are skipped by the nightly recalculations before this time.
+     * It is null for reward scores that were never recalculated, which are always recalculated.
+     */
+    private OffsetDateTime nextRecalculationAt;
+
+    /**
+     * The fingerprint of the contents that the reward scores were last recalculated with,
+     * see {@link de.unistuttgart.iste.gits.reward.service.calculation.CourseSnapshot#getFingerprint()}.
+     * It is null if the reward scores were changed by an event since then.
+     */
+    private Long inputFingerprint;
+
+    /**
+     * The ids of the contents whose reward points are included in the growth score, so that the reward points of a
+     * content are added only once, even if the events of the content are delivered twice or processed together.
+     * It is empty for reward scores that were saved before the ids were stored, until they are reconciled.
+     */
+    @Convert(converter = UuidListConverter.class)
+    private List<UUID> learnedContentIds;
+
+    @Embedded
+    @AttributeOverride(name = "value", column = @Column(name = "health_value", nullable = false))
+    @AttributeOverride(name = "percentage", column = @Column(name = "health_percentage", nullable = false))
     private RewardScoreEntity health;
 
-    @OneToOne(optional = false, cascade = CascadeType.ALL)
-    @OnDelete(action = OnDeleteAction.CASCADE)
+    @Embedded
+    @AttributeOverride(name = "value", column = @Column(name = "fitness_value", nullable = false))
+    @AttributeOverride(name = "percentage", column = @Column(name = "fitness_percentage", nullable = false))
     private RewardScoreEntity fitness;
 
-    @OneToOne(optional = false, cascade = CascadeType.ALL)
-    @OnDelete(action = OnDeleteAction.CASCADE)
+    @Embedded
+    @AttributeOverride(name = "value", column = @Column(name = "growth_value", nullable = false))
+    @AttributeOverride(name = "percentage", column = @Column(name = "growth_percentage", nullable = false))
     private RewardScoreEntity growth;
 
-    @OneToOne(optional = false, cascade = CascadeType.ALL)
-    @OnDelete(action = OnDeleteAction.CASCADE)
+    @Embedded
+    @AttributeOverride(name = "value", column = @Column(name = "strength_value", nullable = false))
+    @AttributeOverride(name = "percentage", column = @Column(name = "strength_percentage", nullable = false))
     private RewardScoreEntity strength;
 
-    @OneToOne(optional = false, cascade = CascadeType.ALL)
-    @OnDelete(action = OnDeleteAction.CASCADE)
+    @Embedded
+    @AttributeOverride(name = "value", column = @Column(name = "power_value", nullable = false))
+    @AttributeOverride(name = "percentage", column = @Column(name = "power_percentage", nullable = false))
     private RewardScoreEntity power;
 
     @Embeddable
@@ -0,0 +1,29 @@
+package de.unistuttgart.iste.gits.reward.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Marks a deleted course whose reward data has not been removed completely yet.
+ * The marker is stored before the removal starts and deleted when it is finished, so that a removal that was
+ * interrupted, e.g., by a restart, is resumed, and progress events of the course are ignored meanwhile.
+ */
+@Entity(name = "PendingCourseDeletion")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PendingCourseDeletionEntity {
+
+    @Id
+    private UUID courseId;
+
+    /**
+     * The time at which the deletion of the course was received.
+     */
+    @Column(nullable = false)
+    private OffsetDateTime requestedAt;
+}
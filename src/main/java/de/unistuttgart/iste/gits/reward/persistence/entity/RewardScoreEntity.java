@@ -5,17 +5,21 @@ import lombok.*;
 
 import java.util.*;
 
-@Entity(name = "RewardScore")
+/**
+ * The current value of one of the five reward scores of a user.
+ * The value is stored as columns of the {@link AllRewardScoresEntity}.
+ * <p>
+ * The log is not part of the row. It only holds the log entries that were added since the reward scores
+ * were loaded, which are saved in the log table together with the reward scores.
+ * Stored log entries are read from the log table.
+ */
+@Embeddable
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class RewardScoreEntity {
 
-    @Id
-    @GeneratedValue
-    private UUID id;
-
     @Column(nullable = false)
     private int value;
 
@@ -23,8 +27,7 @@ public class RewardScoreEntity {
     @Builder.Default
     private float percentage = 0f;
 
-    @OneToMany(cascade = CascadeType.ALL)
-    @OrderBy("date DESC")
+    @Transient
     @Builder.Default
     private List<RewardScoreLogEntry> log = new ArrayList<>();
 
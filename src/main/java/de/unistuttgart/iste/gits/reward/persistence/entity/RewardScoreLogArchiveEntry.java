@@ -0,0 +1,70 @@
+package de.unistuttgart.iste.gits.reward.persistence.entity;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.generated.dto.RewardScoreType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Aggregate of the log entries of a reward score with the same reason in one period, e.g., one day or one week.
+ * Old log entries are rolled up into these entries by the log compaction, so that only the most recent log entries
+ * of a reward score are kept in detail.
+ */
+@Entity(name = "RewardScoreLogArchiveEntry")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uc_reward_score_log_archive_entry_owner_period",
+        columnNames = {"course_id", "user_id", "score_type", "period_start", "reason"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RewardScoreLogArchiveEntry {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID courseId;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private RewardScoreType scoreType;
+
+    /**
+     * The start of the period of the aggregated log entries.
+     */
+    @Column(nullable = false)
+    private OffsetDateTime periodStart;
+
+    @Column(nullable = false)
+    private RewardChangeReason reason;
+
+    /**
+     * The number of aggregated log entries.
+     */
+    @Column(nullable = false)
+    private int entryCount;
+
+    /**
+     * The sum of the differences of the aggregated log entries.
+     */
+    @Column(nullable = false)
+    private int difference;
+
+    /**
+     * The old value of the first aggregated log entry.
+     */
+    @Column(nullable = false)
+    private int oldValue;
+
+    /**
+     * The new value of the last aggregated log entry.
+     */
+    @Column(nullable = false)
+    private int newValue;
+}
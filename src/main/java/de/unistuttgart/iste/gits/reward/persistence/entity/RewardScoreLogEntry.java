@@ -1,6 +1,8 @@
 package de.unistuttgart.iste.gits.reward.persistence.entity;
 
 import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.generated.dto.RewardScoreType;
+import de.unistuttgart.iste.gits.reward.persistence.converter.UuidListConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,6 +11,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity(name = "RewardScoreLogEntry")
+@Table(indexes = @Index(name = "idx_reward_score_log_entry_owner_date", columnList = "course_id, user_id, score_type, date"))
 @Data
 @Builder
 @AllArgsConstructor
@@ -19,6 +22,19 @@ public class RewardScoreLogEntry {
     @GeneratedValue
     private UUID id;
 
+    /**
+     * The course, user and reward score this entry belongs to.
+     * These are set when the entry is saved together with the reward scores.
+     */
+    @Column(nullable = false)
+    private UUID courseId;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private RewardScoreType scoreType;
+
     @Column(nullable = false)
     private OffsetDateTime date;
 
@@ -34,6 +50,9 @@ public class RewardScoreLogEntry {
     @Column(nullable = false)
     private RewardChangeReason reason;
 
-    @ElementCollection
+    /**
+     * The ids of the contents that caused the change, stored in a single column of 16 bytes per id.
+     */
+    @Convert(converter = UuidListConverter.class)
     private List<UUID> associatedContentIds;
 }
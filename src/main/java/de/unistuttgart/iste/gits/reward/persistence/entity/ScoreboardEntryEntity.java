@@ -0,0 +1,26 @@
+package de.unistuttgart.iste.gits.reward.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Denormalized power score of a user in a course, used to serve the scoreboard
+ * without loading the reward scores of all users of the course.
+ * The entry is updated whenever the power score of the user changes.
+ */
+@Entity(name = "ScoreboardEntry")
+// the index is ordered like the scoreboard, so that it can be read without sorting
+@Table(indexes = @Index(name = "idx_scoreboard_entry_course_rank",
+        columnList = "course_id, power_score desc, user_id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScoreboardEntryEntity {
+
+    @EmbeddedId
+    private AllRewardScoresEntity.PrimaryKey id;
+
+    @Column(nullable = false)
+    private int powerScore;
+}
@@ -1,19 +1,68 @@
 package de.unistuttgart.iste.gits.reward.persistence.mapper;
 
+import de.unistuttgart.iste.gits.generated.dto.RewardLogItem;
+import de.unistuttgart.iste.gits.generated.dto.RewardScore;
 import de.unistuttgart.iste.gits.generated.dto.RewardScores;
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogArchiveEntry;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogEntry;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class RewardScoreMapper {
 
     private final ModelMapper modelMapper;
 
+    /**
+     * Maps the reward scores to a DTO.
+     * The logs of the reward scores are not mapped, so they are not loaded from the database.
+     * They are resolved separately when the log field is requested.
+     */
     public RewardScores entityToDto(AllRewardScoresEntity allRewardScoresEntity) {
-        return modelMapper.map(allRewardScoresEntity, RewardScores.class);
+        return RewardScores.builder()
+                .setCourseId(allRewardScoresEntity.getId().getCourseId())
+                .setUserId(allRewardScoresEntity.getId().getUserId())
+                .setHealth(rewardScoreEntityToDto(allRewardScoresEntity.getHealth()))
+                .setFitness(rewardScoreEntityToDto(allRewardScoresEntity.getFitness()))
+                .setGrowth(rewardScoreEntityToDto(allRewardScoresEntity.getGrowth()))
+                .setStrength(rewardScoreEntityToDto(allRewardScoresEntity.getStrength()))
+                .setPower(rewardScoreEntityToDto(allRewardScoresEntity.getPower()))
+                .build();
+    }
+
+    public RewardScore rewardScoreEntityToDto(RewardScoreEntity rewardScoreEntity) {
+        return RewardScore.builder()
+                .setValue(rewardScoreEntity.getValue())
+                .setPercentage((double) rewardScoreEntity.getPercentage())
+                .build();
+    }
+
+    public RewardLogItem logEntryToDto(RewardScoreLogEntry logEntry) {
+        RewardLogItem logItem = modelMapper.map(logEntry, RewardLogItem.class);
+        logItem.setEntryCount(1);
+        return logItem;
+    }
+
+    /**
+     * Maps an archived log entry to a log item that summarizes the changes of its period.
+     * The date of the log item is the start of the period, and the associated contents are not archived.
+     */
+    public RewardLogItem archiveEntryToDto(RewardScoreLogArchiveEntry archiveEntry) {
+        return RewardLogItem.builder()
+                .setDate(archiveEntry.getPeriodStart())
+                .setDifference(archiveEntry.getDifference())
+                .setOldValue(archiveEntry.getOldValue())
+                .setNewValue(archiveEntry.getNewValue())
+                .setReason(archiveEntry.getReason())
+                .setAssociatedContentIds(List.of())
+                .setEntryCount(archiveEntry.getEntryCount())
+                .build();
     }
 
 }
@@ -1,9 +1,14 @@
 package de.unistuttgart.iste.gits.reward.persistence.repository;
 
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,4 +25,140 @@ public interface AllRewardScoresRepository extends JpaRepository<AllRewardScores
         // naming convention is violated because the Spring Data JPA naming convention is used
     List<AllRewardScoresEntity> findAllRewardScoresEntitiesById_CourseId(UUID id_courseId);
 
+    /**
+     * Returns the reward scores entities of the given users in a course, with a single query.
+     * Unlike {@link #findAllById(Iterable)}, which loads entities with a composite id one by one.
+     *
+     * @param courseId the course id
+     * @param userIds  the user ids
+     * @return the reward scores entities of the users that have reward scores in the course, in no particular order
+     */
+    @Query("select e from RewardScores e where e.id.courseId = :courseId and e.id.userId in :userIds")
+    List<AllRewardScoresEntity> findAllOfCourseAndUsers(@Param("courseId") UUID courseId,
+                                                        @Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * Returns the reward scores entities of a course whose decay was last evaluated before the given time.
+     * Reward scores whose decay is not evaluated lazily, i.e., without a time of the last evaluation, are not returned.
+     *
+     * @param courseId             the course id
+     * @param decayEvaluatedBefore the time before which the decay must have been evaluated
+     * @return the reward scores entities with an older decay evaluation, in no particular order
+     */
+    @Query("select e from RewardScores e where e.id.courseId = :courseId and e.decayEvaluatedAt < :decayEvaluatedBefore")
+    List<AllRewardScoresEntity> findAllOfCourseWithDecayEvaluatedBefore(
+            @Param("courseId") UUID courseId,
+            @Param("decayEvaluatedBefore") OffsetDateTime decayEvaluatedBefore);
+
+    /**
+     * Returns the first ids of all reward scores entities, ordered by course id and user id.
+     *
+     * @param pageable the page request, only the page size is used
+     * @return the first ids in key order
+     */
+    @Query("select e.id from RewardScores e order by e.id.courseId, e.id.userId")
+    List<AllRewardScoresEntity.PrimaryKey> findFirstIds(Pageable pageable);
+
+    /**
+     * Returns the ids of the reward scores entities that follow the given id, ordered by course id and user id.
+     * This is used for keyset pagination, which does not get slower for later pages like offset pagination.
+     *
+     * @param courseId the course id of the last id of the previous page
+     * @param userId   the user id of the last id of the previous page
+     * @param pageable the page request, only the page size is used
+     * @return the ids following the given id in key order
+     */
+    @Query("""
+            select e.id from RewardScores e
+            where e.id.courseId > :courseId or (e.id.courseId = :courseId and e.id.userId > :userId)
+            order by e.id.courseId, e.id.userId
+            """)
+    List<AllRewardScoresEntity.PrimaryKey> findIdsAfter(@Param("courseId") UUID courseId,
+                                                        @Param("userId") UUID userId,
+                                                        Pageable pageable);
+
+    /**
+     * Returns the first ids of the reward scores entities that are due for recalculation at the given time,
+     * ordered by course id and user id.
+     * Reward scores without a time of the next recalculation are always due.
+     *
+     * @param dueAt    the time at which the reward scores must be due
+     * @param pageable the page request, only the page size is used
+     * @return the first ids of due reward scores in key order
+     */
+    @Query("""
+            select e.id from RewardScores e
+            where e.nextRecalculationAt is null or e.nextRecalculationAt <= :dueAt
+            order by e.id.courseId, e.id.userId
+            """)
+    List<AllRewardScoresEntity.PrimaryKey> findFirstDueIds(@Param("dueAt") OffsetDateTime dueAt, Pageable pageable);
+
+    /**
+     * Returns the ids of the reward scores entities that are due for recalculation at the given time and follow the
+     * given id, ordered by course id and user id.
+     *
+     * @param courseId the course id of the last id of the previous page
+     * @param userId   the user id of the last id of the previous page
+     * @param dueAt    the time at which the reward scores must be due
+     * @param pageable the page request, only the page size is used
+     * @return the ids of due reward scores following the given id in key order
+     */
+    @Query("""
+            select e.id from RewardScores e
+            where (e.id.courseId > :courseId or (e.id.courseId = :courseId and e.id.userId > :userId))
+            and (e.nextRecalculationAt is null or e.nextRecalculationAt <= :dueAt)
+            order by e.id.courseId, e.id.userId
+            """)
+    List<AllRewardScoresEntity.PrimaryKey> findDueIdsAfter(@Param("courseId") UUID courseId,
+                                                           @Param("userId") UUID userId,
+                                                           @Param("dueAt") OffsetDateTime dueAt,
+                                                           Pageable pageable);
+
+    /**
+     * Sets the time of the next recalculation of reward scores entities of a course, without loading them and
+     * without incrementing their version, so that concurrent updates of the reward scores do not conflict with it.
+     * Reward scores that were changed by an event since their last recalculation, i.e., whose input fingerprint
+     * is null, are not updated, because the event planned their next recalculation with newer contents.
+     *
+     * @param courseId            the id of the course
+     * @param userIds             the ids of the users whose reward scores are updated
+     * @param nextRecalculationAt the time of the next recalculation
+     * @return the number of updated reward scores entities
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update RewardScores e set e.nextRecalculationAt = :nextRecalculationAt
+            where e.id.courseId = :courseId and e.id.userId in :userIds and e.inputFingerprint is not null
+            """)
+    int updateNextRecalculationAt(@Param("courseId") UUID courseId,
+                                  @Param("userIds") Collection<UUID> userIds,
+                                  @Param("nextRecalculationAt") OffsetDateTime nextRecalculationAt);
+
+    /**
+     * Makes all reward scores entities of a course due in the next nightly recalculation, without loading them and
+     * without incrementing their version.
+     *
+     * @param courseId the id of the course
+     * @return the number of updated reward scores entities
+     */
+    @Modifying
+    @Transactional
+    @Query("update RewardScores e set e.nextRecalculationAt = null where e.id.courseId = :courseId")
+    int clearNextRecalculationAtOfCourse(@Param("courseId") UUID courseId);
+
+    /**
+     * Deletes some of the reward scores entities of a course, without loading them.
+     * Deleting all reward scores entities of a large course in chunks keeps the transactions short.
+     *
+     * @param courseId the id of the course
+     * @param limit    the maximum number of reward scores entities to delete
+     * @return the number of deleted reward scores entities
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            DELETE FROM reward_scores WHERE course_id = :courseId AND user_id IN (
+                SELECT user_id FROM reward_scores WHERE course_id = :courseId LIMIT :limit)""")
+    int deleteChunkOfCourse(@Param("courseId") UUID courseId, @Param("limit") int limit);
 }
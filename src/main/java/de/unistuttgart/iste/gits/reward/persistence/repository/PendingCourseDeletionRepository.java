@@ -0,0 +1,34 @@
+package de.unistuttgart.iste.gits.reward.persistence.repository;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.PendingCourseDeletionEntity;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PendingCourseDeletionRepository extends JpaRepository<PendingCourseDeletionEntity, UUID> {
+
+    /**
+     * Returns the ids of all courses that are pending deletion.
+     *
+     * @return the ids of the courses, in no particular order
+     */
+    @Query("select d.courseId from PendingCourseDeletion d")
+    List<UUID> findAllCourseIds();
+
+    /**
+     * Deletes the marker of a course, without loading it.
+     * Unlike {@link #deleteById(Object)}, this does not fail if the course is not marked as pending deletion.
+     *
+     * @param courseId the id of the course
+     * @return the number of deleted markers, i.e., 0 or 1
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from PendingCourseDeletion d where d.courseId = :courseId")
+    int deleteOfCourse(@Param("courseId") UUID courseId);
+}
@@ -0,0 +1,85 @@
+package de.unistuttgart.iste.gits.reward.persistence.repository;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.generated.dto.RewardScoreType;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogArchiveEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RewardScoreLogArchiveRepository extends JpaRepository<RewardScoreLogArchiveEntry, UUID> {
+
+    /**
+     * Returns the archived log entries of a reward score, ordered by period descending.
+     *
+     * @param courseId  the id of the course
+     * @param userId    the id of the user
+     * @param scoreType the type of the reward score
+     * @return the archived log entries
+     */
+    @Query("""
+            select a from RewardScoreLogArchiveEntry a
+            where a.courseId = :courseId and a.userId = :userId and a.scoreType = :scoreType
+            order by a.periodStart desc""")
+    List<RewardScoreLogArchiveEntry> findArchiveOfRewardScore(@Param("courseId") UUID courseId,
+                                                              @Param("userId") UUID userId,
+                                                              @Param("scoreType") RewardScoreType scoreType);
+
+    /**
+     * Returns the archived log entries of a reward score that match the filter and are older than the given cursor,
+     * ordered by the start of their period and id descending. The dates of the filter and the cursor are compared
+     * with the start of the period. Uses keyset pagination, like
+     * {@link RewardScoreLogRepository#findLogOfRewardScoreAfterCursor}.
+     *
+     * @param courseId   the id of the course
+     * @param userId     the id of the user
+     * @param scoreType  the type of the reward score
+     * @param reasons    the reasons of the archived log entries to return
+     * @param after      only archived log entries whose period starts after this date are returned
+     * @param before     only archived log entries whose period starts before this date are returned
+     * @param cursorDate the start of the period of the archived log entry of the cursor
+     * @param cursorId   the id of the archived log entry of the cursor
+     * @param limit      the maximum number of archived log entries to return
+     * @return the archived log entries
+     */
+    @Query("""
+            select a from RewardScoreLogArchiveEntry a
+            where a.courseId = :courseId and a.userId = :userId and a.scoreType = :scoreType
+            and a.reason in :reasons
+            and a.periodStart > :after and a.periodStart < :before
+            and (a.periodStart < :cursorDate or (a.periodStart = :cursorDate and a.id < :cursorId))
+            order by a.periodStart desc, a.id desc""")
+    List<RewardScoreLogArchiveEntry> findArchiveOfRewardScoreAfterCursor(
+            @Param("courseId") UUID courseId,
+            @Param("userId") UUID userId,
+            @Param("scoreType") RewardScoreType scoreType,
+            @Param("reasons") Collection<RewardChangeReason> reasons,
+            @Param("after") OffsetDateTime after,
+            @Param("before") OffsetDateTime before,
+            @Param("cursorDate") OffsetDateTime cursorDate,
+            @Param("cursorId") UUID cursorId,
+            Pageable limit);
+
+    /**
+     * Deletes some of the archived log entries of a course.
+     * Deleting all archived log entries of a large course in chunks keeps the transactions short.
+     *
+     * @param courseId the id of the course
+     * @param limit    the maximum number of archived log entries to delete
+     * @return the number of deleted archived log entries
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            DELETE FROM reward_score_log_archive_entry WHERE id IN (
+                SELECT id FROM reward_score_log_archive_entry WHERE course_id = :courseId LIMIT :limit)""")
+    int deleteChunkOfCourse(@Param("courseId") UUID courseId, @Param("limit") int limit);
+}
@@ -0,0 +1,137 @@
+package de.unistuttgart.iste.gits.reward.persistence.repository;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.generated.dto.RewardScoreType;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RewardScoreLogRepository extends JpaRepository<RewardScoreLogEntry, UUID> {
+
+    /**
+     * Returns the log entries of a reward score, ordered by date descending.
+     *
+     * @param courseId  the id of the course
+     * @param userId    the id of the user
+     * @param scoreType the type of the reward score
+     * @param pageable  the page of log entries to return
+     * @return the log entries of the page
+     */
+    @Query("""
+            select l from RewardScoreLogEntry l
+            where l.courseId = :courseId and l.userId = :userId and l.scoreType = :scoreType
+            order by l.date desc""")
+    List<RewardScoreLogEntry> findLogOfRewardScore(@Param("courseId") UUID courseId,
+                                                   @Param("userId") UUID userId,
+                                                   @Param("scoreType") RewardScoreType scoreType,
+                                                   Pageable pageable);
+
+    /**
+     * Returns the log entries of a reward score that match the filter and are older than the given cursor,
+     * ordered by date and id descending. Uses keyset pagination, so the cost does not depend on the position
+     * of the cursor.
+     *
+     * @param courseId   the id of the course
+     * @param userId     the id of the user
+     * @param scoreType  the type of the reward score
+     * @param reasons    the reasons of the log entries to return
+     * @param after      only log entries after this date are returned
+     * @param before     only log entries before this date are returned
+     * @param cursorDate the date of the log entry of the cursor
+     * @param cursorId   the id of the log entry of the cursor
+     * @param limit      the maximum number of log entries to return
+     * @return the log entries
+     */
+    @Query("""
+            select l from RewardScoreLogEntry l
+            where l.courseId = :courseId and l.userId = :userId and l.scoreType = :scoreType
+            and l.reason in :reasons
+            and l.date > :after and l.date < :before
+            and (l.date < :cursorDate or (l.date = :cursorDate and l.id < :cursorId))
+            order by l.date desc, l.id desc""")
+    List<RewardScoreLogEntry> findLogOfRewardScoreAfterCursor(@Param("courseId") UUID courseId,
+                                                               @Param("userId") UUID userId,
+                                                               @Param("scoreType") RewardScoreType scoreType,
+                                                               @Param("reasons") Collection<RewardChangeReason> reasons,
+                                                               @Param("after") OffsetDateTime after,
+                                                               @Param("before") OffsetDateTime before,
+                                                               @Param("cursorDate") OffsetDateTime cursorDate,
+                                                               @Param("cursorId") UUID cursorId,
+                                                               Pageable limit);
+
+    /**
+     * Deletes some of the log entries of a course.
+     * Deleting all log entries of a large course in chunks keeps the transactions short.
+     *
+     * @param courseId the id of the course
+     * @param limit    the maximum number of log entries to delete
+     * @return the number of deleted log entries
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            DELETE FROM reward_score_log_entry WHERE id IN (
+                SELECT id FROM reward_score_log_entry WHERE course_id = :courseId LIMIT :limit)""")
+    int deleteChunkOfCourse(@Param("courseId") UUID courseId, @Param("limit") int limit);
+
+    /**
+     * Compacts the logs of the reward scores of several users of a course.
+     * For each reward score, the given number of most recent log entries is kept. Older log entries are rolled up
+     * into {@link de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogArchiveEntry}s, one per period
+     * and reason, and deleted.
+     * <p>
+     * This is done in a single statement, so that log entries that are added concurrently cannot change which log
+     * entries are archived and which are deleted.
+     * The ids of the archive entries are generated with gen_random_uuid(), which requires PostgreSQL 13 or later.
+     *
+     * @param courseId    the id of the course
+     * @param userIds     the ids of the users
+     * @param keepEntries the number of most recent log entries that are kept for each reward score
+     * @param period      the period of the archive entries, as understood by PostgreSQL's date_trunc, e.g. "day"
+     * @return the number of archived log entries
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            WITH expired AS (
+                SELECT id, course_id, user_id, score_type, reason, date, difference, old_value, new_value,
+                       date_trunc(:period, date) AS period_start
+                FROM (SELECT entry.*, row_number() OVER (
+                              PARTITION BY entry.user_id, entry.score_type ORDER BY entry.date DESC, entry.id DESC
+                          ) AS position
+                      FROM reward_score_log_entry entry
+                      WHERE entry.course_id = :courseId AND entry.user_id IN (:userIds)) ranked
+                WHERE position > :keepEntries
+            ), archived AS (
+                INSERT INTO reward_score_log_archive_entry
+                    (id, course_id, user_id, score_type, period_start, reason,
+                     entry_count, difference, old_value, new_value)
+                SELECT gen_random_uuid(),
+                       course_id, user_id, score_type, period_start, reason,
+                       count(*), sum(difference),
+                       (array_agg(old_value ORDER BY date, id))[1],
+                       (array_agg(new_value ORDER BY date DESC, id DESC))[1]
+                FROM expired
+                GROUP BY course_id, user_id, score_type, period_start, reason
+                ON CONFLICT (course_id, user_id, score_type, period_start, reason) DO UPDATE
+                    SET entry_count = reward_score_log_archive_entry.entry_count + excluded.entry_count,
+                        difference = reward_score_log_archive_entry.difference + excluded.difference,
+                        new_value = excluded.new_value
+            )
+            DELETE FROM reward_score_log_entry WHERE id IN (SELECT id FROM expired)""")
+    int compactLogsOfUsers(@Param("courseId") UUID courseId,
+                           @Param("userIds") Collection<UUID> userIds,
+                           @Param("keepEntries") int keepEntries,
+                           @Param("period") String period);
+}
@@ -0,0 +1,126 @@
+package de.unistuttgart.iste.gits.reward.persistence.repository;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.ScoreboardEntryEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ScoreboardEntryRepository extends JpaRepository<ScoreboardEntryEntity, AllRewardScoresEntity.PrimaryKey> {
+
+    /**
+     * Returns the scoreboard entries of a course, ordered by power score descending.
+     * Users with the same power score are ordered by their id.
+     *
+     * @param courseId the course id
+     * @return the scoreboard entries of the course
+     */
+    @Query("select e from ScoreboardEntry e where e.id.courseId = :courseId order by e.powerScore desc, e.id.userId")
+    List<ScoreboardEntryEntity> findScoreboardOfCourse(@Param("courseId") UUID courseId);
+
+    /**
+     * Returns the first scoreboard entries of a course, ordered like {@link #findScoreboardOfCourse(UUID)}.
+     * Uses the index on course id and power score, so only the requested entries are read.
+     *
+     * @param courseId the course id
+     * @param pageable the page request, only the page size is used
+     * @return the first scoreboard entries of the course
+     */
+    @Query("select e from ScoreboardEntry e where e.id.courseId = :courseId order by e.powerScore desc, e.id.userId")
+    List<ScoreboardEntryEntity> findScoreboardOfCourse(@Param("courseId") UUID courseId, Pageable pageable);
+
+    /**
+     * Counts the scoreboard entries of a course that are ranked above the given power score and user id.
+     *
+     * @param courseId   the course id
+     * @param powerScore the power score of the entry
+     * @param userId     the user id of the entry
+     * @return the number of entries ranked above the entry
+     */
+    @Query("""
+            select count(e) from ScoreboardEntry e
+            where e.id.courseId = :courseId
+            and (e.powerScore > :powerScore or (e.powerScore = :powerScore and e.id.userId < :userId))""")
+    long countRankedAbove(@Param("courseId") UUID courseId,
+                          @Param("powerScore") int powerScore,
+                          @Param("userId") UUID userId);
+
+    /**
+     * Returns the scoreboard entries of a course that are ranked directly above the given power score and user id,
+     * starting with the closest entry.
+     *
+     * @param courseId   the course id
+     * @param powerScore the power score of the entry
+     * @param userId     the user id of the entry
+     * @param pageable   the page request, only the page size is used
+     * @return the entries ranked above the entry, in ascending rank order
+     */
+    @Query("""
+            select e from ScoreboardEntry e
+            where e.id.courseId = :courseId
+            and (e.powerScore > :powerScore or (e.powerScore = :powerScore and e.id.userId < :userId))
+            order by e.powerScore, e.id.userId desc""")
+    List<ScoreboardEntryEntity> findRankedAbove(@Param("courseId") UUID courseId,
+                                                @Param("powerScore") int powerScore,
+                                                @Param("userId") UUID userId,
+                                                Pageable pageable);
+
+    /**
+     * Returns the scoreboard entries of a course that are ranked directly below the given power score and user id,
+     * starting with the closest entry.
+     *
+     * @param courseId   the course id
+     * @param powerScore the power score of the entry
+     * @param userId     the user id of the entry
+     * @param pageable   the page request, only the page size is used
+     * @return the entries ranked below the entry, in descending rank order
+     */
+    @Query("""
+            select e from ScoreboardEntry e
+            where e.id.courseId = :courseId
+            and (e.powerScore < :powerScore or (e.powerScore = :powerScore and e.id.userId > :userId))
+            order by e.powerScore desc, e.id.userId""")
+    List<ScoreboardEntryEntity> findRankedBelow(@Param("courseId") UUID courseId,
+                                                @Param("powerScore") int powerScore,
+                                                @Param("userId") UUID userId,
+                                                Pageable pageable);
+
+    /**
+     * Creates the missing scoreboard entries of all reward scores, e.g., of reward scores that were created before
+     * the scoreboard was materialized. Existing scoreboard entries are not changed.
+     *
+     * @return the number of created scoreboard entries
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            INSERT INTO scoreboard_entry (course_id, user_id, power_score)
+                SELECT scores.course_id, scores.user_id, scores.power_value FROM reward_scores scores
+                WHERE NOT EXISTS (SELECT 1 FROM scoreboard_entry entry
+                    WHERE entry.course_id = scores.course_id AND entry.user_id = scores.user_id)
+                ON CONFLICT DO NOTHING""")
+    int insertMissingEntries();
+
+    /**
+     * Deletes some of the scoreboard entries of a course.
+     * Deleting all scoreboard entries of a large course in chunks keeps the transactions short.
+     *
+     * @param courseId the course id
+     * @param limit    the maximum number of scoreboard entries to delete
+     * @return the number of deleted scoreboard entries
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            DELETE FROM scoreboard_entry WHERE course_id = :courseId AND user_id IN (
+                SELECT user_id FROM scoreboard_entry WHERE course_id = :courseId LIMIT :limit)""")
+    int deleteChunkOfCourse(@Param("courseId") UUID courseId, @Param("limit") int limit);
+}
@@ -0,0 +1,101 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs updates of reward scores in a transaction and repeats the transaction if it conflicts with a concurrent
+ * update of the same reward scores.
+ * <p>
+ * The reward scores are versioned, so a transaction that saves reward scores which were changed by another
+ * transaction in the meantime fails with an optimistic locking failure instead of overwriting the other changes.
+ * Two transactions that both create the reward scores of a new user fail with a constraint violation.
+ * In both cases the transaction is repeated with the current state of the reward scores.
+ */
+@Component
+@Slf4j
+public class ConflictRetryTemplate {
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The maximum number of times a transaction is run before the conflict is propagated.
+     */
+    private final int maxAttempts;
+
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxAttempts the maximum number of times a transaction is run before the conflict is propagated
+     */
+    @Autowired
+    public ConflictRetryTemplate(final TransactionTemplate transactionTemplate,
+                                 final MeterRegistry meterRegistry,
+                                 @Value("${reward.conflict_retry.max_attempts}") final int maxAttempts) {
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+
+        retriedCounter = Counter.builder("reward.conflicts")
+                .description("Number of reward score updates that conflicted with a concurrent update")
+                .tag("result", "retried")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("reward.conflicts")
+                .description("Number of reward score updates that conflicted with a concurrent update")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the update in a new transaction, repeating it if it conflicts with a concurrent update.
+     * The update must not have side effects outside the transaction, as it may run several times.
+     *
+     * @param operation a description of the update, used for logging
+     * @param update    the update to run
+     * @param <T>       the type of the result
+     * @return the result of the update
+     * @throws ConcurrencyFailureException     if the update still conflicts after the maximum number of attempts
+     * @throws DataIntegrityViolationException if the update still conflicts after the maximum number of attempts
+     */
+    public <T> T execute(final String operation, final Supplier<T> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (final ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= maxAttempts) {
+                    failedCounter.increment();
+                    log.warn("Giving up {} after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                retriedCounter.increment();
+                log.debug("Conflict while {}, retrying (attempt {} of {})", operation, attempt, maxAttempts);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Waits a short random time that grows with the number of attempts,
+     * so that the conflicting transactions do not collide again.
+     */
+    private static void backOff(final int attempt, final RuntimeException conflict) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 10L * attempt + 1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Manages the optional storage mode in which the reward tables are list-partitioned by course in PostgreSQL.
+ * <p>
+ * If the mode is enabled, the tables are converted to partitioned tables at startup, after Hibernate created or
+ * updated the tables but before the web server starts, so that no request or event is processed during the
+ * conversion. The rows of new courses are first stored in a default partition of each table. They are moved into
+ * partitions of their own course by {@link #partitionNewCourses()}, which runs at startup and on a schedule.
+ * While it runs, writes of the reward data of courses without their own partitions are blocked, see there.
+ * Queries for a single course, e.g., for the scoreboard or the recalculation, only scan the partition of the course,
+ * and the reward data of a deleted course is removed by dropping its partitions.
+ * <p>
+ * Creating and dropping partitions needs locks on the partitioned tables, see there. The locks are requested with a
+ * lock timeout, so that a statement that waits for a long-running query does not block all other queries of the
+ * table that queue behind it. If the timeout expires, the operation fails and is repeated later.
+ * <p>
+ * Partitioning requires PostgreSQL 12 or later.
+ */
+@Component
+// the tables must be created by Hibernate before they are converted
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class CoursePartitionManager {
+
+    private static final String DEFAULT_PARTITION_SUFFIX = "_default";
+
+    /**
+     * The tables that are partitioned by course, with their primary key, which must contain the course id,
+     * and their indexes, which are created on the partitioned table after the conversion.
+     */
+    private static final List<PartitionedTable> TABLES = List.of(
+            new PartitionedTable("scoreboard_entry", "course_id, user_id", List.of(
+                    "CREATE INDEX idx_scoreboard_entry_course_rank"
+                    + " ON scoreboard_entry (course_id, power_score DESC, user_id)")),
+            new PartitionedTable("reward_scores", "course_id, user_id", List.of(
+                    "CREATE INDEX idx_reward_scores_next_recalculation ON reward_scores (next_recalculation_at)")),
+            new PartitionedTable("reward_score_log_entry", "course_id, id", List.of(
+                    "CREATE INDEX idx_reward_score_log_entry_owner_date"
+                    + " ON reward_score_log_entry (course_id, user_id, score_type, date)")),
+            new PartitionedTable("reward_score_log_archive_entry", "course_id, id", List.of(
+                    "ALTER TABLE reward_score_log_archive_entry"
+                    + " ADD CONSTRAINT uc_reward_score_log_archive_entry_owner_period"
+                    + " UNIQUE (course_id, user_id, score_type, period_start, reason)")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    /**
+     * The maximum time in milliseconds that creating or dropping partitions waits for a lock.
+     */
+    private final int lockTimeoutMillis;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param enabled           whether the reward tables are partitioned by course
+     * @param lockTimeoutMillis the maximum time in milliseconds that creating or dropping partitions waits for a lock
+     */
+    @Autowired
+    public CoursePartitionManager(final JdbcTemplate jdbcTemplate,
+                                  final TransactionTemplate transactionTemplate,
+                                  @Value("${reward.storage.partitioned}") final boolean enabled,
+                                  @Value("${reward.storage.lock_timeout_ms}") final int lockTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    /**
+     * Converts the reward tables to partitioned tables if they are not partitioned yet,
+     * and moves the rows of all courses into partitions of their own course.
+     * This runs while the application context is created, before the web server accepts requests and events,
+     * so the service does not start if the tables cannot be converted.
+     */
+    @PostConstruct
+    public void partitionTables() {
+        if (!enabled) {
+            return;
+        }
+
+        for (final PartitionedTable table : TABLES) {
+            if (!isPartitioned(table.name())) {
+                transactionTemplate.executeWithoutResult(status -> convertToPartitionedTable(table));
+                log.info("Converted table {} to a table partitioned by course", table.name());
+            }
+        }
+
+        partitionNewCourses();
+    }
+
+    /**
+     * Moves the rows of courses that are stored in the default partitions into partitions of their own course.
+     * <p>
+     * The courses are moved one after another, each in its own transaction, which locks the default partitions of
+     * all reward tables in EXCLUSIVE mode until the rows of the course are moved. Meanwhile, the default partitions
+     * can be read, but writes to them wait: progress events and recalculations of all courses that do not have their
+     * own partitions yet are blocked for the duration of the move, which grows with the number of rows of the
+     * course. Courses that already have their own partitions are not affected.
+     * If the default partitions cannot be locked within the lock timeout, e.g., because of a long-running
+     * transaction, the course is skipped and moved at the next run, instead of blocking the writes while waiting.
+     * <p>
+     * By default, this method is called every day at 02:00, before the nightly recalculation, when few events
+     * are expected. This can be changed in the application.properties file.
+     */
+    @Scheduled(cron = "${reward.storage.partitioning_cron}")
+    public void partitionNewCourses() {
+        if (!enabled) {
+            return;
+        }
+
+        final Set<UUID> courseIds = new LinkedHashSet<>();
+        for (final PartitionedTable table : TABLES) {
+            courseIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT course_id FROM " + table.name() + DEFAULT_PARTITION_SUFFIX, UUID.class));
+        }
+
+        for (final UUID courseId : courseIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> createPartitionsOfCourse(courseId));
+                log.info("Created partitions of course {}", courseId);
+            } catch (final Exception e) {
+                log.error("Could not create partitions of course {}", courseId, e);
+            }
+        }
+    }
+
+    /**
+     * Drops the partitions of a course, which removes all reward data of the course that is stored in them.
+     * Reward data of the course that is still stored in the default partitions is not removed.
+     * <p>
+     * Each partition is first detached from its table, in its own short transaction, and then dropped, so that the
+     * partitioned table is not locked while the files of the partition are removed. Detaching needs an ACCESS
+     * EXCLUSIVE lock on the partitioned table only for the catalog update. It cannot be done CONCURRENTLY,
+     * because PostgreSQL does not allow this for tables with a default partition.
+     * If a lock cannot be acquired within the lock timeout, this method fails; calling it again continues with the
+     * partitions that are left.
+     *
+     * @param courseId the id of the course
+     */
+    public void dropPartitionsOfCourse(final UUID courseId) {
+        if (!enabled) {
+            return;
+        }
+
+        for (final PartitionedTable table : TABLES) {
+            final String partition = getPartitionName(table, courseId);
+            if (isAttachedPartition(partition)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    setLockTimeout();
+                    jdbcTemplate.execute("ALTER TABLE " + table.name() + " DETACH PARTITION " + partition);
+                });
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        }
+    }
+
+    /**
+     * Returns whether the given table is a partitioned table.
+     */
+    boolean isPartitioned(final String tableName) {
+        final Integer count = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_partitioned_table partitioned
+                JOIN pg_class c ON c.oid = partitioned.partrelid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)""", Integer.class, tableName);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Returns whether the given course has its own partitions.
+     */
+    boolean hasPartitions(final UUID courseId) {
+        final Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_class c WHERE c.relname = ? AND pg_table_is_visible(c.oid)",
+                Integer.class, getPartitionName(TABLES.get(0), courseId));
+        return count != null && count > 0;
+    }
+
+    /**
+     * Returns whether the given table exists and is a partition of another table.
+     */
+    private boolean isAttachedPartition(final String tableName) {
+        final Integer count = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)""", Integer.class, tableName);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Limits the time that the statements of the current transaction wait for locks.
+     */
+    private void setLockTimeout() {
+        // SET does not support parameters, the timeout is an integer
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMillis);
+    }
+
+    private void convertToPartitionedTable(final PartitionedTable table) {
+        final String name = table.name();
+        final String unpartitioned = name + "_unpartitioned";
+
+        jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + unpartitioned);
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + unpartitioned
+                             + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY LIST (course_id)");
+        jdbcTemplate.execute("CREATE TABLE " + name + DEFAULT_PARTITION_SUFFIX + " PARTITION OF " + name + " DEFAULT");
+        jdbcTemplate.execute("INSERT INTO " + name + " SELECT * FROM " + unpartitioned);
+        // the old table is dropped before the indexes are created, because they have the same names
+        jdbcTemplate.execute("DROP TABLE " + unpartitioned);
+        jdbcTemplate.execute("ALTER TABLE " + name + " ADD PRIMARY KEY (" + table.primaryKey() + ")");
+        table.indexes().forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * Moves the rows of a course from the default partitions into new partitions of the course.
+     * The default partitions are locked against concurrent writes, so that no rows of the course are written into
+     * them while the rows are moved.
+     */
+    private void createPartitionsOfCourse(final UUID courseId) {
+        setLockTimeout();
+        for (final PartitionedTable table : TABLES) {
+            jdbcTemplate.execute("LOCK TABLE " + table.name() + DEFAULT_PARTITION_SUFFIX + " IN EXCLUSIVE MODE");
+        }
+
+        for (final PartitionedTable table : TABLES) {
+            final String name = table.name();
+            final String partition = getPartitionName(table, courseId);
+
+            jdbcTemplate.execute("CREATE TABLE " + partition
+                                 + " (LIKE " + name + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.update("WITH moved AS (DELETE FROM " + name + DEFAULT_PARTITION_SUFFIX
+                                + " WHERE course_id = ? RETURNING *) INSERT INTO " + partition
+                                + " SELECT * FROM moved", courseId);
+            // the course id is a UUID, so it is safe to use it in the statement
+            jdbcTemplate.execute("ALTER TABLE " + name + " ATTACH PARTITION " + partition
+                                 + " FOR VALUES IN ('" + courseId + "')");
+        }
+    }
+
+    /**
+     * Returns the name of the partition of a table for a course, e.g., reward_scores_0123456789abcdef0123456789abcdef.
+     * The names fit into the 63 characters allowed by PostgreSQL.
+     */
+    private static String getPartitionName(final PartitionedTable table, final UUID courseId) {
+        return table.name() + "_" + courseId.toString().replace("-", "");
+    }
+
+    private record PartitionedTable(String name, String primaryKey, List<String> indexes) {
+    }
+}
@@ -0,0 +1,238 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.PendingCourseDeletionEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Removes all reward data of deleted courses in the background.
+ * <p>
+ * The reward data is deleted with set-based statements, without loading it, in chunks of a fixed number of rows.
+ * Each chunk is deleted in its own transaction, so that the memory usage and the time for which rows are locked
+ * do not depend on the size of the course.
+ * The courses are removed one after another on a single thread.
+ * <p>
+ * A course is marked as pending deletion before its removal starts, see {@link PendingCourseDeletionEntity}.
+ * The marker is deleted only when all reward data of the course was removed. A removal that fails is retried after
+ * a delay, and removals that were interrupted by a shutdown are resumed when the application starts again.
+ * Progress events of deleted courses are ignored, also after their removal, so that they do not create new
+ * reward data.
+ * If the marker is stored in a transaction, the removal is queued only after the transaction was committed,
+ * so that the removal does not run before the marker exists.
+ * <p>
+ * The ids of the deleted courses are kept in memory, so that checking the course of every batch of progress events
+ * does not need a query. Markers that were stored by other instances of the service are loaded at the start and then
+ * periodically, at the retry delay.
+ * <p>
+ * If the reward tables are partitioned by course, the partitions of the course are dropped first,
+ * see {@link CoursePartitionManager}. Only reward data that is not stored in them is deleted in chunks.
+ */
+@Component
+@Slf4j
+public class CourseRewardDataRemover {
+
+    private final AllRewardScoresRepository rewardScoresRepository;
+    private final RewardScoreLogRepository rewardScoreLogRepository;
+    private final RewardScoreLogArchiveRepository rewardScoreLogArchiveRepository;
+    private final ScoreboardEntryRepository scoreboardEntryRepository;
+    private final CoursePartitionManager coursePartitionManager;
+    private final PendingCourseDeletionRepository pendingCourseDeletionRepository;
+
+    /**
+     * The maximum number of rows that are deleted in one transaction.
+     */
+    private final int chunkSize;
+
+    /**
+     * The delay after which a failed removal is retried.
+     */
+    private final Duration retryDelay;
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+    /**
+     * The ids of the courses that are pending deletion or whose reward data was removed by this instance.
+     * Ids are never removed, because a deleted course does not get new reward data anyway.
+     */
+    private final Set<UUID> pendingDeletions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkSize         the maximum number of rows that are deleted in one transaction
+     * @param retryDelaySeconds the delay after which a failed removal is retried, in seconds
+     */
+    @Autowired
+    public CourseRewardDataRemover(final AllRewardScoresRepository rewardScoresRepository,
+                                   final RewardScoreLogRepository rewardScoreLogRepository,
+                                   final RewardScoreLogArchiveRepository rewardScoreLogArchiveRepository,
+                                   final ScoreboardEntryRepository scoreboardEntryRepository,
+                                   final CoursePartitionManager coursePartitionManager,
+                                   final PendingCourseDeletionRepository pendingCourseDeletionRepository,
+                                   @Value("${reward.deletion.chunk_size}") final int chunkSize,
+                                   @Value("${reward.deletion.retry_delay_seconds}") final int retryDelaySeconds) {
+        this.rewardScoresRepository = rewardScoresRepository;
+        this.rewardScoreLogRepository = rewardScoreLogRepository;
+        this.rewardScoreLogArchiveRepository = rewardScoreLogArchiveRepository;
+        this.scoreboardEntryRepository = scoreboardEntryRepository;
+        this.coursePartitionManager = coursePartitionManager;
+        this.pendingCourseDeletionRepository = pendingCourseDeletionRepository;
+        this.chunkSize = chunkSize;
+        this.retryDelay = Duration.ofSeconds(retryDelaySeconds);
+        // a retry that is waiting at shutdown is resumed at the next start instead
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Marks the course as pending deletion and queues the removal of all its reward data.
+     * If this is called in a transaction, the removal is queued when the transaction was committed.
+     *
+     * @param courseId the id of the course
+     * @return a future that completes when all reward data of the course was removed, possibly after retries,
+     * or that fails if the transaction in which the course was marked was rolled back
+     */
+    public Future<?> removeCourse(final UUID courseId) {
+        pendingCourseDeletionRepository.save(new PendingCourseDeletionEntity(courseId, OffsetDateTime.now()));
+        final boolean deletedBefore = !pendingDeletions.add(courseId);
+
+        final CompletableFuture<Void> removed = new CompletableFuture<>();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queueRemoval(courseId, removed);
+            return removed;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_COMMITTED) {
+                    queueRemoval(courseId, removed);
+                    return;
+                }
+                if (!deletedBefore) {
+                    pendingDeletions.remove(courseId);
+                }
+                removed.completeExceptionally(new IllegalStateException(
+                        "The deletion of course " + courseId + " was rolled back"));
+            }
+        });
+        return removed;
+    }
+
+    /**
+     * Resumes the removal of the courses that are still pending deletion, e.g., because the application was shut
+     * down during their removal.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingDeletions() {
+        for (final PendingCourseDeletionEntity pendingDeletion : pendingCourseDeletionRepository.findAll()) {
+            log.info("Resuming the removal of the reward data of course {}, deleted at {}",
+                    pendingDeletion.getCourseId(), pendingDeletion.getRequestedAt());
+            pendingDeletions.add(pendingDeletion.getCourseId());
+            queueRemoval(pendingDeletion.getCourseId(), new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Loads the courses that were marked as pending deletion by other instances of the service.
+     */
+    @Scheduled(fixedDelayString = "${reward.deletion.retry_delay_seconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshPendingDeletions() {
+        pendingDeletions.addAll(pendingCourseDeletionRepository.findAllCourseIds());
+    }
+
+    /**
+     * Returns whether the course was deleted, i.e., whether it is pending deletion or its reward data was already
+     * removed by this instance. This does not query the database, see {@link #refreshPendingDeletions()} for
+     * deletions that were received by other instances of the service.
+     *
+     * @param courseId the id of the course
+     * @return true if the course was deleted
+     */
+    public boolean isDeleted(final UUID courseId) {
+        return pendingDeletions.contains(courseId);
+    }
+
+    private void queueRemoval(final UUID courseId, final CompletableFuture<Void> removed) {
+        try {
+            executor.execute(() -> removeCourse(courseId, removed));
+        } catch (final RejectedExecutionException e) {
+            log.warn("The removal of the reward data of course {} is resumed at the next start", courseId);
+            removed.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Removes the reward data of the course and deletes its marker. If the removal fails, it is retried after
+     * the retry delay; the rows that were already removed do not have to be removed again.
+     */
+    private void removeCourse(final UUID courseId, final CompletableFuture<Void> removed) {
+        try {
+            removeCourseInChunks(courseId);
+            pendingCourseDeletionRepository.deleteOfCourse(courseId);
+            removed.complete(null);
+        } catch (final Exception e) {
+            log.error("Could not remove the reward data of course {}, retrying in {} s",
+                    courseId, retryDelay.toSeconds(), e);
+            try {
+                executor.schedule(() -> removeCourse(courseId, removed), retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException rejected) {
+                log.warn("The removal of the reward data of course {} is resumed at the next start", courseId);
+            }
+        }
+    }
+
+    private void removeCourseInChunks(final UUID courseId) {
+        final long start = System.nanoTime();
+        coursePartitionManager.dropPartitionsOfCourse(courseId);
+
+        // the scoreboard entries are removed first, so that the course disappears from the scoreboard quickly
+        final long deleted = deleteInChunks(courseId, scoreboardEntryRepository::deleteChunkOfCourse)
+                             + deleteInChunks(courseId, rewardScoresRepository::deleteChunkOfCourse)
+                             + deleteInChunks(courseId, rewardScoreLogRepository::deleteChunkOfCourse)
+                             + deleteInChunks(courseId, rewardScoreLogArchiveRepository::deleteChunkOfCourse);
+
+        log.info("Removed {} rows of reward data of course {} in {} ms",
+                deleted, courseId, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Deletes chunks until no rows are left.
+     *
+     * @param deleteChunk deletes a chunk of rows of a course and returns the number of deleted rows
+     * @return the number of deleted rows
+     */
+    private long deleteInChunks(final UUID courseId, final BiFunction<UUID, Integer, Integer> deleteChunk) {
+        long deleted = 0;
+        int deletedInChunk;
+        do {
+            deletedInChunk = deleteChunk.apply(courseId, chunkSize);
+            deleted += deletedInChunk;
+        } while (deletedInChunk > 0);
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("The removal of the reward data of deleted courses was not finished before shutdown");
+            executor.shutdownNow();
+        }
+    }
+}
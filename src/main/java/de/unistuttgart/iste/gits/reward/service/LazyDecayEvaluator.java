@@ -0,0 +1,173 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.service.calculation.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Applies the daily decay of health and fitness lazily, instead of in the nightly recalculation.
+ * <p>
+ * If the lazy mode is enabled, the nightly recalculation does not change health and fitness, so that the reward
+ * scores of inactive users are not written every night. Instead, each reward score entity stores the time up to
+ * which the decay was applied. When the reward scores are read or the user works on a content, the decay of every
+ * nightly recalculation that was scheduled since then is applied in order, with the same formulas and caps as the
+ * nightly recalculation.
+ * <p>
+ * This gives the same result as the nightly recalculation because the progress data of the user does not change
+ * between two evaluations: every progress update triggers an event, which evaluates the decay first.
+ * Reads of all reward scores of a course and of the scoreboard apply the pending decay of all users of the course
+ * first, see {@link RewardService#applyPendingDecayOfCourse}, so that they do not return values from before the decay.
+ */
+@Component
+@Slf4j
+public class LazyDecayEvaluator {
+
+    /**
+     * How far back the last scheduled decay is searched, from short to long, so that the search takes few steps
+     * for a nightly schedule but also finds the decay of a weekly or monthly schedule.
+     */
+    private static final List<Duration> LAST_DECAY_LOOKBACKS
+            = List.of(Duration.ofDays(1), Duration.ofDays(32), Duration.ofDays(367));
+
+    private final HealthScoreCalculator healthScoreCalculator;
+    private final FitnessScoreCalculator fitnessScoreCalculator;
+    private final PowerScoreCalculator powerScoreCalculator;
+
+    private final boolean enabled;
+
+    /**
+     * The schedule of the nightly recalculation, which determines when the decay is applied.
+     */
+    private final CronExpression decaySchedule;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param enabled           whether the decay of health and fitness is evaluated lazily
+     * @param recalculationCron the schedule of the nightly recalculation
+     */
+    @Autowired
+    public LazyDecayEvaluator(final HealthScoreCalculator healthScoreCalculator,
+                              final FitnessScoreCalculator fitnessScoreCalculator,
+                              final PowerScoreCalculator powerScoreCalculator,
+                              @Value("${reward.decay.lazy}") final boolean enabled,
+                              @Value("${reward.recalculation.cron}") final String recalculationCron) {
+        this.healthScoreCalculator = healthScoreCalculator;
+        this.fitnessScoreCalculator = fitnessScoreCalculator;
+        this.powerScoreCalculator = powerScoreCalculator;
+        this.enabled = enabled;
+        this.decaySchedule = CronExpression.parse(recalculationCron);
+    }
+
+    /**
+     * Returns whether the decay of health and fitness is evaluated lazily.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether a nightly recalculation was scheduled since the decay of the reward scores was last applied.
+     *
+     * @param allRewardScores the reward scores
+     * @return true if the decay must be applied before the reward scores are used
+     */
+    public boolean hasPendingDecay(final AllRewardScoresEntity allRewardScores) {
+        if (!enabled || allRewardScores.getDecayEvaluatedAt() == null) {
+            return false;
+        }
+        final ZonedDateTime nextDecay = decaySchedule.next(toScheduleTime(allRewardScores.getDecayEvaluatedAt()));
+        return nextDecay != null && !nextDecay.toOffsetDateTime().isAfter(OffsetDateTime.now());
+    }
+
+    /**
+     * Returns the time of the last nightly recalculation that was scheduled up to now.
+     * Reward scores whose decay was evaluated before this time have a pending decay, see {@link #hasPendingDecay}.
+     *
+     * @return the time of the last scheduled recalculation, or null if none was scheduled within the last year
+     */
+    @Nullable
+    public OffsetDateTime getLastDecayTime() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        for (final Duration lookback : LAST_DECAY_LOOKBACKS) {
+            ZonedDateTime lastDecay = null;
+            for (ZonedDateTime night = decaySchedule.next(now.minus(lookback));
+                 night != null && !night.isAfter(now);
+                 night = decaySchedule.next(night)) {
+                lastDecay = night;
+            }
+            if (lastDecay != null) {
+                return lastDecay.toOffsetDateTime();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the decay of all nightly recalculations that were scheduled since the decay of the reward scores
+     * was last applied, and recalculates the power score if health or fitness changed.
+     * Reward scores that were never evaluated, e.g., new reward scores, start decaying from now on.
+     * Does nothing if the lazy mode is disabled.
+     *
+     * @param allRewardScores the reward scores, which are updated
+     * @param contents        the contents of the course with the progress data of the user
+     * @return the number of nightly recalculations whose decay was applied
+     */
+    public int applyPendingDecay(final AllRewardScoresEntity allRewardScores, final List<Content> contents) {
+        if (!enabled) {
+            return 0;
+        }
+
+        final OffsetDateTime now = OffsetDateTime.now();
+        final OffsetDateTime evaluatedAt = allRewardScores.getDecayEvaluatedAt();
+        allRewardScores.setDecayEvaluatedAt(now);
+        if (evaluatedAt == null) {
+            return 0;
+        }
+
+        final int oldHealth = allRewardScores.getHealth().getValue();
+        final int oldFitness = allRewardScores.getFitness().getValue();
+        int nights = 0;
+        for (ZonedDateTime night = decaySchedule.next(toScheduleTime(evaluatedAt));
+             night != null && !night.toOffsetDateTime().isAfter(now);
+             night = decaySchedule.next(night)) {
+
+            final CourseSnapshot course = CourseSnapshot.asOf(contents, night.toOffsetDateTime());
+            allRewardScores.setHealth(healthScoreCalculator.recalculateScore(allRewardScores, course));
+            allRewardScores.setFitness(fitnessScoreCalculator.recalculateScore(allRewardScores, course));
+            nights++;
+
+            if (allRewardScores.getHealth().getValue() == 0 && allRewardScores.getFitness().getValue() == 0) {
+                // neither score can decrease any further
+                break;
+            }
+        }
+
+        if (allRewardScores.getHealth().getValue() != oldHealth
+            || allRewardScores.getFitness().getValue() != oldFitness) {
+            allRewardScores.setPower(powerScoreCalculator.recalculateScore(allRewardScores, CourseSnapshot.of(contents)));
+        }
+        log.debug("Applied the decay of {} nights to the reward scores of user {} in course {}",
+                nights, allRewardScores.getId().getUserId(), allRewardScores.getId().getCourseId());
+        return nights;
+    }
+
+    /**
+     * Converts a time to the time zone of the scheduler, which runs the nightly recalculation.
+     */
+    private static ZonedDateTime toScheduleTime(final OffsetDateTime time) {
+        return time.atZoneSameInstant(ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,122 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.service.calculation.CourseSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+/**
+ * Determines when the nightly recalculation has to recalculate the reward scores of a user next.
+ * <p>
+ * Between the events of a user, the nightly recalculation only changes health and fitness, and only while a content
+ * is due: health decreases every night while an unlearned content is past its suggested date and fitness while a
+ * learned content is due for review. Reward scores without such a content can only change when the next suggested
+ * date or next learn date passes, so the nightly recalculation skips them until then, see
+ * {@link ScoreRecalculationEngine}.
+ * <p>
+ * Because the contents of a course can change without an event of the user, e.g., if a content with a past
+ * suggested date is added, all reward scores of a course are due again when the course is updated, see
+ * {@link RewardService#removeRewardData}. As a fallback for changes without such an event, the reward scores are
+ * recalculated at least once per maximum interval.
+ * <p>
+ * When due reward scores are recalculated, the recalculation is skipped if the contents have the same fingerprint
+ * as in the last recalculation and health and fitness do not decay, because it would not change anything.
+ */
+@Component
+public class RecalculationPlanner {
+
+    private final LazyDecayEvaluator lazyDecayEvaluator;
+
+    /**
+     * The maximum time between two recalculations of the reward scores of a user.
+     */
+    private final Duration maxInterval;
+
+    private final Counter unchangedCounter;
+    private final Counter changedCounter;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxIntervalDays the maximum number of days between two recalculations of the reward scores of a user
+     */
+    @Autowired
+    public RecalculationPlanner(final LazyDecayEvaluator lazyDecayEvaluator,
+                                final MeterRegistry meterRegistry,
+                                @Value("${reward.recalculation.max_interval_days}") final int maxIntervalDays) {
+        this.lazyDecayEvaluator = lazyDecayEvaluator;
+        this.maxInterval = Duration.ofDays(maxIntervalDays);
+
+        unchangedCounter = Counter.builder("reward.recalculation.inputs")
+                .description("Number of reward scores due for recalculation, by whether the recalculation was skipped"
+                             + " because its inputs were unchanged")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+        changedCounter = Counter.builder("reward.recalculation.inputs")
+                .description("Number of reward scores due for recalculation, by whether the recalculation was skipped"
+                             + " because its inputs were unchanged")
+                .tag("result", "recalculated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether recalculating the reward scores would not change them, because the contents have the same
+     * fingerprint as in the last recalculation and health and fitness do not decay.
+     * The result is counted in the metric reward.recalculation.inputs.
+     *
+     * @param allRewardScores the reward scores
+     * @param course          the classified contents of the course with the progress data of the user
+     * @return true if the recalculation can be skipped
+     */
+    public boolean isUnchanged(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
+        final boolean unchanged = !isDecaying(allRewardScores, course)
+                                  && Objects.equals(allRewardScores.getInputFingerprint(), course.getFingerprint());
+        (unchanged ? unchangedCounter : changedCounter).increment();
+        return unchanged;
+    }
+
+    /**
+     * Sets the time of the next recalculation of the given reward scores.
+     * If the reward scores decay every night, they are due immediately, i.e., in the next nightly recalculation.
+     * A time that has already passed is kept in this case, so that the reward scores are not written only to
+     * update it.
+     *
+     * @param allRewardScores the reward scores, which are updated
+     * @param course          the classified contents of the course with the progress data of the user
+     */
+    public void planNextRecalculation(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
+        final OffsetDateTime now = course.getNow();
+
+        if (isDecaying(allRewardScores, course)) {
+            final OffsetDateTime planned = allRewardScores.getNextRecalculationAt();
+            if (planned == null || planned.isAfter(now)) {
+                allRewardScores.setNextRecalculationAt(now);
+            }
+            return;
+        }
+
+        final OffsetDateTime latest = now.plus(maxInterval);
+        final OffsetDateTime nextDueDate = course.getNextDueDate();
+        allRewardScores.setNextRecalculationAt(
+                nextDueDate != null && nextDueDate.isBefore(latest) ? nextDueDate : latest);
+    }
+
+    /**
+     * Returns whether the nightly recalculation decreases health or fitness of the reward scores.
+     * If the decay is evaluated lazily, the nightly recalculation never changes health or fitness.
+     */
+    private boolean isDecaying(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
+        if (lazyDecayEvaluator.isEnabled()) {
+            return false;
+        }
+        return allRewardScores.getHealth().getValue() > 0 && !course.getDueContentsThatWereNeverWorked().isEmpty()
+               || allRewardScores.getFitness().getValue() > 0 && !course.getContentsDueForReview().isEmpty();
+    }
+}
@@ -0,0 +1,62 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Position of a log entry in the reward score log, used as an opaque cursor for the paginated log.
+ * The log is ordered by date and id, so these two values identify the position of an entry.
+ * The archived log entries follow the detailed log entries, so the cursor also tells which of them it points to.
+ */
+@Value
+public class RewardLogCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final String ARCHIVED = "archived";
+
+    OffsetDateTime date;
+    UUID id;
+    /**
+     * Whether the cursor points to an archived log entry, whose date is the start of its period.
+     */
+    boolean archived;
+
+    /**
+     * Encodes the cursor to a string that can be passed to clients.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        final String value = date + SEPARATOR + id + (archived ? SEPARATOR + ARCHIVED : "");
+        return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor that was created by {@link #encode()}.
+     *
+     * @param cursor the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public static RewardLogCursor decode(final String cursor) {
+        try {
+            final String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = value.split(Pattern.quote(SEPARATOR), -1);
+            if (parts.length > 3 || (parts.length == 3 && !parts[2].equals(ARCHIVED))) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new RewardLogCursor(
+                    OffsetDateTime.parse(parts[0]),
+                    UUID.fromString(parts[1]),
+                    parts.length == 3);
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardScoreType;
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Identifies one of the reward scores of a user in a course, e.g. to read its log.
+ */
+@Value
+public class RewardScoreKey {
+    UUID courseId;
+    UUID userId;
+    RewardScoreType scoreType;
+}
@@ -0,0 +1,130 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.RewardScoreLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Compacts the logs of all reward scores in the background.
+ * <p>
+ * For each reward score, only the most recent log entries are kept in detail. Older log entries are rolled up into
+ * archive entries, one per day or week and reason, so that the log table does not grow without bound.
+ * <p>
+ * The ids of the reward scores are read page by page using keyset pagination, like in the
+ * {@link ScoreRecalculationEngine}. Each chunk of users of the same course is compacted with a single statement in
+ * its own short transaction, which only touches old log entries and not the reward scores, so that the processing
+ * of user progress events is not blocked.
+ */
+@Component
+@Slf4j
+public class RewardScoreLogCompactor {
+
+    /**
+     * The periods into which old log entries are rolled up.
+     */
+    public enum RollupPeriod {
+        DAY,
+        WEEK
+    }
+
+    private final AllRewardScoresRepository rewardScoresRepository;
+    private final RewardScoreLogRepository rewardScoreLogRepository;
+
+    /**
+     * The number of most recent log entries that are kept in detail for each reward score.
+     */
+    private final int keepEntries;
+
+    private final RollupPeriod rollupPeriod;
+
+    /**
+     * The number of users whose logs are compacted in one transaction.
+     */
+    private final int chunkSize;
+
+    private final Counter archivedCounter;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param keepEntries  the number of most recent log entries that are kept in detail for each reward score
+     * @param rollupPeriod the period into which older log entries are rolled up
+     * @param chunkSize    the number of users whose logs are compacted in one transaction
+     */
+    @Autowired
+    public RewardScoreLogCompactor(final AllRewardScoresRepository rewardScoresRepository,
+                                   final RewardScoreLogRepository rewardScoreLogRepository,
+                                   final MeterRegistry meterRegistry,
+                                   @Value("${reward.log_compaction.keep_entries}") final int keepEntries,
+                                   @Value("${reward.log_compaction.rollup_period}") final RollupPeriod rollupPeriod,
+                                   @Value("${reward.log_compaction.chunk_size}") final int chunkSize) {
+        this.rewardScoresRepository = rewardScoresRepository;
+        this.rewardScoreLogRepository = rewardScoreLogRepository;
+        this.keepEntries = keepEntries;
+        this.rollupPeriod = rollupPeriod;
+        this.chunkSize = chunkSize;
+
+        archivedCounter = Counter.builder("reward.log_compaction.archived")
+                .description("Number of log entries that were rolled up into archive entries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Compacts the logs of all reward scores.
+     * <p>
+     * By default, this method is called every day at 04:30, after the nightly recalculation.
+     * This can be changed in the application.properties file.
+     */
+    @Scheduled(cron = "${reward.log_compaction.cron}")
+    public void compactAllLogs() {
+        final long start = System.nanoTime();
+        long archived = 0;
+
+        List<AllRewardScoresEntity.PrimaryKey> page = rewardScoresRepository.findFirstIds(PageRequest.of(0, chunkSize));
+        while (!page.isEmpty()) {
+            archived += compactPage(page);
+
+            final AllRewardScoresEntity.PrimaryKey last = page.get(page.size() - 1);
+            page = rewardScoresRepository.findIdsAfter(last.getCourseId(), last.getUserId(), PageRequest.of(0, chunkSize));
+        }
+
+        final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        log.info("Archived {} log entries in {} ms", archived, duration.toMillis());
+    }
+
+    /**
+     * Compacts the logs of the users of a page, course by course.
+     *
+     * @return the number of archived log entries
+     */
+    private long compactPage(final List<AllRewardScoresEntity.PrimaryKey> page) {
+        final Map<UUID, List<UUID>> userIdsByCourse = new LinkedHashMap<>();
+        for (final AllRewardScoresEntity.PrimaryKey id : page) {
+            userIdsByCourse.computeIfAbsent(id.getCourseId(), courseId -> new ArrayList<>()).add(id.getUserId());
+        }
+
+        long archived = 0;
+        for (final Map.Entry<UUID, List<UUID>> entry : userIdsByCourse.entrySet()) {
+            try {
+                final int archivedOfCourse = rewardScoreLogRepository.compactLogsOfUsers(entry.getKey(),
+                        entry.getValue(), keepEntries, rollupPeriod.name().toLowerCase(Locale.ROOT));
+                archivedCounter.increment(archivedOfCourse);
+                archived += archivedOfCourse;
+            } catch (final Exception e) {
+                log.error("Could not compact the logs of {} users in course {}", entry.getValue().size(), entry.getKey(), e);
+            }
+        }
+        return archived;
+    }
+}
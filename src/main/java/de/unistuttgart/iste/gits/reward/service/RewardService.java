@@ -2,23 +2,28 @@ package de.unistuttgart.iste.gits.reward.service;
 
 import de.unistuttgart.iste.gits.common.event.*;
 import de.unistuttgart.iste.gits.common.exception.IncompleteEventMessageException;
-import de.unistuttgart.iste.gits.content_service.client.ContentServiceClient;
 import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
 import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogArchiveEntry;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogEntry;
 import de.unistuttgart.iste.gits.reward.persistence.mapper.RewardScoreMapper;
-import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
 import de.unistuttgart.iste.gits.reward.service.calculation.*;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 
-import static java.util.Comparator.comparing;
-
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -33,9 +38,21 @@ public class RewardService {
      * The initial reward score values for a new entity, for the absolute reward scores Strength, Growth and Power.
      */
     private static final int INITIAL_ABSOLUTE_REWARD_SCORE = 0;
+    /**
+     * Bounds for the dates of log entries, used if the log is not filtered by date.
+     */
+    private static final OffsetDateTime MIN_LOG_DATE = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime MAX_LOG_DATE = OffsetDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+    /**
+     * The maximum number of log entries of a page of the log, also enforced by the GraphQL schema.
+     */
+    private static final int MAX_LOG_PAGE_SIZE = 100;
 
     private final AllRewardScoresRepository rewardScoresRepository;
+    private final RewardScoreLogRepository rewardScoreLogRepository;
+    private final RewardScoreLogArchiveRepository rewardScoreLogArchiveRepository;
     private final RewardScoreMapper mapper;
+    private final ScoreboardService scoreboardService;
 
     private final HealthScoreCalculator healthScoreCalculator;
     private final FitnessScoreCalculator fitnessScoreCalculator;
@@ -43,28 +60,41 @@ public class RewardService {
     private final PowerScoreCalculator powerScoreCalculator;
     private final GrowthScoreCalculator growthScoreCalculator;
 
-    private final ContentServiceClient contentServiceClient;
+    private final CourseContentProvider courseContentProvider;
+
+    private final EntityManager entityManager;
+
+    private final ConflictRetryTemplate conflictRetryTemplate;
+
+    private final CourseRewardDataRemover courseRewardDataRemover;
+
+    private final LazyDecayEvaluator lazyDecayEvaluator;
+
+    private final RecalculationPlanner recalculationPlanner;
 
     /**
      * Recalculates the reward scores for a given user and course.
+     * The recalculation is repeated if it conflicts with a concurrent update of the reward scores.
      *
      * @param courseId the id of the course
      * @param userId   the id of the user
      * @return the recalculated reward scores
      */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public RewardScores recalculateScores(final UUID courseId, final UUID userId) {
+        return conflictRetryTemplate.execute("recalculating reward scores",
+                () -> recalculateScoresInTransaction(courseId, userId));
+    }
 
-        final AllRewardScoresEntity allRewardScoresEntity = rewardScoresRepository
-                .findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId))
-                .orElseGet(() -> initializeRewardScores(courseId, userId));
-
-
-        final List<Content> contents;
+    private RewardScores recalculateScoresInTransaction(final UUID courseId, final UUID userId) {
         try {
-            contents = contentServiceClient.queryContentsOfCourse(userId, courseId);
-            recalculateScoresAndUpdateEntity(allRewardScoresEntity, contents);
+            final CourseSnapshot course = CourseSnapshot.of(courseContentProvider.getContentsOfCourse(courseId, userId));
+            final AllRewardScoresEntity allRewardScoresEntity = findOrCreateRewardScores(courseId, userId, course);
+            lazyDecayEvaluator.applyPendingDecay(allRewardScoresEntity, course.getContents());
+            recalculateScoresAndUpdateEntity(allRewardScoresEntity, course);
 
-            final var result = rewardScoresRepository.save(allRewardScoresEntity);
+            final var result = saveRewardScores(allRewardScoresEntity);
+            scoreboardService.updateEntry(result);
 
             return mapper.entityToDto(result);
         } catch (final Exception e) {
@@ -72,38 +102,159 @@ public class RewardService {
         }
     }
 
+    /**
+     * Recalculates the reward scores. If the decay of health and fitness is evaluated lazily,
+     * health and fitness are not changed, see {@link LazyDecayEvaluator}, and reward scores without a time of the
+     * last decay evaluation start decaying from now on.
+     * Afterwards, the time of the next recalculation is planned, see {@link RecalculationPlanner},
+     * and the fingerprint of the contents is stored.
+     */
     private void recalculateScoresAndUpdateEntity(final AllRewardScoresEntity allRewardScoresEntity,
-                                                  final List<Content> contents) {
-        allRewardScoresEntity
-                .setHealth(healthScoreCalculator.recalculateScore(allRewardScoresEntity, contents));
-        allRewardScoresEntity
-                .setFitness(fitnessScoreCalculator.recalculateScore(allRewardScoresEntity, contents));
+                                                  final CourseSnapshot course) {
+        if (!lazyDecayEvaluator.isEnabled()) {
+            allRewardScoresEntity
+                    .setHealth(healthScoreCalculator.recalculateScore(allRewardScoresEntity, course));
+            allRewardScoresEntity
+                    .setFitness(fitnessScoreCalculator.recalculateScore(allRewardScoresEntity, course));
+            // the decay was applied now, so a timestamp left from the lazy mode must not be used again
+            allRewardScoresEntity.setDecayEvaluatedAt(null);
+        } else if (allRewardScoresEntity.getDecayEvaluatedAt() == null) {
+            // reward scores from before the lazy mode was enabled start decaying from now on,
+            // otherwise they would never decay
+            allRewardScoresEntity.setDecayEvaluatedAt(OffsetDateTime.now());
+        }
         allRewardScoresEntity
-                .setStrength(strengthScoreCalculator.recalculateScore(allRewardScoresEntity, contents));
+                .setStrength(strengthScoreCalculator.recalculateScore(allRewardScoresEntity, course));
         allRewardScoresEntity
-                .setGrowth(growthScoreCalculator.recalculateScore(allRewardScoresEntity, contents));
+                .setGrowth(growthScoreCalculator.recalculateScore(allRewardScoresEntity, course));
         allRewardScoresEntity
-                .setPower(powerScoreCalculator.recalculateScore(allRewardScoresEntity, contents));
+                .setPower(powerScoreCalculator.recalculateScore(allRewardScoresEntity, course));
+        recalculationPlanner.planNextRecalculation(allRewardScoresEntity, course);
+        allRewardScoresEntity.setInputFingerprint(course.getFingerprint());
     }
 
     /**
-     * Recalculates the reward scores for all users and courses.
+     * Recalculates the reward scores of several users in one transaction.
+     * This is used by the {@link ScoreRecalculationEngine} to recalculate the scores chunk by chunk.
      * <p>
-     * By default, this method is called every day at 03:00.
-     * This can be changed in the application.properties file.
+     * Entities whose recalculation fails are detached, so that a partial recalculation is not saved,
+     * and do not affect the other entities of the chunk.
+     * Entities whose contents did not change since their last recalculation are skipped, see
+     * {@link RecalculationPlanner#isUnchanged}. They are detached, so that they are not written with a new version,
+     * and only the time of their next recalculation is updated, with one statement per planned time and course.
+     * If the chunk conflicts with a concurrent update of one of its reward scores, the whole chunk is recalculated again.
+     *
+     * @param contentsById the contents of the course, for each id of the reward scores that should be recalculated
+     * @return the number of reward scores that were recalculated or skipped successfully
      */
-    @Scheduled(cron = "${reward.recalculation.cron}")
-    public void recalculateAllScores() {
-        final List<AllRewardScoresEntity> allRewardScoresEntities = rewardScoresRepository.findAll();
-        for (final AllRewardScoresEntity allRewardScoresEntity : allRewardScoresEntities) {
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public int recalculateScores(final Map<AllRewardScoresEntity.PrimaryKey, List<Content>> contentsById) {
+        return conflictRetryTemplate.execute("recalculating a chunk of reward scores",
+                () -> recalculateScoresInTransaction(contentsById));
+    }
+
+    private int recalculateScoresInTransaction(final Map<AllRewardScoresEntity.PrimaryKey, List<Content>> contentsById) {
+        final List<AllRewardScoresEntity> entities = findAllRewardScoresEntities(contentsById.keySet());
+        final List<AllRewardScoresEntity> recalculatedEntities = new ArrayList<>(entities.size());
+        final List<AllRewardScoresEntity> replannedEntities = new ArrayList<>();
+        int skipped = 0;
+
+        for (final AllRewardScoresEntity entity : entities) {
             try {
-                recalculateScores(allRewardScoresEntity.getId().getCourseId(), allRewardScoresEntity.getId().getUserId());
+                final CourseSnapshot course = CourseSnapshot.of(contentsById.get(entity.getId()));
+                if (recalculationPlanner.isUnchanged(entity, course)) {
+                    entityManager.detach(entity);
+                    final OffsetDateTime planned = entity.getNextRecalculationAt();
+                    recalculationPlanner.planNextRecalculation(entity, course);
+                    if (!Objects.equals(entity.getNextRecalculationAt(), planned)) {
+                        replannedEntities.add(entity);
+                    }
+                    skipped++;
+                    continue;
+                }
+                recalculateScoresAndUpdateEntity(entity, course);
+                recalculatedEntities.add(entity);
             } catch (final Exception e) {
+                entityManager.detach(entity);
                 log.error("Could not recalculate reward scores for user {} in course {}",
-                        allRewardScoresEntity.getId().getUserId(), allRewardScoresEntity.getId().getCourseId(), e);
+                        entity.getId().getUserId(), entity.getId().getCourseId(), e);
             }
         }
-        log.info("Recalculated reward scores for {} users", allRewardScoresEntities.size());
+
+        saveAllRewardScores(recalculatedEntities);
+        updateNextRecalculationTimes(replannedEntities);
+        // also reconciles scoreboard entries that are missing or out of date
+        scoreboardService.updateEntries(recalculatedEntities);
+        return recalculatedEntities.size() + skipped;
+    }
+
+    /**
+     * Stores the planned time of the next recalculation of detached reward scores, without writing the rest of them.
+     * The reward scores of a chunk mostly share a few planned times, so they are updated with one statement per
+     * planned time and course.
+     */
+    private void updateNextRecalculationTimes(final List<AllRewardScoresEntity> entities) {
+        final Map<OffsetDateTime, Map<UUID, List<UUID>>> userIdsByTimeAndCourse = new HashMap<>();
+        for (final AllRewardScoresEntity entity : entities) {
+            userIdsByTimeAndCourse
+                    .computeIfAbsent(entity.getNextRecalculationAt(), time -> new HashMap<>())
+                    .computeIfAbsent(entity.getId().getCourseId(), courseId -> new ArrayList<>())
+                    .add(entity.getId().getUserId());
+        }
+        userIdsByTimeAndCourse.forEach((time, userIdsByCourse) -> userIdsByCourse.forEach((courseId, userIds) ->
+                rewardScoresRepository.updateNextRecalculationAt(courseId, userIds, time)));
+    }
+
+    /**
+     * Saves the reward scores of several users together with the log entries that were added to them.
+     * The log entries of all users are saved with one call, so that they are inserted in JDBC batches.
+     *
+     * @param entities the reward scores to save
+     * @return the saved reward scores
+     */
+    public List<AllRewardScoresEntity> saveAllRewardScores(final Collection<AllRewardScoresEntity> entities) {
+        final List<RewardScoreLogEntry> newLogEntries = new ArrayList<>();
+        for (final AllRewardScoresEntity entity : entities) {
+            newLogEntries.addAll(takeNewLogEntries(entity));
+        }
+        rewardScoreLogRepository.saveAll(newLogEntries);
+        return rewardScoresRepository.saveAll(entities);
+    }
+
+    private AllRewardScoresEntity saveRewardScores(final AllRewardScoresEntity entity) {
+        rewardScoreLogRepository.saveAll(takeNewLogEntries(entity));
+        return rewardScoresRepository.save(entity);
+    }
+
+    /**
+     * Returns the log entries that were added to the reward scores since they were loaded and removes them from
+     * the reward scores, so that they are saved only once.
+     * The entries are assigned to the course, user and reward score they belong to.
+     */
+    private static List<RewardScoreLogEntry> takeNewLogEntries(final AllRewardScoresEntity entity) {
+        final List<RewardScoreLogEntry> newLogEntries = new ArrayList<>();
+        takeNewLogEntries(entity, RewardScoreType.HEALTH, entity.getHealth(), newLogEntries);
+        takeNewLogEntries(entity, RewardScoreType.FITNESS, entity.getFitness(), newLogEntries);
+        takeNewLogEntries(entity, RewardScoreType.GROWTH, entity.getGrowth(), newLogEntries);
+        takeNewLogEntries(entity, RewardScoreType.STRENGTH, entity.getStrength(), newLogEntries);
+        takeNewLogEntries(entity, RewardScoreType.POWER, entity.getPower(), newLogEntries);
+        return newLogEntries;
+    }
+
+    private static void takeNewLogEntries(final AllRewardScoresEntity entity,
+                                          final RewardScoreType scoreType,
+                                          @Nullable final RewardScoreEntity rewardScore,
+                                          final List<RewardScoreLogEntry> newLogEntries) {
+        if (rewardScore == null || rewardScore.getLog() == null) {
+            return;
+        }
+        for (final RewardScoreLogEntry logEntry : rewardScore.getLog()) {
+            logEntry.setCourseId(entity.getId().getCourseId());
+            logEntry.setUserId(entity.getId().getUserId());
+            logEntry.setScoreType(scoreType);
+            newLogEntries.add(logEntry);
+        }
+        rewardScore.setLog(new ArrayList<>());
     }
 
     /**
@@ -114,9 +265,136 @@ public class RewardService {
      * @return the reward scores
      */
     public AllRewardScoresEntity getAllRewardScoresEntity(final UUID courseId, final UUID userId) {
-        return rewardScoresRepository
-                .findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId))
-                .orElseGet(() -> initializeRewardScores(courseId, userId));
+        final Optional<AllRewardScoresEntity> existing = rewardScoresRepository
+                .findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId));
+        if (existing.isEmpty()) {
+            return initializeRewardScores(courseId, userId);
+        }
+        applyPendingDecayOnRead(courseId, List.of(existing.get()));
+        return existing.get();
+    }
+
+    /**
+     * Applies the pending decay of health and fitness to reward scores that are read, if the decay is evaluated
+     * lazily, and saves the reward scores that changed. The contents are fetched once per course.
+     * If the contents cannot be fetched, the reward scores are returned without the pending decay,
+     * which is applied with the next read or event instead.
+     */
+    private void applyPendingDecayOnRead(final UUID courseId, final List<AllRewardScoresEntity> entities) {
+        final List<AllRewardScoresEntity> decaying = entities.stream()
+                .filter(lazyDecayEvaluator::hasPendingDecay)
+                .toList();
+        if (decaying.isEmpty()) {
+            return;
+        }
+
+        final Map<UUID, List<Content>> contentsByUser;
+        try {
+            contentsByUser = courseContentProvider.getContentsOfCourseForUsers(courseId,
+                    decaying.stream().map(entity -> entity.getId().getUserId()).toList());
+        } catch (final Exception e) {
+            log.error("Could not apply the pending decay to the reward scores of course {}", courseId, e);
+            return;
+        }
+
+        final List<AllRewardScoresEntity> decayed = new ArrayList<>(decaying.size());
+        for (final AllRewardScoresEntity entity : decaying) {
+            final List<Content> contents = contentsByUser.get(entity.getId().getUserId());
+            if (contents != null) {
+                lazyDecayEvaluator.applyPendingDecay(entity, contents);
+                decayed.add(entity);
+            }
+        }
+        saveAllRewardScores(decayed);
+        scoreboardService.updateEntries(decayed);
+    }
+
+    /**
+     * Loads the reward scores entities with the given ids, with one query per course.
+     */
+    private List<AllRewardScoresEntity> findAllRewardScoresEntities(final Collection<AllRewardScoresEntity.PrimaryKey> ids) {
+        final Map<UUID, List<UUID>> userIdsByCourse = new HashMap<>();
+        for (final AllRewardScoresEntity.PrimaryKey id : ids) {
+            userIdsByCourse.computeIfAbsent(id.getCourseId(), courseId -> new ArrayList<>()).add(id.getUserId());
+        }
+
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(ids.size());
+        userIdsByCourse.forEach((courseId, userIds) ->
+                entities.addAll(rewardScoresRepository.findAllOfCourseAndUsers(courseId, userIds)));
+        return entities;
+    }
+
+    /**
+     * Gets the reward scores with the given ids and initializes those that do not exist yet.
+     * The existing reward scores are loaded with one query per course.
+     *
+     * @param ids the ids of the reward scores
+     * @return the reward scores, for each id
+     */
+    public Map<AllRewardScoresEntity.PrimaryKey, RewardScores> getRewardScores(final Collection<AllRewardScoresEntity.PrimaryKey> ids) {
+        final List<AllRewardScoresEntity> existingEntities = findAllRewardScoresEntities(ids);
+        if (lazyDecayEvaluator.isEnabled()) {
+            final Map<UUID, List<AllRewardScoresEntity>> entitiesByCourse = new HashMap<>();
+            for (final AllRewardScoresEntity entity : existingEntities) {
+                entitiesByCourse.computeIfAbsent(entity.getId().getCourseId(), courseId -> new ArrayList<>()).add(entity);
+            }
+            entitiesByCourse.forEach(this::applyPendingDecayOnRead);
+        }
+
+        final Map<AllRewardScoresEntity.PrimaryKey, RewardScores> rewardScoresById = new HashMap<>();
+        for (final AllRewardScoresEntity entity : existingEntities) {
+            rewardScoresById.put(entity.getId(), mapper.entityToDto(entity));
+        }
+
+        final Map<UUID, List<UUID>> missingUserIdsByCourse = new HashMap<>();
+        for (final AllRewardScoresEntity.PrimaryKey id : ids) {
+            if (!rewardScoresById.containsKey(id)) {
+                missingUserIdsByCourse.computeIfAbsent(id.getCourseId(), courseId -> new ArrayList<>()).add(id.getUserId());
+            }
+        }
+        missingUserIdsByCourse.forEach((courseId, userIds) -> {
+            for (final AllRewardScoresEntity entity : initializeRewardScores(courseId, userIds)) {
+                rewardScoresById.put(entity.getId(), mapper.entityToDto(entity));
+            }
+        });
+
+        return rewardScoresById;
+    }
+
+    /**
+     * Gets the reward scores of all users that have reward scores in a course.
+     * If the decay of health and fitness is evaluated lazily, the pending decay is applied to them first.
+     *
+     * @param courseId the id of the course
+     * @return the reward scores, in no particular order
+     */
+    public List<RewardScores> getRewardScoresOfCourse(final UUID courseId) {
+        final List<AllRewardScoresEntity> entities = rewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId);
+        applyPendingDecayOnRead(courseId, entities);
+        return entities.stream()
+                .map(mapper::entityToDto)
+                .toList();
+    }
+
+    /**
+     * Applies the pending decay of health and fitness to all reward scores of a course, if the decay is evaluated
+     * lazily, and updates their scoreboard entries. This is called before the scoreboard of the course is read,
+     * so that it does not rank the users by power scores from before the decay.
+     * Only the reward scores whose decay was evaluated before the last nightly recalculation are loaded,
+     * so after the first read following a nightly recalculation, this is a single query that returns no rows.
+     *
+     * @param courseId the id of the course
+     */
+    public void applyPendingDecayOfCourse(final UUID courseId) {
+        if (!lazyDecayEvaluator.isEnabled()) {
+            return;
+        }
+        final OffsetDateTime lastDecay = lazyDecayEvaluator.getLastDecayTime();
+        if (lastDecay == null) {
+            return;
+        }
+        applyPendingDecayOnRead(courseId,
+                rewardScoresRepository.findAllOfCourseWithDecayEvaluatedBefore(courseId, lastDecay));
     }
 
     /**
@@ -131,45 +409,173 @@ public class RewardService {
         return mapper.entityToDto(allRewardScoresEntity);
     }
 
+    /**
+     * Gets the log of a reward score, ordered by date descending.
+     * Only the log entries that are kept in detail are returned, see {@link #getRewardScoreLogPage} for the
+     * archived log entries.
+     *
+     * @param rewardScore the reward score
+     * @param pagination  the page of the log to return, or null to return the whole log
+     * @return the log entries
+     */
+    public List<RewardLogItem> getRewardScoreLog(final RewardScoreKey rewardScore, @Nullable final Pagination pagination) {
+        final Pageable pageable = pagination == null
+                ? Pageable.unpaged()
+                : PageRequest.of(pagination.getPage(), pagination.getSize());
+
+        return rewardScoreLogRepository.findLogOfRewardScore(
+                        rewardScore.getCourseId(), rewardScore.getUserId(), rewardScore.getScoreType(), pageable).stream()
+                .map(mapper::logEntryToDto)
+                .toList();
+    }
+
+    /**
+     * Gets a page of the log of a reward score, ordered by date descending.
+     * The log entries that are kept in detail are followed by the archived log entries, which summarize the older
+     * changes of a period and are dated at the start of the period, see {@link RewardScoreLogCompactor}.
+     * The archive always follows the detailed log, because only log entries older than the kept ones are archived.
+     *
+     * @param rewardScore the reward score
+     * @param filter      the filter for the log entries, or null to return all log entries
+     * @param first       the maximum number of log entries of the page, at most 100 entries are returned
+     * @param after       the cursor of the log entry after which the page starts, or null to start at the newest
+     * @return the page of log entries
+     */
+    public RewardLogConnection getRewardScoreLogPage(final RewardScoreKey rewardScore,
+                                                     @Nullable final RewardLogFilter filter,
+                                                     final int first,
+                                                     @Nullable final String after) {
+        final int pageSize = Math.min(first, MAX_LOG_PAGE_SIZE);
+        final Collection<RewardChangeReason> reasons = filter == null || filter.getReasons() == null
+                ? EnumSet.allOf(RewardChangeReason.class)
+                : filter.getReasons();
+        final DateTimeFilter dateFilter = filter == null ? null : filter.getDate();
+        final OffsetDateTime datesAfter = dateFilter == null || dateFilter.getAfter() == null
+                ? MIN_LOG_DATE
+                : dateFilter.getAfter();
+        final OffsetDateTime datesBefore = dateFilter == null || dateFilter.getBefore() == null
+                ? MAX_LOG_DATE
+                : dateFilter.getBefore();
+        final RewardLogCursor start = new RewardLogCursor(MAX_LOG_DATE, new UUID(0, 0), false);
+        final RewardLogCursor cursor = after == null ? start : RewardLogCursor.decode(after);
+
+        // fetch one more entry to know if there is a next page
+        final List<RewardScoreLogEntry> entries = cursor.isArchived()
+                ? List.of()
+                : rewardScoreLogRepository.findLogOfRewardScoreAfterCursor(
+                rewardScore.getCourseId(), rewardScore.getUserId(), rewardScore.getScoreType(), reasons, datesAfter, datesBefore, cursor.getDate(), cursor.getId(),
+                PageRequest.of(0, pageSize + 1));
+        final RewardLogCursor archiveCursor = cursor.isArchived() ? cursor : start;
+        final List<RewardScoreLogArchiveEntry> archiveEntries = entries.size() > pageSize
+                ? List.of()
+                : rewardScoreLogArchiveRepository.findArchiveOfRewardScoreAfterCursor(
+                rewardScore.getCourseId(), rewardScore.getUserId(), rewardScore.getScoreType(), reasons, datesAfter, datesBefore, archiveCursor.getDate(), archiveCursor.getId(),
+                PageRequest.of(0, pageSize - entries.size() + 1));
+
+        final boolean hasNext = entries.size() + archiveEntries.size() > pageSize;
+        final List<RewardLogItem> page = new ArrayList<>(pageSize);
+        RewardLogCursor endCursor = null;
+        for (final RewardScoreLogEntry entry : entries.subList(0, Math.min(entries.size(), pageSize))) {
+            page.add(mapper.logEntryToDto(entry));
+            endCursor = new RewardLogCursor(entry.getDate(), entry.getId(), false);
+        }
+        for (final RewardScoreLogArchiveEntry archiveEntry : archiveEntries.subList(0,
+                Math.min(archiveEntries.size(), pageSize - page.size()))) {
+            page.add(mapper.archiveEntryToDto(archiveEntry));
+            endCursor = new RewardLogCursor(archiveEntry.getPeriodStart(), archiveEntry.getId(), true);
+        }
+
+        return RewardLogConnection.builder()
+                .setElements(page)
+                .setEndCursor(endCursor == null ? null : endCursor.encode())
+                .setHasNext(hasNext)
+                .build();
+    }
+
     /**
      * Calculates the new reward scores for a given user and course when the user works on a content.
      *
      * @param event the event that triggered the calculation
-     * @return the new reward scores
+     * @return the new reward scores, or null if the event was ignored because its course was deleted
      */
+    @Nullable
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public RewardScores calculateScoresOnContentWorkedOn(final UserProgressUpdatedEvent event) {
-        final UUID courseId = event.getCourseId();
+        return calculateScoresOnContentsWorkedOn(List.of(event));
+    }
 
-        AllRewardScoresEntity allRewardScoresEntity = getAllRewardScoresEntity(courseId, event.getUserId());
+    /**
+     * Calculates the new reward scores for a user and course when the user worked on several contents.
+     * The events are applied in the given order, but the reward scores and the contents of the course are
+     * loaded only once and the new reward scores are saved only once.
+     * The calculation is repeated if it conflicts with a concurrent update of the reward scores.
+     * The events are ignored if their course was deleted and its reward data is being removed,
+     * see {@link CourseRewardDataRemover}, so that they do not create new reward data of the course.
+     *
+     * @param events the events that triggered the calculation, all of the same course and user
+     * @return the new reward scores, or null if the events were ignored because their course was deleted
+     */
+    @Nullable
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public RewardScores calculateScoresOnContentsWorkedOn(final List<UserProgressUpdatedEvent> events) {
+        final UUID courseId = events.get(0).getCourseId();
+        if (courseRewardDataRemover.isDeleted(courseId)) {
+            log.info("Ignoring {} user progress events of course {}, which was deleted", events.size(), courseId);
+            return null;
+        }
+        return conflictRetryTemplate.execute("calculating reward scores",
+                () -> calculateScoresOnContentsWorkedOnInTransaction(events));
+    }
 
+    private RewardScores calculateScoresOnContentsWorkedOnInTransaction(final List<UserProgressUpdatedEvent> events) {
+        final UUID courseId = events.get(0).getCourseId();
+        final UUID userId = events.get(0).getUserId();
+
+        final CourseSnapshot course;
+        AllRewardScoresEntity allRewardScoresEntity;
+        final boolean isNew;
+        final int oldPowerValue;
         try {
 
-            final List<Content> contents
-                    = contentServiceClient.queryContentsOfCourse(event.getUserId(), courseId);
+            // the contents are classified once for all events and calculators
+            course = CourseSnapshot.of(courseContentProvider.getContentsOfCourse(courseId, userId));
+            allRewardScoresEntity = findOrCreateRewardScores(courseId, userId, course);
+            isNew = allRewardScoresEntity.getVersion() == null;
+            oldPowerValue = allRewardScoresEntity.getPower().getValue();
+            // the decay since the last evaluation is applied before the progress of the events
+            lazyDecayEvaluator.applyPendingDecay(allRewardScoresEntity, course.getContents());
 
-            calculateNewScoresOnContentWorkedOn(event, allRewardScoresEntity, contents);
+            for (final UserProgressUpdatedEvent event : events) {
+                calculateNewScoresOnContentWorkedOn(event, allRewardScoresEntity, course);
+            }
+            recalculationPlanner.planNextRecalculation(allRewardScoresEntity, course);
+            // the events changed the progress, so the next recalculation must not be skipped
+            allRewardScoresEntity.setInputFingerprint(null);
         } catch (final Exception e) {
             throw new RewardScoreCalculationException("Error while calculating fitness score", e);
         }
 
-        allRewardScoresEntity = rewardScoresRepository.save(allRewardScoresEntity);
+        allRewardScoresEntity = saveRewardScores(allRewardScoresEntity);
+        if (isNew || allRewardScoresEntity.getPower().getValue() != oldPowerValue) {
+            scoreboardService.updateEntry(allRewardScoresEntity);
+        }
 
         return mapper.entityToDto(allRewardScoresEntity);
     }
 
     private void calculateNewScoresOnContentWorkedOn(final UserProgressUpdatedEvent event,
                                                      final AllRewardScoresEntity allRewardScoresEntity,
-                                                     final List<Content> contents) {
+                                                     final CourseSnapshot course) {
         allRewardScoresEntity.setHealth(healthScoreCalculator
-                .calculateOnContentWorkedOn(allRewardScoresEntity, contents, event));
+                .calculateOnContentWorkedOn(allRewardScoresEntity, course, event));
         allRewardScoresEntity.setFitness(fitnessScoreCalculator
-                .calculateOnContentWorkedOn(allRewardScoresEntity, contents, event));
+                .calculateOnContentWorkedOn(allRewardScoresEntity, course, event));
         allRewardScoresEntity.setStrength(strengthScoreCalculator
-                .calculateOnContentWorkedOn(allRewardScoresEntity, contents, event));
+                .calculateOnContentWorkedOn(allRewardScoresEntity, course, event));
         allRewardScoresEntity.setGrowth(growthScoreCalculator
-                .calculateOnContentWorkedOn(allRewardScoresEntity, contents, event));
+                .calculateOnContentWorkedOn(allRewardScoresEntity, course, event));
         allRewardScoresEntity.setPower(powerScoreCalculator
-                .calculateOnContentWorkedOn(allRewardScoresEntity, contents, event));
+                .calculateOnContentWorkedOn(allRewardScoresEntity, course, event));
     }
 
     /**
@@ -181,15 +587,88 @@ public class RewardService {
      * @return the initialized entity
      */
     public AllRewardScoresEntity initializeRewardScores(final UUID courseId, final UUID userId) {
+        final AllRewardScoresEntity allRewardScores = createInitialRewardScores(courseId, userId);
+
+        initializeHealth(courseId, userId, allRewardScores);
+        final AllRewardScoresEntity result = saveRewardScores(allRewardScores);
+        scoreboardService.updateEntry(result);
+        return result;
+    }
+
+    /**
+     * Initializes new {@link AllRewardScoresEntity}s for several users of a course.
+     * The contents of the course are fetched once for all users.
+     *
+     * @param courseId the id of the course
+     * @param userIds  the ids of the users
+     * @return the initialized entities
+     */
+    private List<AllRewardScoresEntity> initializeRewardScores(final UUID courseId, final List<UUID> userIds) {
+        Map<UUID, List<Content>> contentsByUser;
+        try {
+            contentsByUser = courseContentProvider.getContentsOfCourseForUsers(courseId, userIds);
+        } catch (final Exception e) {
+            // fall back to the default health value for all users
+            contentsByUser = Map.of();
+            log.error("An error occurred while initializing reward scores:", e);
+        }
+
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(userIds.size());
+        for (final UUID userId : userIds) {
+            final AllRewardScoresEntity allRewardScores = createInitialRewardScores(courseId, userId);
+            final List<Content> contents = contentsByUser.get(userId);
+            if (contents != null) {
+                allRewardScores.setHealth(initializeRewardScoreEntity(
+                        healthScoreCalculator.calculateInitialHealthValueForNewEntity(contents)));
+            }
+            entities.add(allRewardScores);
+        }
+
+        final List<AllRewardScoresEntity> result = saveAllRewardScores(entities);
+        scoreboardService.updateEntries(result);
+        return result;
+    }
+
+    /**
+     * Loads the reward scores of a user or, if the user has none yet, creates new reward scores with the default
+     * values, which are not saved yet.
+     * The initial health score is calculated from the given contents, so that a new user's first event fetches the
+     * contents only once and the new reward scores are inserted only once, together with the calculated scores.
+     *
+     * @param courseId the id of the course
+     * @param userId   the id of the user
+     * @param course   the classified contents of the course with the progress data of the user
+     * @return the existing or new reward scores
+     */
+    private AllRewardScoresEntity findOrCreateRewardScores(final UUID courseId,
+                                                           final UUID userId,
+                                                           final CourseSnapshot course) {
+        return rewardScoresRepository.findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId))
+                .orElseGet(() -> {
+                    final AllRewardScoresEntity allRewardScores = createInitialRewardScores(courseId, userId);
+                    allRewardScores.setHealth(initializeRewardScoreEntity(
+                            healthScoreCalculator.calculateInitialHealthValueForNewEntity(course)));
+                    return allRewardScores;
+                });
+    }
+
+    /**
+     * Creates reward scores with the default values, which are not saved yet.
+     * If the decay is evaluated lazily, the new reward scores start decaying from now on.
+     */
+    private AllRewardScoresEntity createInitialRewardScores(final UUID courseId, final UUID userId) {
         final AllRewardScoresEntity allRewardScores = new AllRewardScoresEntity();
         allRewardScores.setId(new AllRewardScoresEntity.PrimaryKey(courseId, userId));
+        if (lazyDecayEvaluator.isEnabled()) {
+            allRewardScores.setDecayEvaluatedAt(OffsetDateTime.now());
+        }
 
-        initializeHealth(courseId, userId, allRewardScores);
+        allRewardScores.setHealth(initializeRewardScoreEntity(INITIAL_RELATIVE_REWARD_SCORE));
         allRewardScores.setStrength(initializeRewardScoreEntity(INITIAL_ABSOLUTE_REWARD_SCORE));
         allRewardScores.setFitness(initializeRewardScoreEntity(INITIAL_RELATIVE_REWARD_SCORE));
         allRewardScores.setGrowth(initializeRewardScoreEntity(INITIAL_ABSOLUTE_REWARD_SCORE));
         allRewardScores.setPower(initializeRewardScoreEntity(INITIAL_ABSOLUTE_REWARD_SCORE));
-        return rewardScoresRepository.save(allRewardScores);
+        return allRewardScores;
     }
 
     /**
@@ -202,7 +681,7 @@ public class RewardService {
      */
     private void initializeHealth(final UUID courseId, final UUID userId, final AllRewardScoresEntity allRewardScoresEntity) {
         try {
-            final List<Content> contents = contentServiceClient.queryContentsOfCourse(userId, courseId);
+            final List<Content> contents = courseContentProvider.getContentsOfCourse(courseId, userId);
             // Calculate the initial health value for the new entity
             final int initialHealthValue = healthScoreCalculator.calculateInitialHealthValueForNewEntity(contents);
             allRewardScoresEntity.setHealth(initializeRewardScoreEntity(initialHealthValue));
@@ -229,29 +708,12 @@ public class RewardService {
 
 
     /**
-     * Returns the scoreboard for a specific course. Sorted by power from highest to lowest.
-     *
-     * @param courseId of the course for which the scoreboard should be retrieved
-     * @return scoreboard
-     */
-    public List<ScoreboardItem> getScoreboard(final UUID courseId) {
-        final List<AllRewardScoresEntity> rewardScoresOfCourse = rewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId);
-
-        return rewardScoresOfCourse.stream()
-                .map(RewardService::createScoreboardItemFromRewardScores)
-                // sort by power score from highest to lowest
-                .sorted(comparing(ScoreboardItem::getPowerScore).reversed())
-                .toList();
-    }
-
-    private static ScoreboardItem createScoreboardItemFromRewardScores(final AllRewardScoresEntity rewardScoreEntity) {
-        return new ScoreboardItem(rewardScoreEntity.getId().getUserId(), rewardScoreEntity.getPower().getValue());
-    }
-
-
-    /**
-     * Method that receives Course Change Event and handles DELETE events.
-     * All reward data is then deleted that is connected to deleted course
+     * Method that receives Course Change Event and handles DELETE and UPDATE events.
+     * On DELETE, all reward data is then deleted that is connected to deleted course.
+     * The data is deleted in the background by the {@link CourseRewardDataRemover}.
+     * On UPDATE, e.g., because contents were added or their dates changed, the reward scores of the course are
+     * recalculated in the next nightly recalculation, instead of when their planned recalculation is due,
+     * see {@link RecalculationPlanner}.
      *
      * @param changeEvent a Course Change Event received over dapr
      * @throws IncompleteEventMessageException if the received message is incomplete
@@ -262,13 +724,16 @@ public class RewardService {
         if (changeEvent.getCourseId() == null || changeEvent.getOperation() == null) {
             throw new IncompleteEventMessageException("Incomplete message received: all fields of a message must be non-null");
         }
-        // only consider DELETE events
+        if (changeEvent.getOperation() == CrudOperation.UPDATE) {
+            final int updated = rewardScoresRepository.clearNextRecalculationAtOfCourse(changeEvent.getCourseId());
+            log.info("Course {} changed, {} reward scores are recalculated in the next nightly recalculation",
+                    changeEvent.getCourseId(), updated);
+            return;
+        }
         if (changeEvent.getOperation() != CrudOperation.DELETE) {
             return;
         }
 
-        final List<AllRewardScoresEntity> entitiesToBeDeleted = rewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(changeEvent.getCourseId());
-
-        rewardScoresRepository.deleteAll(entitiesToBeDeleted);
+        courseRewardDataRemover.removeCourse(changeEvent.getCourseId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recalculates the reward scores of all users in all courses whose reward scores can have changed.
+ * <p>
+ * Only reward scores whose planned time of the next recalculation has passed are recalculated,
+ * see {@link RecalculationPlanner}, so the work depends on the number of users with due contents instead of
+ * the number of all users.
+ * The ids of the reward scores are read page by page using keyset pagination.
+ * Because the ids are ordered by course, each page is grouped by course and split into chunks of users of the same
+ * course, which are processed in parallel on a bounded thread pool.
+ * For each chunk, the contents of the course are fetched first, once for all users of the chunk, so that no database
+ * transaction is open during the calls to the content service.
+ * Afterwards, the whole chunk is recalculated and saved in one transaction.
+ */
+@Component
+@Slf4j
+public class ScoreRecalculationEngine {
+
+    private final AllRewardScoresRepository rewardScoresRepository;
+    private final RewardService rewardService;
+    private final CourseContentProvider courseContentProvider;
+
+    /**
+     * The number of reward scores that are recalculated and saved in one transaction.
+     */
+    private final int chunkSize;
+
+    /**
+     * The number of chunks that are processed in parallel.
+     */
+    private final int parallelism;
+
+    private final Counter recalculatedCounter;
+    private final Counter failedCounter;
+    private final Timer durationTimer;
+
+    /**
+     * The number of reward scores processed in the current or last run, exposed as a gauge.
+     */
+    private final AtomicLong processedInCurrentRun = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkSize   the number of reward scores that are recalculated and saved in one transaction
+     * @param parallelism the number of chunks that are processed in parallel.
+     *                    If this is not positive, the number of available processors is used.
+     */
+    @Autowired
+    public ScoreRecalculationEngine(final AllRewardScoresRepository rewardScoresRepository,
+                                    final RewardService rewardService,
+                                    final CourseContentProvider courseContentProvider,
+                                    final MeterRegistry meterRegistry,
+                                    @Value("${reward.recalculation.chunk_size}") final int chunkSize,
+                                    @Value("${reward.recalculation.parallelism}") final int parallelism) {
+        this.rewardScoresRepository = rewardScoresRepository;
+        this.rewardService = rewardService;
+        this.courseContentProvider = courseContentProvider;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("Creating ScoreRecalculationEngine with chunkSize={}, parallelism={}", this.chunkSize, this.parallelism);
+
+        recalculatedCounter = Counter.builder("reward.recalculation.entries")
+                .description("Number of reward scores processed by the nightly recalculation")
+                .tag("result", "success")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("reward.recalculation.entries")
+                .description("Number of reward scores processed by the nightly recalculation")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        durationTimer = Timer.builder("reward.recalculation.duration")
+                .description("Duration of the nightly recalculation of all reward scores")
+                .register(meterRegistry);
+        Gauge.builder("reward.recalculation.progress", processedInCurrentRun, AtomicLong::get)
+                .description("Number of reward scores processed in the current or last recalculation run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Recalculates the reward scores for all users and courses that are due for recalculation.
+     * <p>
+     * By default, this method is called every day at 03:00.
+     * This can be changed in the application.properties file.
+     */
+    @Scheduled(cron = "${reward.recalculation.cron}")
+    public void recalculateAllScores() {
+        final long start = System.nanoTime();
+        final OffsetDateTime dueAt = OffsetDateTime.now();
+        processedInCurrentRun.set(0);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            final int pageSize = chunkSize * parallelism;
+            List<AllRewardScoresEntity.PrimaryKey> page = rewardScoresRepository.findFirstDueIds(dueAt, PageRequest.of(0, pageSize));
+
+            while (!page.isEmpty()) {
+                recalculatePage(page, executor);
+
+                final AllRewardScoresEntity.PrimaryKey last = page.get(page.size() - 1);
+                page = rewardScoresRepository.findDueIdsAfter(last.getCourseId(), last.getUserId(), dueAt,
+                        PageRequest.of(0, pageSize));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        durationTimer.record(duration);
+
+        final long processed = processedInCurrentRun.get();
+        log.info("Recalculated reward scores for {} due users in {} ms ({} users/s)",
+                processed, duration.toMillis(), getThroughput(processed, duration));
+    }
+
+    /**
+     * Splits the page into chunks of users of the same course and recalculates them in parallel.
+     * Returns when all chunks of the page are processed.
+     */
+    private void recalculatePage(final List<AllRewardScoresEntity.PrimaryKey> page, final ExecutorService executor) {
+        final Map<UUID, List<UUID>> userIdsByCourse = new LinkedHashMap<>();
+        for (final AllRewardScoresEntity.PrimaryKey id : page) {
+            userIdsByCourse.computeIfAbsent(id.getCourseId(), courseId -> new ArrayList<>()).add(id.getUserId());
+        }
+
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        userIdsByCourse.forEach((courseId, userIds) -> {
+            for (int i = 0; i < userIds.size(); i += chunkSize) {
+                final List<UUID> chunk = userIds.subList(i, Math.min(i + chunkSize, userIds.size()));
+                futures.add(CompletableFuture.runAsync(() -> recalculateChunk(courseId, chunk), executor));
+            }
+        });
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void recalculateChunk(final UUID courseId, final List<UUID> userIds) {
+        final Map<AllRewardScoresEntity.PrimaryKey, List<Content>> contentsById = new HashMap<>();
+
+        try {
+            courseContentProvider.getContentsOfCourseForUsers(courseId, userIds).forEach((userId, contents) ->
+                    contentsById.put(new AllRewardScoresEntity.PrimaryKey(courseId, userId), contents));
+        } catch (final Exception e) {
+            log.error("Could not fetch contents of course {} for {} users", courseId, userIds.size(), e);
+        }
+
+        int recalculated = 0;
+        try {
+            recalculated = rewardService.recalculateScores(contentsById);
+        } catch (final Exception e) {
+            log.error("Could not save the recalculated reward scores of {} users", contentsById.size(), e);
+        }
+
+        recalculatedCounter.increment(recalculated);
+        failedCounter.increment((double) userIds.size() - recalculated);
+        processedInCurrentRun.addAndGet(userIds.size());
+    }
+
+    private static long getThroughput(final long processed, final Duration duration) {
+        final long millis = Math.max(1, duration.toMillis());
+        return processed * 1000 / millis;
+    }
+}
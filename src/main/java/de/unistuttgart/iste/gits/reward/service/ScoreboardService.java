@@ -0,0 +1,147 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.RankedScoreboardItem;
+import de.unistuttgart.iste.gits.generated.dto.ScoreboardItem;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.ScoreboardEntryEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.ScoreboardEntryRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Maintains the materialized scoreboard of the courses.
+ * The scoreboard stores the power score of each user in a separate table, so that the scoreboard can be read
+ * without loading the reward scores of all users of a course.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class ScoreboardService {
+
+    private final ScoreboardEntryRepository scoreboardEntryRepository;
+
+    /**
+     * Returns the scoreboard for a specific course. Sorted by power from highest to lowest.
+     *
+     * @param courseId of the course for which the scoreboard should be retrieved
+     * @return scoreboard
+     */
+    public List<ScoreboardItem> getScoreboard(final UUID courseId) {
+        return scoreboardEntryRepository.findScoreboardOfCourse(courseId).stream()
+                .map(ScoreboardService::createScoreboardItem)
+                .toList();
+    }
+
+    /**
+     * Returns the users with the highest power scores in a course.
+     *
+     * @param courseId the id of the course
+     * @param limit    the maximum number of users to return
+     * @return the ranked scoreboard items, ordered by rank
+     */
+    public List<RankedScoreboardItem> getTop(final UUID courseId, final int limit) {
+        final List<ScoreboardEntryEntity> entries
+                = scoreboardEntryRepository.findScoreboardOfCourse(courseId, PageRequest.of(0, limit));
+
+        final List<RankedScoreboardItem> result = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            result.add(createRankedScoreboardItem(entries.get(i), i + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scoreboard item of a user together with the items ranked directly above and below it.
+     * The rank of the user is determined by counting the entries ranked above it, using the index on
+     * course id and power score; the surrounding items are read with keyset queries limited to the window.
+     *
+     * @param courseId the id of the course
+     * @param userId   the id of the user
+     * @param window   the maximum number of items above and below the user to return
+     * @return the ranked scoreboard items, ordered by rank,
+     * or an empty list if the user has no scoreboard entry in the course
+     */
+    public List<RankedScoreboardItem> getRankWindow(final UUID courseId, final UUID userId, final int window) {
+        final Optional<ScoreboardEntryEntity> entryOfUser
+                = scoreboardEntryRepository.findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId));
+        if (entryOfUser.isEmpty()) {
+            return List.of();
+        }
+
+        final int powerScore = entryOfUser.get().getPowerScore();
+        final int rankOfUser = (int) scoreboardEntryRepository.countRankedAbove(courseId, powerScore, userId) + 1;
+
+        final List<RankedScoreboardItem> result = new ArrayList<>(2 * window + 1);
+        if (window > 0) {
+            final List<ScoreboardEntryEntity> above = scoreboardEntryRepository
+                    .findRankedAbove(courseId, powerScore, userId, PageRequest.of(0, window));
+            for (int i = above.size() - 1; i >= 0; i--) {
+                result.add(createRankedScoreboardItem(above.get(i), rankOfUser - i - 1));
+            }
+        }
+
+        result.add(createRankedScoreboardItem(entryOfUser.get(), rankOfUser));
+
+        if (window > 0) {
+            final List<ScoreboardEntryEntity> below = scoreboardEntryRepository
+                    .findRankedBelow(courseId, powerScore, userId, PageRequest.of(0, window));
+            for (int i = 0; i < below.size(); i++) {
+                result.add(createRankedScoreboardItem(below.get(i), rankOfUser + i + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the scoreboard entry of a user with the current power score of the user.
+     *
+     * @param rewardScores the reward scores of the user
+     */
+    public void updateEntry(final AllRewardScoresEntity rewardScores) {
+        scoreboardEntryRepository.save(createEntry(rewardScores));
+    }
+
+    /**
+     * Updates the scoreboard entries of several users with their current power scores.
+     *
+     * @param rewardScores the reward scores of the users
+     */
+    public void updateEntries(final Collection<AllRewardScoresEntity> rewardScores) {
+        scoreboardEntryRepository.saveAll(rewardScores.stream()
+                .map(ScoreboardService::createEntry)
+                .toList());
+    }
+
+    /**
+     * Creates the missing scoreboard entries when the application has started, after Hibernate created the
+     * scoreboard table. Reward scores that were created before the scoreboard was materialized get an entry with
+     * their current power score.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void addMissingEntries() {
+        final int added = scoreboardEntryRepository.insertMissingEntries();
+        if (added > 0) {
+            log.info("Added {} missing scoreboard entries", added);
+        }
+    }
+
+    private static ScoreboardEntryEntity createEntry(final AllRewardScoresEntity rewardScores) {
+        return new ScoreboardEntryEntity(rewardScores.getId(), rewardScores.getPower().getValue());
+    }
+
+    private static ScoreboardItem createScoreboardItem(final ScoreboardEntryEntity entry) {
+        return new ScoreboardItem(entry.getId().getUserId(), entry.getPowerScore());
+    }
+
+    private static RankedScoreboardItem createRankedScoreboardItem(final ScoreboardEntryEntity entry, final int rank) {
+        return new RankedScoreboardItem(rank, entry.getId().getUserId(), entry.getPowerScore());
+    }
+}
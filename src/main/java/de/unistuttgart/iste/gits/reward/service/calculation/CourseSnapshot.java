@@ -0,0 +1,257 @@
+package de.unistuttgart.iste.gits.reward.service.calculation;
+
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.generated.dto.ContentMetadata;
+import de.unistuttgart.iste.gits.generated.dto.ProgressLogItem;
+import de.unistuttgart.iste.gits.generated.dto.UserProgressData;
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * The contents of a course with the progress data of a user, classified for the score calculators.
+ * <p>
+ * The contents are classified in a single pass when the snapshot is created, so that a calculation pass over all
+ * reward scores of a user scans the contents only once, instead of once per calculator.
+ * Missing progress data or metadata is treated like an unlearned content without suggested date and reward points.
+ */
+@Getter
+public class CourseSnapshot {
+
+    /**
+     * All contents of the course.
+     */
+    private final List<Content> contents;
+
+    /**
+     * The time the snapshot was created, which is used as the current time for the classification.
+     */
+    private final OffsetDateTime now;
+
+    /**
+     * The contents that were never learned and whose suggested date has passed.
+     */
+    private final List<Content> dueContentsThatWereNeverWorked;
+
+    /**
+     * The contents that are due for review.
+     */
+    private final List<Content> contentsDueForReview;
+
+    /**
+     * The ids of all learned contents, in the order of the contents.
+     */
+    private final List<UUID> learnedContentIds;
+
+    /**
+     * The sum of the reward points of all learned contents.
+     */
+    private final int learnedRewardPoints;
+
+    /**
+     * The sum of the reward points of all contents.
+     */
+    private final int totalRewardPoints;
+
+    /**
+     * The earliest suggested date of an unlearned content or next learn date of a learned content that has not
+     * passed yet, i.e., the next time at which a content becomes due. Null if no content becomes due anymore.
+     */
+    @Nullable
+    private final OffsetDateTime nextDueDate;
+
+    /**
+     * A hash of everything in the contents that the score calculators use: the ids, reward points, dates, learned and
+     * due flags and the latest progress of the user, together with the classification of the contents.
+     * The hash does not depend on the order of the contents. Snapshots with the same fingerprint lead to the same
+     * recalculation unless health or fitness decay, which also depends on the current time.
+     */
+    private final long fingerprint;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<UUID, Content> contentsById;
+
+    /**
+     * Classifies the given contents.
+     *
+     * @param contents the contents of the course with the progress data of the user
+     * @param now      the current time
+     */
+    public CourseSnapshot(final List<Content> contents, final OffsetDateTime now) {
+        this(contents, now, false);
+    }
+
+    private CourseSnapshot(final List<Content> contents, final OffsetDateTime now, final boolean reviewDueByDate) {
+        this.contents = contents;
+        this.now = now;
+
+        final List<Content> dueNeverWorked = new ArrayList<>();
+        final List<Content> dueForReview = new ArrayList<>();
+        final List<UUID> learnedIds = new ArrayList<>();
+        final Map<UUID, Content> byId = new HashMap<>(contents.size() * 4 / 3 + 1);
+        int learnedPoints = 0;
+        int totalPoints = 0;
+        OffsetDateTime nextDue = null;
+        long contentsHash = 0;
+
+        for (final Content content : contents) {
+            byId.put(content.getId(), content);
+            final int rewardPoints = getRewardPoints(content);
+            totalPoints += rewardPoints;
+
+            final boolean learned = isLearned(content);
+            final boolean isDueNeverWorked = !learned && isSuggestedDatePassed(content, now);
+            final boolean isDueForReview = reviewDueByDate ? isNextLearnDatePassed(content, now) : isDueForReview(content);
+            if (learned) {
+                learnedIds.add(content.getId());
+                learnedPoints += rewardPoints;
+            } else if (isDueNeverWorked) {
+                dueNeverWorked.add(content);
+            }
+            if (isDueForReview) {
+                dueForReview.add(content);
+            }
+            // summing keeps the fingerprint independent of the order of the contents
+            contentsHash += mix(hashInputs(content, isDueNeverWorked, isDueForReview));
+            nextDue = earliestFutureDate(nextDue, getUpcomingDueDate(content), now);
+        }
+
+        this.dueContentsThatWereNeverWorked = Collections.unmodifiableList(dueNeverWorked);
+        this.contentsDueForReview = Collections.unmodifiableList(dueForReview);
+        this.contentsById = byId;
+        this.learnedContentIds = Collections.unmodifiableList(learnedIds);
+        this.learnedRewardPoints = learnedPoints;
+        this.totalRewardPoints = totalPoints;
+        this.nextDueDate = nextDue;
+        this.fingerprint = mix(contentsHash + contents.size());
+    }
+
+    /**
+     * Classifies the given contents, using the current time.
+     *
+     * @param contents the contents of the course with the progress data of the user
+     * @return the snapshot
+     */
+    public static CourseSnapshot of(final List<Content> contents) {
+        return new CourseSnapshot(contents, OffsetDateTime.now());
+    }
+
+    /**
+     * Classifies the given contents as they were at an earlier time, assuming that the progress data of the user
+     * did not change since then.
+     * The review flag of the progress data only describes the present, so contents are due for review at the given
+     * time if they are learned and their next learn date has passed.
+     *
+     * @param contents the contents of the course with the progress data of the user
+     * @param time     the earlier time
+     * @return the snapshot
+     */
+    public static CourseSnapshot asOf(final List<Content> contents, final OffsetDateTime time) {
+        return new CourseSnapshot(contents, time, true);
+    }
+
+    /**
+     * Returns the content with the given id.
+     *
+     * @param contentId the id of the content
+     * @return the content, or empty if the course does not contain a content with the id
+     */
+    public Optional<Content> getContent(final UUID contentId) {
+        return Optional.ofNullable(contentsById.get(contentId));
+    }
+
+    /**
+     * Returns whether the content with the given id is one of the {@link #getDueContentsThatWereNeverWorked()}.
+     *
+     * @param contentId the id of the content
+     * @return true if the content was never learned and is due
+     */
+    public boolean isDueAndNeverWorked(final UUID contentId) {
+        final Content content = contentsById.get(contentId);
+        return content != null && !isLearned(content) && isSuggestedDatePassed(content, now);
+    }
+
+    static boolean isLearned(final Content content) {
+        final UserProgressData progressData = content.getUserProgressData();
+        return progressData != null && Boolean.TRUE.equals(progressData.getIsLearned());
+    }
+
+    static boolean isDueForReview(final Content content) {
+        final UserProgressData progressData = content.getUserProgressData();
+        return progressData != null && Boolean.TRUE.equals(progressData.getIsDueForReview());
+    }
+
+    private static boolean isSuggestedDatePassed(final Content content, final OffsetDateTime now) {
+        final ContentMetadata metadata = content.getMetadata();
+        return metadata != null && metadata.getSuggestedDate() != null && metadata.getSuggestedDate().isBefore(now);
+    }
+
+    private static boolean isNextLearnDatePassed(final Content content, final OffsetDateTime now) {
+        final UserProgressData progressData = content.getUserProgressData();
+        return isLearned(content) && progressData.getNextLearnDate() != null
+               && !progressData.getNextLearnDate().isAfter(now);
+    }
+
+    /**
+     * Returns the date at which the content becomes due for learning or, if it is learned, for review.
+     */
+    @Nullable
+    private static OffsetDateTime getUpcomingDueDate(final Content content) {
+        if (isLearned(content)) {
+            return content.getUserProgressData().getNextLearnDate();
+        }
+        final ContentMetadata metadata = content.getMetadata();
+        return metadata == null ? null : metadata.getSuggestedDate();
+    }
+
+    @Nullable
+    private static OffsetDateTime earliestFutureDate(@Nullable final OffsetDateTime earliest,
+                                                     @Nullable final OffsetDateTime date,
+                                                     final OffsetDateTime now) {
+        if (date == null || !date.isAfter(now)) {
+            return earliest;
+        }
+        return earliest == null || date.isBefore(earliest) ? date : earliest;
+    }
+
+    /**
+     * Hashes the data of a content that the score calculators use. Only values with a hash code that is the same in
+     * every JVM are used, so that fingerprints that were saved stay valid after a restart.
+     */
+    private static int hashInputs(final Content content, final boolean isDueNeverWorked, final boolean isDueForReview) {
+        final ContentMetadata metadata = content.getMetadata();
+        final UserProgressData progressData = content.getUserProgressData();
+        final List<ProgressLogItem> log = progressData == null ? null : progressData.getLog();
+        final ProgressLogItem latestProgress = log == null || log.isEmpty() ? null : log.get(0);
+
+        return Objects.hash(
+                content.getId(),
+                getRewardPoints(content),
+                metadata == null ? null : metadata.getSuggestedDate(),
+                isLearned(content),
+                progressData == null ? null : progressData.getNextLearnDate(),
+                log == null ? 0 : log.size(),
+                latestProgress == null ? null : latestProgress.getCorrectness(),
+                latestProgress == null ? null : latestProgress.getTimestamp(),
+                isDueNeverWorked,
+                isDueForReview);
+    }
+
+    /**
+     * Spreads the bits of a hash over a long value (the finalizer of SplitMix64), so that the sum of the hashes of
+     * several contents rarely collides.
+     */
+    private static long mix(final long hash) {
+        long z = hash + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static int getRewardPoints(final Content content) {
+        final ContentMetadata metadata = content.getMetadata();
+        return metadata == null ? 0 : Objects.requireNonNullElse(metadata.getRewardPoints(), 0);
+    }
+}
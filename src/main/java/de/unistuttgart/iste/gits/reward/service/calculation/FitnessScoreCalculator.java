@@ -55,14 +55,14 @@ public class FitnessScoreCalculator implements ScoreCalculator {
     }
 
     @Override
-    public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores, final List<Content> contents) {
+    public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
         log.debug("Recalculating fitness score");
 
         final RewardScoreEntity fitnessEntity = allRewardScores.getFitness();
         final int oldScore = fitnessEntity.getValue();
         log.debug("Old fitness score: {}", oldScore);
 
-        final double fitnessDecrease = calculateFitnessDecrease(contents);
+        final double fitnessDecrease = calculateFitnessDecrease(course.getContentsDueForReview(), course.getNow());
         final double newFitnessScore = Math.max(FITNESS_MIN, oldScore - fitnessDecrease);
         final int newFitnessRounded = (int) Math.round(newFitnessScore);
         log.debug("New fitness score: {}", newFitnessRounded);
@@ -72,7 +72,8 @@ public class FitnessScoreCalculator implements ScoreCalculator {
             return fitnessEntity;
         }
 
-        final RewardScoreLogEntry logEntry = createLogEntryOnRecalculation(oldScore, newFitnessRounded, contents);
+        final RewardScoreLogEntry logEntry = createLogEntryOnRecalculation(course.getNow(), oldScore, newFitnessRounded,
+                course.getContents());
 
         fitnessEntity.setValue(newFitnessRounded);
         fitnessEntity.getLog().add(logEntry);
@@ -82,15 +83,15 @@ public class FitnessScoreCalculator implements ScoreCalculator {
 
     @Override
     public RewardScoreEntity calculateOnContentWorkedOn(final AllRewardScoresEntity allRewardScores,
-                                                        final List<Content> contents,
+                                                        final CourseSnapshot course,
                                                         final UserProgressUpdatedEvent event) {
         log.debug("Calculating fitness score");
 
         final RewardScoreEntity fitnessEntity = allRewardScores.getFitness();
         final int oldScore = fitnessEntity.getValue();
 
-        final Content content = getContentOfEvent(contents, event);
-        final List<Content> contentsDueForReview = getContentsToRepeat(contents);
+        final Content content = course.getContent(event.getContentId()).orElseThrow();
+        final List<Content> contentsDueForReview = course.getContentsDueForReview();
         log.debug("Contents to repeat: {}", contentsDueForReview);
 
         final Optional<ProgressLogItem> latestReview = getLatestReviewExcludingTriggerOfEvent(content);
@@ -153,11 +154,12 @@ public class FitnessScoreCalculator implements ScoreCalculator {
     }
 
 
-    private RewardScoreLogEntry createLogEntryOnRecalculation(final int oldScore,
+    private RewardScoreLogEntry createLogEntryOnRecalculation(final OffsetDateTime today,
+                                                              final int oldScore,
                                                               final int newFitness,
                                                               final List<Content> contents) {
         return RewardScoreLogEntry.builder()
-                .date(OffsetDateTime.now())
+                .date(today)
                 .difference(newFitness - oldScore)
                 .oldValue(oldScore)
                 .newValue(newFitness)
@@ -171,13 +173,6 @@ public class FitnessScoreCalculator implements ScoreCalculator {
         return contents.stream().map(Content::getId).toList();
     }
 
-    private Content getContentOfEvent(final List<Content> contents, final UserProgressUpdatedEvent event) {
-        return contents.stream()
-                .filter(content -> content.getId().equals(event.getContentId()))
-                .findFirst()
-                .orElseThrow();
-    }
-
     private boolean wasAlreadyLearnedToday(final ProgressLogItem lastReview) {
         final OffsetDateTime lastReviewDate = lastReview.getTimestamp().truncatedTo(ChronoUnit.DAYS);
         final OffsetDateTime today = OffsetDateTime.now().truncatedTo(ChronoUnit.DAYS);
@@ -186,12 +181,15 @@ public class FitnessScoreCalculator implements ScoreCalculator {
         return lastReviewDate.equals(today);
     }
 
-    private double calculateFitnessDecrease(final List<Content> contents) {
+    /**
+     * Calculates the fitness decrease caused by the given contents that are due for review on the given day.
+     */
+    private double calculateFitnessDecrease(final List<Content> contentsDueForReview, final OffsetDateTime today) {
         double fitnessDecrease = 0.0;
 
-        for (final Content content : contents) {
-            if (isDueForRepetition(content) && isNotNew(content)) {
-                final int daysOverdue = calculateDaysOverdue(content);
+        for (final Content content : contentsDueForReview) {
+            if (isNotNew(content)) {
+                final int daysOverdue = calculateDaysOverdue(content, today);
                 final double correctness = calculateCorrectnessModifier(getLatestReview(content));
                 final double decreasePerDay = 1 + (fitnessModifierPerDay * daysOverdue * (1 - correctness));
                 fitnessDecrease += decreasePerDay;
@@ -209,14 +207,7 @@ public class FitnessScoreCalculator implements ScoreCalculator {
         return content.getUserProgressData().getIsLearned();
     }
 
-    private List<Content> getContentsToRepeat(final List<Content> contents) {
-        return contents.stream()
-                .filter(this::isDueForRepetition)
-                .toList();
-    }
-
-    private int calculateDaysOverdue(final Content content) {
-        final OffsetDateTime today = OffsetDateTime.now();
+    private int calculateDaysOverdue(final Content content, final OffsetDateTime today) {
         final OffsetDateTime repetitionDate = content.getUserProgressData().getNextLearnDate();
 
         final long daysBetween = Duration.between(today, repetitionDate).abs().toDays();
@@ -1,75 +1,140 @@
 package de.unistuttgart.iste.gits.reward.service.calculation;
 
 import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
-import de.unistuttgart.iste.gits.generated.dto.Content;
-import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.generated.dto.*;
 import de.unistuttgart.iste.gits.reward.persistence.entity.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Calculates the growth score of a user, according the concept documented
  * <a href="https://gits-enpro.readthedocs.io/en/latest/dev-manuals/gamification/Scoring%20System.html#growth">here</a>.
+ * <p>
+ * The growth score is the sum of the reward points of all contents the user has learned.
+ * It is maintained incrementally: the reward scores store the ids of the contents whose reward points are included,
+ * see {@link AllRewardScoresEntity#getLearnedContentIds()}. When a content changes from not learned to learned,
+ * its reward points are added and its id is stored, without summing up the reward points of all other contents.
+ * An event of a content whose id is already stored, e.g., a redelivered event, a review or a second event of the
+ * same content in one batch, does not change the growth score.
+ * <p>
+ * If other learned contents are missing from the stored ids, or no ids are stored for a positive growth score,
+ * e.g., for reward scores that were saved before the ids were stored, the growth score is reconciled with the reward points of all learned contents instead.
+ * The nightly recalculation reconciles the growth score in the same way, which also corrects changed reward points.
+ * Such a correction is logged with the reason {@link RewardChangeReason#RECALCULATED}, because it is not caused
+ * by a content the user has done.
  */
 @Component
 @Slf4j
 public class GrowthScoreCalculator implements ScoreCalculator {
     @Override
     public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores,
-                                              final List<Content> contents) {
+                                              final CourseSnapshot course) {
         log.debug("Recalculating growth score for user {} in course {}",
                 allRewardScores.getId().getUserId(), allRewardScores.getId().getCourseId());
-        // growth score is not affected by recalculation
-        // it is only affected by content worked on
-        return allRewardScores.getGrowth();
+
+        return reconcile(allRewardScores, course);
+    }
+
+    /**
+     * Sets the growth score to the reward points of all learned contents and stores their ids.
+     */
+    private RewardScoreEntity reconcile(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
+        final RewardScoreEntity growthEntity = allRewardScores.getGrowth();
+        final int oldScore = growthEntity.getValue();
+        final int reconciledScore = course.getLearnedRewardPoints();
+
+        growthEntity.setPercentage(calculatePercentage(reconciledScore, course.getTotalRewardPoints()));
+        if (!getLearnedContentIds(allRewardScores).equals(new HashSet<>(course.getLearnedContentIds()))) {
+            allRewardScores.setLearnedContentIds(new ArrayList<>(course.getLearnedContentIds()));
+        }
+
+        if (reconciledScore == oldScore) {
+            // no drift, so no log entry is created
+            return growthEntity;
+        }
+
+        log.debug("Reconciling growth score from {} to {}", oldScore, reconciledScore);
+
+        growthEntity.setValue(reconciledScore);
+        growthEntity.getLog().add(createLogEntry(oldScore, reconciledScore, RewardChangeReason.RECALCULATED, List.of()));
+
+        return growthEntity;
     }
 
     @Override
     public RewardScoreEntity calculateOnContentWorkedOn(final AllRewardScoresEntity allRewardScores,
-                                                        final List<Content> contents,
+                                                        final CourseSnapshot course,
                                                         final UserProgressUpdatedEvent event) {
         log.debug("Calculating growth score for user {} in course {}",
                 allRewardScores.getId().getUserId(), allRewardScores.getId().getCourseId());
         log.debug("Content worked on: {}", event.getContentId());
-        log.debug("Content list: {}", contents);
 
         final RewardScoreEntity growthEntity = allRewardScores.getGrowth();
+        final Optional<Content> content = course.getContent(event.getContentId());
+        final Set<UUID> learnedContentIds = getLearnedContentIds(allRewardScores);
+
+        final boolean othersMissing = course.getLearnedContentIds().stream()
+                .anyMatch(contentId -> !contentId.equals(event.getContentId()) && !learnedContentIds.contains(contentId));
+        // a growth score without stored ids was saved before the ids were stored
+        final boolean savedWithoutIds = learnedContentIds.isEmpty() && growthEntity.getValue() > 0;
+        if (othersMissing || savedWithoutIds) {
+            return reconcile(allRewardScores, course);
+        }
+
         final int oldScore = growthEntity.getValue();
-        final int currentScore = calculateCurrentGrowth(contents);
-        final int totalScore = getTotalAchievableGrowth(contents);
+        final int totalScore = course.getTotalRewardPoints();
+
+        if (content.isEmpty() || !event.isSuccess() || !CourseSnapshot.isLearned(content.get())
+            || learnedContentIds.contains(event.getContentId())) {
+            // only contents that change from not learned to learned increase the growth score,
+            // but the total may have changed, e.g., because contents were added to the course
+            growthEntity.setPercentage(calculatePercentage(oldScore, totalScore));
+            return growthEntity;
+        }
+
+        final int newScore = oldScore + CourseSnapshot.getRewardPoints(content.get());
 
         log.debug("Old growth score: {}", oldScore);
-        log.debug("Current growth score calculated: {}", currentScore);
+        log.debug("New growth score: {}", newScore);
         log.debug("Total achievable growth score: {}", totalScore);
 
-        final int diff = currentScore - oldScore;
+        final List<UUID> newLearnedContentIds = new ArrayList<>(learnedContentIds);
+        newLearnedContentIds.add(event.getContentId());
+        allRewardScores.setLearnedContentIds(newLearnedContentIds);
+        growthEntity.setPercentage(calculatePercentage(newScore, totalScore));
 
-        if (diff == 0) {
-            // no change in growth score, so no log entry is created
+        if (newScore == oldScore) {
+            // content without reward points, so no log entry is created
             return growthEntity;
         }
 
-        final RewardScoreLogEntry logEntry = createLogEntry(oldScore, currentScore, event.getContentId());
-
-        growthEntity.setValue(currentScore);
-        growthEntity.setPercentage(calculatePercentage(currentScore, totalScore));
-        growthEntity.getLog().add(logEntry);
+        growthEntity.setValue(newScore);
+        growthEntity.getLog().add(createLogEntry(oldScore, newScore, RewardChangeReason.CONTENT_DONE,
+                List.of(event.getContentId())));
 
         return growthEntity;
     }
 
-    private static RewardScoreLogEntry createLogEntry(final int oldScore, final int currentScore, final UUID contentId) {
+    private static Set<UUID> getLearnedContentIds(final AllRewardScoresEntity allRewardScores) {
+        return allRewardScores.getLearnedContentIds() == null
+                ? Set.of()
+                : new HashSet<>(allRewardScores.getLearnedContentIds());
+    }
+
+    private static RewardScoreLogEntry createLogEntry(final int oldScore,
+                                                      final int newScore,
+                                                      final RewardChangeReason reason,
+                                                      final List<UUID> contentIds) {
         return RewardScoreLogEntry.builder()
                 .date(OffsetDateTime.now())
-                .difference(currentScore - oldScore)
-                .newValue(currentScore)
+                .difference(newScore - oldScore)
+                .newValue(newScore)
                 .oldValue(oldScore)
-                .reason(RewardChangeReason.CONTENT_DONE)
-                .associatedContentIds(List.of(contentId))
+                .reason(reason)
+                .associatedContentIds(contentIds)
                 .build();
     }
 
@@ -80,31 +145,4 @@ public class GrowthScoreCalculator implements ScoreCalculator {
         return (float) currentScore / totalScore;
     }
 
-    /**
-     * Calculates the total achievable growth score of a course.
-     *
-     * @param contents the contents of the course
-     * @return the total achievable growth score
-     */
-    private int getTotalAchievableGrowth(final List<Content> contents) {
-        return contents.stream()
-                .mapToInt(content -> content.getMetadata().getRewardPoints())
-                .sum();
-    }
-
-    /**
-     * Calculates the current growth score of a user.
-     *
-     * @param contents the contents of the course
-     * @return the current growth score
-     */
-    private int calculateCurrentGrowth(final List<Content> contents) {
-        return contents.stream()
-                // only consider contents that are learned
-                .filter(content -> content.getUserProgressData().getIsLearned())
-                // sum up the reward points of all learned contents
-                .mapToInt(content -> content.getMetadata().getRewardPoints())
-                .sum();
-    }
-
 }
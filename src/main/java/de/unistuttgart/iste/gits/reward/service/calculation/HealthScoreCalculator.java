@@ -65,16 +65,16 @@ public class HealthScoreCalculator implements ScoreCalculator {
 
     @Override
     public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores,
-                                              final List<Content> contents) {
+                                              final CourseSnapshot course) {
         log.debug("Recalculating health score");
 
         final RewardScoreEntity healthEntity = allRewardScores.getHealth();
         final int oldScore = healthEntity.getValue();
         log.debug("Old health score: {}", oldScore);
 
-        final OffsetDateTime today = OffsetDateTime.now();
+        final OffsetDateTime today = course.getNow();
 
-        final List<Content> newDueContents = getDueContentsThatWereNeverWorked(contents, today);
+        final List<Content> newDueContents = course.getDueContentsThatWereNeverWorked();
         log.debug("New due contents: {}", newDueContents);
 
         final int diff = calculateHealthDecrease(newDueContents, today);
@@ -97,11 +97,10 @@ public class HealthScoreCalculator implements ScoreCalculator {
     @Override
     public RewardScoreEntity calculateOnContentWorkedOn(
             final AllRewardScoresEntity allRewardScoresEntity,
-            final List<Content> contents,
+            final CourseSnapshot course,
             final UserProgressUpdatedEvent event) {
         log.debug("Calculating health score");
         log.debug("Content worked on: {}", event.getContentId());
-        log.debug("Content list: {}", contents);
 
         final RewardScoreEntity rewardScore = allRewardScoresEntity.getHealth();
 
@@ -113,15 +112,15 @@ public class HealthScoreCalculator implements ScoreCalculator {
             return rewardScore;
         }
 
-        final OffsetDateTime today = OffsetDateTime.now();
+        final OffsetDateTime today = course.getNow();
 
-        final List<Content> newDueContents = getDueContentsThatWereNeverWorked(contents, today);
+        final List<Content> newDueContents = course.getDueContentsThatWereNeverWorked();
         log.debug("New due contents: {}", newDueContents);
         int numberOfNewDueContentsBefore = newDueContents.size();
 
         // in case that the content list does not contain the content of the event
         // which usually should not happen
-        if (!doesListContainContentWithId(newDueContents, event.getContentId())) {
+        if (!course.isDueAndNeverWorked(event.getContentId())) {
             numberOfNewDueContentsBefore++;
         }
 
@@ -159,10 +158,18 @@ public class HealthScoreCalculator implements ScoreCalculator {
      * @return the initial health value
      */
     public int calculateInitialHealthValueForNewEntity(final List<Content> contents) {
-        final OffsetDateTime today = OffsetDateTime.now();
+        return calculateInitialHealthValueForNewEntity(CourseSnapshot.of(contents));
+    }
 
-        final List<Content> newDueContents = getDueContentsThatWereNeverWorked(contents, today);
-        final int healthDecrease = calculateHealthDecrease(newDueContents, today);
+    /**
+     * Calculates the initial health value for a new entity.
+     *
+     * @param course the classified contents of the course
+     * @return the initial health value
+     */
+    public int calculateInitialHealthValueForNewEntity(final CourseSnapshot course) {
+        final List<Content> newDueContents = course.getDueContentsThatWereNeverWorked();
+        final int healthDecrease = calculateHealthDecrease(newDueContents, course.getNow());
 
         // Calculate initial health value based on overdue, never-worked-on contents
         final int initialHealthValue = HEALTH_MAX - healthDecrease;
@@ -185,11 +192,6 @@ public class HealthScoreCalculator implements ScoreCalculator {
                 .build();
     }
 
-    private static boolean doesListContainContentWithId(final List<Content> newDueContents, final UUID contentId) {
-        return newDueContents.stream()
-                .anyMatch(content -> content.getId().equals(contentId));
-    }
-
     private static List<UUID> getIds(final List<Content> newDueContents) {
         return newDueContents.stream()
                 .map(Content::getId)
@@ -214,22 +216,6 @@ public class HealthScoreCalculator implements ScoreCalculator {
                 Math.floor(healthModifierPerDay * baseHealthDecrease));
     }
 
-    private List<Content> getDueContentsThatWereNeverWorked(final List<Content> contents, final OffsetDateTime today) {
-        return contents.stream()
-                .filter(this::isContentNew)
-                .filter(content -> isContentDue(content, today))
-                .toList();
-    }
-
-    private boolean isContentNew(final Content content) {
-        return !content.getUserProgressData().getIsLearned();
-    }
-
-    private boolean isContentDue(final Content content, final OffsetDateTime today) {
-        final OffsetDateTime dueDate = content.getMetadata().getSuggestedDate();
-        return dueDate != null && dueDate.isBefore(today);
-    }
-
     /**
      * Returns the number of days a content is overdue.
      *
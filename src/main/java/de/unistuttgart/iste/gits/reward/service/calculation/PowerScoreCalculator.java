@@ -1,7 +1,6 @@
 package de.unistuttgart.iste.gits.reward.service.calculation;
 
 import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
-import de.unistuttgart.iste.gits.generated.dto.Content;
 import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
 import de.unistuttgart.iste.gits.reward.persistence.entity.*;
 import lombok.extern.slf4j.Slf4j;
@@ -11,7 +10,6 @@ import org.springframework.stereotype.Component;
 
 import java.time.OffsetDateTime;
 import java.util.Collections;
-import java.util.List;
 
 /**
  * Calculates the power score of a user, according the concept documented
@@ -51,13 +49,13 @@ public class PowerScoreCalculator implements ScoreCalculator {
 
     @Override
     public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores,
-                                              final List<Content> contents) {
+                                              final CourseSnapshot course) {
         return calculatePowerScore(allRewardScores);
     }
 
     @Override
     public RewardScoreEntity calculateOnContentWorkedOn(final AllRewardScoresEntity allRewardScores,
-                                                        final List<Content> contents,
+                                                        final CourseSnapshot course,
                                                         final UserProgressUpdatedEvent event) {
         return calculatePowerScore(allRewardScores);
     }
@@ -9,6 +9,9 @@ import java.util.List;
 
 /**
  * Common interface for all score calculators.
+ * <p>
+ * The calculations take a {@link CourseSnapshot}, so that the contents are classified only once for all calculators.
+ * The variants that take the list of contents create a snapshot for a single calculation.
  */
 public interface ScoreCalculator {
 
@@ -16,20 +19,45 @@ public interface ScoreCalculator {
      * Recalculation that is done every night.
      *
      * @param allRewardScores all reward scores
-     * @param contents        all contents of the course
+     * @param course          the classified contents of the course
      * @return the new reward score
      */
-    RewardScoreEntity recalculateScore(AllRewardScoresEntity allRewardScores, List<Content> contents);
+    RewardScoreEntity recalculateScore(AllRewardScoresEntity allRewardScores, CourseSnapshot course);
 
     /**
      * Calculation that is done when a user works on a content.
      *
      * @param allRewardScores all reward scores
-     * @param contents        all contents of the course
+     * @param course          the classified contents of the course
      * @param event           the event that triggered the calculation
      * @return the new reward score
      */
     RewardScoreEntity calculateOnContentWorkedOn(AllRewardScoresEntity allRewardScores,
-                                                 List<Content> contents,
+                                                 CourseSnapshot course,
                                                  UserProgressUpdatedEvent event);
+
+    /**
+     * Recalculation that is done every night.
+     *
+     * @param allRewardScores all reward scores
+     * @param contents        all contents of the course
+     * @return the new reward score
+     */
+    default RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores, final List<Content> contents) {
+        return recalculateScore(allRewardScores, CourseSnapshot.of(contents));
+    }
+
+    /**
+     * Calculation that is done when a user works on a content.
+     *
+     * @param allRewardScores all reward scores
+     * @param contents        all contents of the course
+     * @param event           the event that triggered the calculation
+     * @return the new reward score
+     */
+    default RewardScoreEntity calculateOnContentWorkedOn(final AllRewardScoresEntity allRewardScores,
+                                                         final List<Content> contents,
+                                                         final UserProgressUpdatedEvent event) {
+        return calculateOnContentWorkedOn(allRewardScores, CourseSnapshot.of(contents), event);
+    }
 }
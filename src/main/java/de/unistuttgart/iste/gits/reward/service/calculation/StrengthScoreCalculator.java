@@ -1,12 +1,10 @@
 package de.unistuttgart.iste.gits.reward.service.calculation;
 
 import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
-import de.unistuttgart.iste.gits.generated.dto.Content;
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
 import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
 
 /**
  * Calculates the strength score of a user, according the concept documented
@@ -17,13 +15,13 @@ import java.util.List;
 @Component
 public class StrengthScoreCalculator implements ScoreCalculator {
     @Override
-    public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores, final List<Content> contents) {
+    public RewardScoreEntity recalculateScore(final AllRewardScoresEntity allRewardScores, final CourseSnapshot course) {
         return allRewardScores.getStrength();
     }
 
     @Override
     public RewardScoreEntity calculateOnContentWorkedOn(final AllRewardScoresEntity allRewardScores,
-                                                        final List<Content> contents,
+                                                        final CourseSnapshot course,
                                                         final UserProgressUpdatedEvent event) {
         return allRewardScores.getStrength();
     }
@@ -0,0 +1,195 @@
+package de.unistuttgart.iste.gits.reward.service.event;
+
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.generated.dto.RewardScores;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Processes user-progress-updated events on a bounded pool of worker threads.
+ * <p>
+ * The request thread that received an event is not blocked while the event is processed. The returned
+ * {@link Mono} completes when the event was processed, so the event is only acknowledged afterwards and
+ * the at-least-once semantics of the message broker are kept.
+ * If the queue of the worker pool is full, the event is rejected immediately, so that the broker retries it later.
+ * <p>
+ * Events of the same course and user are processed one after another, in the order in which they arrived.
+ * Events that arrive while an event of the same course and user is still waiting or being processed are merged
+ * into one batch, so that a burst of events needs only one calculation.
+ * Events of different courses or users are processed in parallel.
+ */
+@Component
+@Slf4j
+public class UserProgressEventProcessor {
+
+    private final RewardService rewardService;
+    private final ThreadPoolExecutor executor;
+    private final int maxBatchSize;
+    private final Counter rejectedCounter;
+    private final Counter coalescedCounter;
+
+    /**
+     * The batches of events that wait for processing, at most one per course and user.
+     * Guarded by {@link #lock}, as is {@link #scheduledKeys}.
+     */
+    private final Map<AllRewardScoresEntity.PrimaryKey, EventBatch> waitingBatches = new HashMap<>();
+    /**
+     * The courses and users for which a worker thread is scheduled or running.
+     */
+    private final Set<AllRewardScoresEntity.PrimaryKey> scheduledKeys = new HashSet<>();
+    private final Object lock = new Object();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param threads       the number of worker threads
+     * @param queueCapacity the maximum number of courses and users whose events wait for a worker thread
+     * @param maxBatchSize  the maximum number of events of a course and user that are merged into one batch
+     */
+    @Autowired
+    public UserProgressEventProcessor(final RewardService rewardService,
+                                      final MeterRegistry meterRegistry,
+                                      @Value("${reward.event_processing.threads}") final int threads,
+                                      @Value("${reward.event_processing.queue_capacity}") final int queueCapacity,
+                                      @Value("${reward.event_processing.max_batch_size}") final int maxBatchSize) {
+        this.rewardService = rewardService;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("reward.event_processing.queue_depth", executor, e -> e.getQueue().size())
+                .description("Number of users whose user progress events wait for a worker thread")
+                .register(meterRegistry);
+        Gauge.builder("reward.event_processing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Number of users whose user progress events are currently being processed")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("reward.event_processing.rejected")
+                .description("Number of user progress events rejected because the queue was full")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("reward.event_processing.coalesced")
+                .description("Number of user progress events merged into the batch of a preceding event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the event for processing.
+     *
+     * @param event the event to process
+     * @return a mono that emits the new reward scores when the event was processed, or completes empty if the event
+     * was ignored because its course was deleted. It fails with a {@link RejectedExecutionException} if the queue
+     * is full and with the exception of the calculation if the processing failed.
+     */
+    public Mono<RewardScores> process(final UserProgressUpdatedEvent event) {
+        return process(List.of(event));
+    }
+
+    /**
+     * Queues several events of the same course and user for processing. The events are processed together,
+     * in one calculation, possibly merged with other events of the course and user that are still waiting.
+     *
+     * @param events the events to process, all of the same course and user, in the order in which they occurred
+     * @return a mono that emits the new reward scores when the events were processed, or completes empty if the
+     * events were ignored because their course was deleted. It fails with a {@link RejectedExecutionException} if
+     * the queue is full and with the exception of the calculation if the processing failed.
+     */
+    public Mono<RewardScores> process(final List<UserProgressUpdatedEvent> events) {
+        final AllRewardScoresEntity.PrimaryKey key
+                = new AllRewardScoresEntity.PrimaryKey(events.get(0).getCourseId(), events.get(0).getUserId());
+
+        return Mono.create(sink -> {
+            synchronized (lock) {
+                final EventBatch waitingBatch = waitingBatches.get(key);
+                if (waitingBatch != null && waitingBatch.events.size() + events.size() <= maxBatchSize) {
+                    waitingBatch.add(events, sink);
+                    coalescedCounter.increment(events.size());
+                    return;
+                }
+                if (waitingBatch != null) {
+                    reject(sink, new RejectedExecutionException("Too many events of user " + key.getUserId()));
+                    return;
+                }
+
+                final EventBatch batch = new EventBatch();
+                batch.add(events, sink);
+                if (!scheduledKeys.contains(key)) {
+                    try {
+                        executor.execute(() -> processBatchesOf(key));
+                    } catch (final RejectedExecutionException e) {
+                        reject(sink, e);
+                        return;
+                    }
+                    scheduledKeys.add(key);
+                }
+                // if a worker thread is already scheduled for the key, it processes the batch after the current one
+                waitingBatches.put(key, batch);
+            }
+        });
+    }
+
+    private void reject(final MonoSink<RewardScores> sink, final RejectedExecutionException e) {
+        rejectedCounter.increment();
+        sink.error(e);
+    }
+
+    /**
+     * Processes the waiting batches of a course and user until there are no more.
+     */
+    private void processBatchesOf(final AllRewardScoresEntity.PrimaryKey key) {
+        while (true) {
+            final EventBatch batch;
+            synchronized (lock) {
+                batch = waitingBatches.remove(key);
+                if (batch == null) {
+                    scheduledKeys.remove(key);
+                    return;
+                }
+            }
+
+            try {
+                final RewardScores rewardScores = rewardService.calculateScoresOnContentsWorkedOn(batch.events);
+                batch.sinks.forEach(sink -> sink.success(rewardScores));
+            } catch (final Exception e) {
+                batch.sinks.forEach(sink -> sink.error(e));
+            }
+        }
+    }
+
+    /**
+     * Lets the worker threads finish the queued events before the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} user progress events were not processed before shutdown", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Events of a course and user that are processed together, with the sinks that wait for their result.
+     */
+    private static class EventBatch {
+        private final List<UserProgressUpdatedEvent> events = new ArrayList<>();
+        private final List<MonoSink<RewardScores>> sinks = new ArrayList<>();
+
+        private void add(final List<UserProgressUpdatedEvent> newEvents, final MonoSink<RewardScores> sink) {
+            events.addAll(newEvents);
+            sinks.add(sink);
+        }
+    }
+}
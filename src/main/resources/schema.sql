@@ -0,0 +1,131 @@
+-- Migrates existing databases to the current layout. Runs before Hibernate updates the schema.
+-- Statements are separated by ^; (see spring.sql.init.separator), because the migrations are PL/pgSQL blocks
+-- that contain semicolons. Each migration is a single block, so that it either completes or changes nothing:
+-- if a statement of a migration fails, the block is rolled back and the old tables and columns are kept.
+-- The migrations do nothing if they were already done.
+
+-- The five reward scores are stored as columns of reward_scores instead of separate reward_score rows.
+-- The log entries of all reward scores are stored in one table, keyed by course, user and score type
+-- (ordinal of RewardScoreType: 0 = health, 1 = fitness, 2 = growth, 3 = strength, 4 = power).
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT FROM information_schema.columns WHERE table_schema = current_schema()
+                   AND table_name = 'reward_scores' AND column_name = 'health_id') THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE reward_scores
+        ADD COLUMN IF NOT EXISTS health_value INTEGER,
+        ADD COLUMN IF NOT EXISTS health_percentage REAL,
+        ADD COLUMN IF NOT EXISTS fitness_value INTEGER,
+        ADD COLUMN IF NOT EXISTS fitness_percentage REAL,
+        ADD COLUMN IF NOT EXISTS growth_value INTEGER,
+        ADD COLUMN IF NOT EXISTS growth_percentage REAL,
+        ADD COLUMN IF NOT EXISTS strength_value INTEGER,
+        ADD COLUMN IF NOT EXISTS strength_percentage REAL,
+        ADD COLUMN IF NOT EXISTS power_value INTEGER,
+        ADD COLUMN IF NOT EXISTS power_percentage REAL;
+    UPDATE reward_scores
+        SET health_value = health.value, health_percentage = health.percentage,
+            fitness_value = fitness.value, fitness_percentage = fitness.percentage,
+            growth_value = growth.value, growth_percentage = growth.percentage,
+            strength_value = strength.value, strength_percentage = strength.percentage,
+            power_value = power.value, power_percentage = power.percentage
+        FROM reward_score health, reward_score fitness, reward_score growth, reward_score strength,
+            reward_score power
+        WHERE health.id = reward_scores.health_id AND fitness.id = reward_scores.fitness_id
+            AND growth.id = reward_scores.growth_id AND strength.id = reward_scores.strength_id
+            AND power.id = reward_scores.power_id;
+    IF EXISTS (SELECT FROM reward_scores WHERE health_value IS NULL OR fitness_value IS NULL
+               OR growth_value IS NULL OR strength_value IS NULL OR power_value IS NULL) THEN
+        RAISE EXCEPTION 'Reward scores without a reward_score row, the reward scores are not migrated';
+    END IF;
+
+    IF to_regclass('reward_score_log_entry') IS NOT NULL THEN
+        ALTER TABLE reward_score_log_entry
+            ADD COLUMN IF NOT EXISTS course_id UUID,
+            ADD COLUMN IF NOT EXISTS user_id UUID,
+            ADD COLUMN IF NOT EXISTS score_type SMALLINT;
+    END IF;
+    -- log entries that are linked to their reward score with the join table reward_score_log
+    IF to_regclass('reward_score_log') IS NOT NULL THEN
+        UPDATE reward_score_log_entry entry
+            SET course_id = scores.course_id, user_id = scores.user_id,
+                score_type = CASE join_table.reward_score_id
+                    WHEN scores.health_id THEN 0 WHEN scores.fitness_id THEN 1 WHEN scores.growth_id THEN 2
+                    WHEN scores.strength_id THEN 3 ELSE 4 END
+            FROM reward_score_log join_table
+                JOIN reward_scores scores ON join_table.reward_score_id IN
+                    (scores.health_id, scores.fitness_id, scores.growth_id, scores.strength_id, scores.power_id)
+            WHERE join_table.log_id = entry.id;
+    END IF;
+    -- log entries that are linked to their reward score with the column reward_score_id
+    IF EXISTS (SELECT FROM information_schema.columns WHERE table_schema = current_schema()
+               AND table_name = 'reward_score_log_entry' AND column_name = 'reward_score_id') THEN
+        UPDATE reward_score_log_entry entry
+            SET course_id = scores.course_id, user_id = scores.user_id,
+                score_type = CASE entry.reward_score_id
+                    WHEN scores.health_id THEN 0 WHEN scores.fitness_id THEN 1 WHEN scores.growth_id THEN 2
+                    WHEN scores.strength_id THEN 3 ELSE 4 END
+            FROM reward_scores scores
+            WHERE entry.reward_score_id IN
+                (scores.health_id, scores.fitness_id, scores.growth_id, scores.strength_id, scores.power_id);
+        ALTER TABLE reward_score_log_entry DROP COLUMN reward_score_id;
+    END IF;
+
+    ALTER TABLE reward_scores
+        DROP COLUMN health_id,
+        DROP COLUMN fitness_id,
+        DROP COLUMN growth_id,
+        DROP COLUMN strength_id,
+        DROP COLUMN power_id;
+    DROP TABLE IF EXISTS reward_score_log;
+    DROP TABLE reward_score;
+END $$^;
+
+-- The reward scores are versioned for optimistic locking.
+ALTER TABLE IF EXISTS reward_scores ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0^;
+
+-- The associated content ids of a log entry are stored in one column of 16 bytes per id
+-- instead of one row per id in the table reward_score_log_entry_associated_content_ids.
+DO $$
+BEGIN
+    IF to_regclass('reward_score_log_entry_associated_content_ids') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE reward_score_log_entry ADD COLUMN IF NOT EXISTS associated_content_ids BYTEA;
+    UPDATE reward_score_log_entry entry
+        SET associated_content_ids = (
+            SELECT string_agg(decode(replace(ids.associated_content_ids::text, '-', ''), 'hex'), ''::bytea)
+            FROM reward_score_log_entry_associated_content_ids ids
+            WHERE ids.reward_score_log_entry_id = entry.id)
+        WHERE entry.associated_content_ids IS NULL;
+    IF EXISTS (SELECT FROM reward_score_log_entry_associated_content_ids ids
+               JOIN reward_score_log_entry entry ON entry.id = ids.reward_score_log_entry_id
+               WHERE ids.associated_content_ids IS NOT NULL AND entry.associated_content_ids IS NULL) THEN
+        RAISE EXCEPTION 'Log entries without copied content ids, the content ids are not migrated';
+    END IF;
+    DROP TABLE reward_score_log_entry_associated_content_ids;
+END $$^;
+
+-- Index for reading the log of a reward score page by page, ordered by date.
+CREATE INDEX IF NOT EXISTS idx_reward_score_log_entry_owner_date
+    ON reward_score_log_entry (course_id, user_id, score_type, date)^;
+
+-- Index for reading the scoreboard of a course, ordered by power score descending and user id ascending.
+-- An index with ascending power scores, as created before, can only be scanned backwards, which returns the users
+-- with the same power score in descending order, so the rows have to be sorted again. It is replaced.
+DO $$
+BEGIN
+    IF to_regclass('scoreboard_entry') IS NULL THEN
+        RETURN;
+    END IF;
+
+    IF EXISTS (SELECT FROM pg_indexes WHERE schemaname = current_schema()
+               AND indexname = 'idx_scoreboard_entry_course_rank' AND indexdef NOT LIKE '%power_score DESC%') THEN
+        DROP INDEX idx_scoreboard_entry_course_rank;
+    END IF;
+    CREATE INDEX IF NOT EXISTS idx_scoreboard_entry_course_rank
+        ON scoreboard_entry (course_id, power_score DESC, user_id);
+END $$^;
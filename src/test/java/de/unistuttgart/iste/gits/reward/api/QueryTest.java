@@ -3,16 +3,22 @@ package de.unistuttgart.iste.gits.reward.api;
 import de.unistuttgart.iste.gits.common.testutil.GraphQlApiTest;
 import de.unistuttgart.iste.gits.common.testutil.InjectCurrentUserHeader;
 import de.unistuttgart.iste.gits.common.user_handling.LoggedInUser;
+import de.unistuttgart.iste.gits.generated.dto.RankedScoreboardItem;
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
 import de.unistuttgart.iste.gits.generated.dto.ScoreboardItem;
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
 import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreLogEntry;
 import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
 import de.unistuttgart.iste.gits.reward.service.RewardService;
+import de.unistuttgart.iste.gits.reward.service.ScoreboardService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.test.tester.GraphQlTester;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static de.unistuttgart.iste.gits.common.testutil.TestUsers.userWithMembershipInCourseWithId;
@@ -26,6 +32,9 @@ class QueryTest {
     @Autowired
     RewardService rewardService;
 
+    @Autowired
+    ScoreboardService scoreboardService;
+
     private final UUID courseId = UUID.randomUUID();
 
     @InjectCurrentUserHeader
@@ -83,6 +92,56 @@ class QueryTest {
                 .path("courseRewardScoresForUser.power.value").entity(Integer.class).isEqualTo(0);
     }
 
+    /**
+     * Given two users with rewardScores exist
+     * When the rewardScores of both users are queried, with one query and for the whole course
+     * Then the rewardScores of both users are returned, in the order of the given user ids for the first query
+     */
+    @Test
+    void testCourseRewardScoresForUsers(final GraphQlTester tester) {
+        final UUID user1 = UUID.randomUUID();
+        final UUID user2 = UUID.randomUUID();
+
+        allRewardScoresRepository.saveAll(List.of(
+                AllRewardScoresEntity.builder()
+                        .id(new AllRewardScoresEntity.PrimaryKey(courseId, user1))
+                        .health(initializeRewardScoreEntity(100))
+                        .strength(initializeRewardScoreEntity(0))
+                        .fitness(initializeRewardScoreEntity(100))
+                        .growth(initializeRewardScoreEntity(0))
+                        .power(initializeRewardScoreEntity(10))
+                        .build(),
+                AllRewardScoresEntity.builder()
+                        .id(new AllRewardScoresEntity.PrimaryKey(courseId, user2))
+                        .health(initializeRewardScoreEntity(100))
+                        .strength(initializeRewardScoreEntity(0))
+                        .fitness(initializeRewardScoreEntity(100))
+                        .growth(initializeRewardScoreEntity(0))
+                        .power(initializeRewardScoreEntity(20))
+                        .build()));
+
+        final String query = """
+                query($courseId: UUID!, $userIds: [UUID!]!) {
+                    courseRewardScoresForUsers(courseId: $courseId, userIds: $userIds) {
+                        userId
+                        power {
+                            value
+                        }
+                    }
+                    courseRewardScores(courseId: $courseId) {
+                        userId
+                    }
+                }""";
+
+        tester.document(query)
+                .variable("courseId", courseId)
+                .variable("userIds", List.of(user2, user1))
+                .execute()
+                .path("courseRewardScoresForUsers[*].userId").entityList(UUID.class).containsExactly(user2, user1)
+                .path("courseRewardScoresForUsers[*].power.value").entityList(Integer.class).containsExactly(20, 10)
+                .path("courseRewardScores[*].userId").entityList(UUID.class).hasSize(2).contains(user1, user2);
+    }
+
     /**
      * Given two rewardScores exist
      * When the scoreboard is queried
@@ -93,23 +152,23 @@ class QueryTest {
         final UUID user1 = UUID.randomUUID();
         final UUID user2 = UUID.randomUUID();
 
-        allRewardScoresRepository.save(AllRewardScoresEntity.builder()
+        scoreboardService.updateEntry(allRewardScoresRepository.save(AllRewardScoresEntity.builder()
                 .id(new AllRewardScoresEntity.PrimaryKey(courseId, user1))
                 .health(initializeRewardScoreEntity(100))
                 .strength(initializeRewardScoreEntity(0))
                 .fitness(initializeRewardScoreEntity(100))
                 .growth(initializeRewardScoreEntity(0))
                 .power(initializeRewardScoreEntity(0))
-                .build());
+                .build()));
 
-        allRewardScoresRepository.save(AllRewardScoresEntity.builder()
+        scoreboardService.updateEntry(allRewardScoresRepository.save(AllRewardScoresEntity.builder()
                 .id(new AllRewardScoresEntity.PrimaryKey(courseId, user2))
                 .health(initializeRewardScoreEntity(100))
                 .strength(initializeRewardScoreEntity(0))
                 .fitness(initializeRewardScoreEntity(100))
                 .growth(initializeRewardScoreEntity(0))
                 .power(initializeRewardScoreEntity(30))
-                .build());
+                .build()));
 
         final var scoreboardItem1 = new ScoreboardItem(user1, 0);
         final var scoreboardItem2 = new ScoreboardItem(user2, 30);
@@ -130,6 +189,159 @@ class QueryTest {
 
     }
 
+    /**
+     * Given a reward score with three log entries
+     * When the second page of the log with page size 2 is queried
+     * Then only the oldest log entry is returned
+     */
+    @Test
+    void testRewardScoreLogIsPaginated(final GraphQlTester tester) {
+        final RewardScoreEntity health = initializeRewardScoreEntity(100);
+        final OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            health.getLog().add(RewardScoreLogEntry.builder()
+                    .date(now.minusDays(i))
+                    .difference(-i)
+                    .oldValue(100)
+                    .newValue(100 - i)
+                    .reason(RewardChangeReason.CONTENT_DUE_FOR_LEARNING)
+                    .associatedContentIds(List.of())
+                    .build());
+        }
+
+        rewardService.saveAllRewardScores(List.of(AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(courseId, loggedInUser.getId()))
+                .health(health)
+                .strength(initializeRewardScoreEntity(0))
+                .fitness(initializeRewardScoreEntity(100))
+                .growth(initializeRewardScoreEntity(0))
+                .power(initializeRewardScoreEntity(0))
+                .build()));
+
+        final String query = """
+                query($courseId: UUID!) {
+                    userCourseRewardScores(courseId: $courseId) {
+                        health {
+                            value
+                            log(pagination: {page: 1, size: 2}) {
+                                difference
+                            }
+                        }
+                    }
+                }""";
+
+        tester.document(query)
+                .variable("courseId", courseId)
+                .execute()
+                .path("userCourseRewardScores.health.value").entity(Integer.class).isEqualTo(100)
+                .path("userCourseRewardScores.health.log[*].difference").entityList(Integer.class).containsExactly(-2);
+    }
+
+    /**
+     * Given a reward score with log entries of different reasons
+     * When the log is queried page by page with a filter for one reason
+     * Then the pages contain only the matching entries and are linked by their cursors
+     */
+    @Test
+    void testRewardScoreLogConnectionIsFilteredAndCursorPaginated(final GraphQlTester tester) {
+        final RewardScoreEntity fitness = initializeRewardScoreEntity(100);
+        final OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < 4; i++) {
+            fitness.getLog().add(RewardScoreLogEntry.builder()
+                    .date(now.minusDays(i))
+                    .difference(-i)
+                    .oldValue(100)
+                    .newValue(100 - i)
+                    .reason(i % 2 == 0 ? RewardChangeReason.CONTENT_DUE_FOR_REPETITION : RewardChangeReason.CONTENT_REVIEWED)
+                    .associatedContentIds(List.of())
+                    .build());
+        }
+
+        rewardService.saveAllRewardScores(List.of(AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(courseId, loggedInUser.getId()))
+                .health(initializeRewardScoreEntity(100))
+                .strength(initializeRewardScoreEntity(0))
+                .fitness(fitness)
+                .growth(initializeRewardScoreEntity(0))
+                .power(initializeRewardScoreEntity(0))
+                .build()));
+
+        final String query = """
+                query($courseId: UUID!, $after: String) {
+                    userCourseRewardScores(courseId: $courseId) {
+                        fitness {
+                            logConnection(filter: {reasons: [CONTENT_DUE_FOR_REPETITION]}, first: 1, after: $after) {
+                                elements {
+                                    difference
+                                }
+                                endCursor
+                                hasNext
+                            }
+                        }
+                    }
+                }""";
+
+        final GraphQlTester.Response firstPage = tester.document(query)
+                .variable("courseId", courseId)
+                .execute();
+        firstPage.path("userCourseRewardScores.fitness.logConnection.elements[*].difference")
+                .entityList(Integer.class).containsExactly(0);
+        firstPage.path("userCourseRewardScores.fitness.logConnection.hasNext").entity(Boolean.class).isEqualTo(true);
+        final String endCursor = firstPage.path("userCourseRewardScores.fitness.logConnection.endCursor")
+                .entity(String.class).get();
+
+        tester.document(query)
+                .variable("courseId", courseId)
+                .variable("after", endCursor)
+                .execute()
+                .path("userCourseRewardScores.fitness.logConnection.elements[*].difference")
+                .entityList(Integer.class).containsExactly(-2)
+                .path("userCourseRewardScores.fitness.logConnection.hasNext").entity(Boolean.class).isEqualTo(false);
+    }
+
+    /**
+     * Given five users with different power scores, two of them with the same power score
+     * When the rank window of the user in the middle is queried
+     * Then the user and the users ranked directly above and below are returned with their ranks
+     */
+    @Test
+    void testScoreboardRank(final GraphQlTester tester) {
+        final UUID userWithSamePowerScore = new UUID(0, 1);
+        final UUID user = new UUID(0, 2);
+        final int[] powerScores = {50, 40, 30, 30, 10};
+        final UUID[] userIds = {UUID.randomUUID(), UUID.randomUUID(), userWithSamePowerScore, user, UUID.randomUUID()};
+
+        for (int i = 0; i < powerScores.length; i++) {
+            scoreboardService.updateEntry(allRewardScoresRepository.save(AllRewardScoresEntity.builder()
+                    .id(new AllRewardScoresEntity.PrimaryKey(courseId, userIds[i]))
+                    .health(initializeRewardScoreEntity(100))
+                    .strength(initializeRewardScoreEntity(0))
+                    .fitness(initializeRewardScoreEntity(100))
+                    .growth(initializeRewardScoreEntity(0))
+                    .power(initializeRewardScoreEntity(powerScores[i]))
+                    .build()));
+        }
+
+        final String query = """
+                query($courseId: UUID!, $userId: UUID!) {
+                    scoreboardRank(courseId: $courseId, userId: $userId, window: 1) {
+                        rank
+                        userId
+                        powerScore
+                    }
+                }""";
+
+        tester.document(query)
+                .variable("courseId", courseId)
+                .variable("userId", user)
+                .execute()
+                .path("scoreboardRank").entityList(RankedScoreboardItem.class)
+                .containsExactly(
+                        new RankedScoreboardItem(3, userWithSamePowerScore, 30),
+                        new RankedScoreboardItem(4, user, 30),
+                        new RankedScoreboardItem(5, userIds[4], 10));
+    }
+
     private static RewardScoreEntity initializeRewardScoreEntity(final int initialValue) {
         final RewardScoreEntity rewardScoreEntity = new RewardScoreEntity();
         rewardScoreEntity.setValue(initialValue);
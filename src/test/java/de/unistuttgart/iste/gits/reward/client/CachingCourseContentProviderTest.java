@@ -0,0 +1,218 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+class CachingCourseContentProviderTest {
+
+    private final CourseContentProvider delegate = mock(CourseContentProvider.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UUID courseId = UUID.randomUUID();
+    private final UUID contentId = UUID.randomUUID();
+    private final UUID firstUser = UUID.randomUUID();
+    private final UUID secondUser = UUID.randomUUID();
+
+    /**
+     * Given the contents of a course that were fetched for one user
+     * When the contents are requested for another user
+     * Then the cached contents are used with the progress data of the other user,
+     * as copies of the same type that do not change the cached contents
+     */
+    @Test
+    void testGetContentsOfCourseUsesCacheWithFreshProgress() throws ContentServiceConnectionException {
+        final List<List<UUID>> progressQueries = new ArrayList<>();
+        final UserProgressClient userProgressClient = (queriedCourseId, userIds) -> {
+            progressQueries.add(userIds);
+            return Map.of(secondUser, Map.of(contentId, learned(true)));
+        };
+        final CourseContentProvider provider = createProvider(userProgressClient);
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+
+        final List<Content> firstResult = provider.getContentsOfCourse(courseId, firstUser);
+        final List<Content> result = provider.getContentsOfCourse(courseId, secondUser);
+
+        verify(delegate, times(1)).getContentsOfCourse(any(), any());
+        assertThat(progressQueries, is(List.of(List.of(secondUser))));
+        assertThat(result.get(0).getId(), is(contentId));
+        assertThat(result.get(0).getUserProgressData().getIsLearned(), is(true));
+        assertThat(result.get(0), is(instanceOf(MediaContent.class)));
+        assertThat(result.get(0).getMetadata().getRewardPoints(), is(10));
+        assertThat(firstResult.get(0).getUserProgressData().getIsLearned(), is(false));
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "courseContents").tag("result", "hit")
+                .functionCounter().count(), is(1.0));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "courseContents").tag("result", "miss")
+                .functionCounter().count(), is(1.0));
+    }
+
+    /**
+     * Given cached contents of a course
+     * When the course is invalidated
+     * Then the contents are fetched again from the delegate
+     */
+    @Test
+    void testInvalidateCourse() throws ContentServiceConnectionException {
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) -> Map.of());
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+
+        provider.getContentsOfCourse(courseId, firstUser);
+        provider.invalidateCourse(courseId);
+        provider.getContentsOfCourse(courseId, firstUser);
+
+        verify(delegate, times(2)).getContentsOfCourse(courseId, firstUser);
+        verify(delegate).invalidateCourse(courseId);
+    }
+
+    /**
+     * Given cached contents of a course and a progress query that fails
+     * When the contents are requested for a user
+     * Then the contents are fetched from the delegate
+     */
+    @Test
+    void testGetContentsOfCourseFallsBackToDelegate() throws ContentServiceConnectionException {
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) -> {
+            throw new IllegalStateException("test");
+        });
+        final List<Content> contentsOfSecondUser = List.of(createContent(learned(true)));
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+        when(delegate.getContentsOfCourse(courseId, secondUser)).thenReturn(contentsOfSecondUser);
+
+        provider.getContentsOfCourse(courseId, firstUser);
+        final List<Content> result = provider.getContentsOfCourse(courseId, secondUser);
+
+        assertThat(result, is(contentsOfSecondUser));
+    }
+
+    /**
+     * Given cached contents of a course and a content that was added to the course afterwards
+     * When the contents are requested for a user whose progress data contains the new content
+     * Then the contents are fetched again and cached, so that the new content is not left out
+     */
+    @Test
+    void testGetContentsOfCourseDetectsAddedContent() throws ContentServiceConnectionException {
+        final UUID addedContentId = UUID.randomUUID();
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) ->
+                Map.of(secondUser, Map.of(contentId, learned(true), addedContentId, learned(false))));
+        final List<Content> contentsWithAddedContent = List.of(createContent(learned(true)),
+                MediaContent.builder().setId(addedContentId).setMetadata(ContentMetadata.builder().build()).build());
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+        when(delegate.getContentsOfCourse(courseId, secondUser)).thenReturn(contentsWithAddedContent);
+
+        provider.getContentsOfCourse(courseId, firstUser);
+        final List<Content> result = provider.getContentsOfCourse(courseId, secondUser);
+        final List<Content> cachedResult = provider.getContentsOfCourse(courseId, secondUser);
+
+        assertThat(result, is(contentsWithAddedContent));
+        assertThat(cachedResult.stream().map(Content::getId).toList(), is(List.of(contentId, addedContentId)));
+        verify(delegate, times(1)).getContentsOfCourse(courseId, secondUser);
+    }
+
+    /**
+     * Given cached contents of a course and a content that was added to the course afterwards
+     * When the contents are requested for several users
+     * Then the contents of all users are fetched again from the delegate
+     */
+    @Test
+    void testGetContentsOfCourseForUsersDetectsAddedContent() throws ContentServiceConnectionException {
+        final UUID addedContentId = UUID.randomUUID();
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) -> Map.of(
+                firstUser, Map.of(contentId, learned(true)),
+                secondUser, Map.of(contentId, learned(true), addedContentId, learned(false))));
+        final Map<UUID, List<Content>> fetchedContents = Map.of(
+                firstUser, List.of(createContent(learned(true))),
+                secondUser, List.of(createContent(learned(true))));
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+        when(delegate.getContentsOfCourseForUsers(courseId, List.of(firstUser, secondUser))).thenReturn(fetchedContents);
+
+        provider.getContentsOfCourse(courseId, firstUser);
+        final Map<UUID, List<Content>> result = provider.getContentsOfCourseForUsers(courseId,
+                List.of(firstUser, secondUser));
+
+        assertThat(result, is(fetchedContents));
+        verify(delegate).getContentsOfCourseForUsers(courseId, List.of(firstUser, secondUser));
+    }
+
+    /**
+     * Given contents of a course that were fetched into a list that the caller changes afterwards
+     * When the contents are requested again
+     * Then the cached contents are not affected by the change
+     */
+    @Test
+    void testCachedContentsAreNotChangedByCaller() throws ContentServiceConnectionException {
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) ->
+                Map.of(firstUser, Map.of(contentId, learned(false))));
+
+        when(delegate.getContentsOfCourse(courseId, firstUser))
+                .thenReturn(new ArrayList<>(List.of(createContent(learned(false)))));
+
+        provider.getContentsOfCourse(courseId, firstUser).clear();
+        final List<Content> result = provider.getContentsOfCourse(courseId, firstUser);
+
+        assertThat(result.size(), is(1));
+        verify(delegate, times(1)).getContentsOfCourse(courseId, firstUser);
+    }
+
+    /**
+     * Given cached contents of two courses
+     * When a content of one of the courses changed
+     * Then only the contents of that course are fetched again
+     */
+    @Test
+    void testInvalidateContents() throws ContentServiceConnectionException {
+        final UUID otherCourseId = UUID.randomUUID();
+        final UUID otherContentId = UUID.randomUUID();
+        final CourseContentProvider provider = createProvider((queriedCourseId, userIds) -> Map.of(
+                firstUser, Map.of(queriedCourseId.equals(courseId) ? contentId : otherContentId, learned(false))));
+
+        when(delegate.getContentsOfCourse(courseId, firstUser)).thenReturn(List.of(createContent(learned(false))));
+        when(delegate.getContentsOfCourse(otherCourseId, firstUser)).thenReturn(List.of(MediaContent.builder()
+                .setId(otherContentId)
+                .setMetadata(ContentMetadata.builder().build())
+                .build()));
+
+        provider.getContentsOfCourse(courseId, firstUser);
+        provider.getContentsOfCourse(otherCourseId, firstUser);
+        provider.invalidateContents(List.of(contentId));
+        provider.getContentsOfCourse(courseId, firstUser);
+        provider.getContentsOfCourse(otherCourseId, firstUser);
+
+        verify(delegate, times(2)).getContentsOfCourse(courseId, firstUser);
+        verify(delegate, times(1)).getContentsOfCourse(otherCourseId, firstUser);
+        verify(delegate).invalidateContents(List.of(contentId));
+    }
+
+    private CourseContentProvider createProvider(final UserProgressClient userProgressClient) {
+        return new CachingCourseContentProvider(delegate, userProgressClient, 10, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    private static UserProgressData learned(final boolean isLearned) {
+        return UserProgressData.builder()
+                .setIsLearned(isLearned)
+                .setLog(List.of())
+                .build();
+    }
+
+    private Content createContent(final UserProgressData userProgressData) {
+        return MediaContent.builder()
+                .setId(contentId)
+                .setMetadata(ContentMetadata.builder().setRewardPoints(10).build())
+                .setUserProgressData(userProgressData)
+                .build();
+    }
+}
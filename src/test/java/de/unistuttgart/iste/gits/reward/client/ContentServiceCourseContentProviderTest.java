@@ -0,0 +1,96 @@
+package de.unistuttgart.iste.gits.reward.client;
+
+import de.unistuttgart.iste.gits.content_service.client.ContentServiceClient;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentServiceCourseContentProviderTest {
+
+    private final ContentServiceClient contentServiceClient = mock(ContentServiceClient.class);
+
+    private final UUID courseId = UUID.randomUUID();
+    private final UUID contentId = UUID.randomUUID();
+    private final List<Content> contents = List.of(createContent(contentId, learned(false)));
+
+    /**
+     * Given three users of a course and a progress query that returns the progress of all of them
+     * When getContentsOfCourseForUsers is called
+     * Then the course is fetched once and the progress of the other users is laid over the shared contents
+     */
+    @Test
+    void testGetContentsOfCourseForUsersFetchesCourseOnce() throws ContentServiceConnectionException {
+        final UUID firstUser = UUID.randomUUID();
+        final UUID secondUser = UUID.randomUUID();
+        final UUID thirdUser = UUID.randomUUID();
+
+        final List<List<UUID>> progressQueries = new ArrayList<>();
+        // local stand-in for the multi-user progress query of the content service
+        final UserProgressClient userProgressClient = (queriedCourseId, userIds) -> {
+            progressQueries.add(userIds);
+            return Map.of(
+                    secondUser, Map.of(contentId, learned(true)),
+                    thirdUser, Map.of(contentId, learned(false)));
+        };
+        final CourseContentProvider provider = new ContentServiceCourseContentProvider(contentServiceClient, userProgressClient);
+
+        when(contentServiceClient.queryContentsOfCourse(firstUser, courseId)).thenReturn(contents);
+
+        final Map<UUID, List<Content>> result = provider.getContentsOfCourseForUsers(courseId, List.of(firstUser, secondUser, thirdUser));
+
+        verify(contentServiceClient, times(1)).queryContentsOfCourse(any(), any());
+        assertThat(progressQueries, is(List.of(List.of(secondUser, thirdUser))));
+
+        assertThat(result.keySet(), containsInAnyOrder(firstUser, secondUser, thirdUser));
+        assertThat(result.get(firstUser), is(contents));
+        assertThat(result.get(secondUser).get(0).getId(), is(contentId));
+        assertThat(result.get(secondUser).get(0).getUserProgressData().getIsLearned(), is(true));
+        assertThat(result.get(thirdUser).get(0).getUserProgressData().getIsLearned(), is(false));
+    }
+
+    /**
+     * Given a progress query that fails
+     * When getContentsOfCourseForUsers is called
+     * Then the contents are fetched for each user separately
+     */
+    @Test
+    void testGetContentsOfCourseForUsersFallsBackToSingleQueries() throws ContentServiceConnectionException {
+        final UUID firstUser = UUID.randomUUID();
+        final UUID secondUser = UUID.randomUUID();
+        final List<Content> contentsOfSecondUser = List.of(createContent(contentId, learned(true)));
+
+        final UserProgressClient failingUserProgressClient = (queriedCourseId, userIds) -> {
+            throw new IllegalStateException("test");
+        };
+        final CourseContentProvider provider = new ContentServiceCourseContentProvider(contentServiceClient, failingUserProgressClient);
+
+        when(contentServiceClient.queryContentsOfCourse(firstUser, courseId)).thenReturn(contents);
+        when(contentServiceClient.queryContentsOfCourse(secondUser, courseId)).thenReturn(contentsOfSecondUser);
+
+        final Map<UUID, List<Content>> result = provider.getContentsOfCourseForUsers(courseId, List.of(firstUser, secondUser));
+
+        assertThat(result.get(firstUser), is(contents));
+        assertThat(result.get(secondUser), is(contentsOfSecondUser));
+    }
+
+    private static UserProgressData learned(final boolean isLearned) {
+        return UserProgressData.builder()
+                .setIsLearned(isLearned)
+                .setLog(List.of())
+                .build();
+    }
+
+    private static Content createContent(final UUID contentId, final UserProgressData userProgressData) {
+        return MediaContent.builder()
+                .setId(contentId)
+                .setMetadata(ContentMetadata.builder().setRewardPoints(10).build())
+                .setUserProgressData(userProgressData)
+                .build();
+    }
+}
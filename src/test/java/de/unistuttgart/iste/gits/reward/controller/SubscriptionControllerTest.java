@@ -0,0 +1,120 @@
+package de.unistuttgart.iste.gits.reward.controller;
+
+import de.unistuttgart.iste.gits.common.event.ContentChangeEvent;
+import de.unistuttgart.iste.gits.common.event.CrudOperation;
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.generated.dto.RewardScores;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import de.unistuttgart.iste.gits.reward.service.event.UserProgressEventProcessor;
+import io.dapr.client.domain.*;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+class SubscriptionControllerTest {
+
+    private final RewardService rewardService = mock(RewardService.class);
+    private final CourseContentProvider courseContentProvider = mock(CourseContentProvider.class);
+    private final UserProgressEventProcessor userProgressEventProcessor = mock(UserProgressEventProcessor.class);
+
+    private final SubscriptionController subscriptionController
+            = new SubscriptionController(rewardService, courseContentProvider, userProgressEventProcessor);
+
+    /**
+     * Given a bulk of events of two users and an incomplete event
+     * When the bulk is received and the events of the second user cannot be processed
+     * Then the events of each user are processed together, the events of the second user are retried
+     * and the incomplete event is dropped
+     */
+    @Test
+    void testOnUserProgressBulk() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID user1 = UUID.randomUUID();
+        final UUID user2 = UUID.randomUUID();
+        final UserProgressUpdatedEvent event1 = createEvent(courseId, user1);
+        final UserProgressUpdatedEvent event2 = createEvent(courseId, user2);
+        final UserProgressUpdatedEvent event3 = createEvent(courseId, user1);
+
+        when(userProgressEventProcessor.process(List.of(event1, event3))).thenReturn(Mono.just(new RewardScores()));
+        when(userProgressEventProcessor.process(List.of(event2)))
+                .thenReturn(Mono.error(new RejectedExecutionException("queue is full")));
+
+        final BulkSubscribeMessage<CloudEvent<UserProgressUpdatedEvent>> bulkMessage = new BulkSubscribeMessage<>(List.of(
+                createEntry("1", event1),
+                createEntry("2", event2),
+                createEntry("3", event3),
+                createEntry("4", UserProgressUpdatedEvent.builder().build())),
+                "user-progress-updated", Map.of());
+
+        final BulkSubscribeAppResponse response = subscriptionController.onUserProgressBulk(bulkMessage).block();
+
+        final Map<String, BulkSubscribeAppResponseStatus> statuses = new HashMap<>();
+        response.getStatuses().forEach(entry -> statuses.put(entry.getEntryId(), entry.getStatus()));
+        assertThat(statuses, is(Map.of(
+                "1", BulkSubscribeAppResponseStatus.SUCCESS,
+                "2", BulkSubscribeAppResponseStatus.RETRY,
+                "3", BulkSubscribeAppResponseStatus.SUCCESS,
+                "4", BulkSubscribeAppResponseStatus.DROP)));
+        verify(userProgressEventProcessor).process(List.of(event1, event3));
+        verify(userProgressEventProcessor).process(List.of(event2));
+    }
+
+    /**
+     * Given a bulk with an event of a course that is pending deletion
+     * When the bulk is received and the event is ignored
+     * Then the event is dropped, so that it is not delivered again
+     */
+    @Test
+    void testOnUserProgressBulkDropsIgnoredEvents() {
+        final UserProgressUpdatedEvent event = createEvent(UUID.randomUUID(), UUID.randomUUID());
+        when(userProgressEventProcessor.process(List.of(event))).thenReturn(Mono.empty());
+
+        final BulkSubscribeAppResponse response = subscriptionController.onUserProgressBulk(new BulkSubscribeMessage<>(
+                List.of(createEntry("1", event)), "user-progress-updated", Map.of())).block();
+
+        assertThat(response.getStatuses().size(), is(1));
+        assertThat(response.getStatuses().get(0).getStatus(), is(BulkSubscribeAppResponseStatus.DROP));
+    }
+
+    /**
+     * Given an event of changed contents
+     * When the event is received
+     * Then the cached courses of the contents are invalidated
+     */
+    @Test
+    void testOnContentChanged() {
+        final List<UUID> contentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        final CloudEvent<ContentChangeEvent> cloudEvent = new CloudEvent<>();
+        cloudEvent.setData(ContentChangeEvent.builder()
+                .contentIds(contentIds)
+                .operation(CrudOperation.UPDATE)
+                .build());
+
+        subscriptionController.onContentChanged(cloudEvent).block();
+
+        verify(courseContentProvider).invalidateContents(contentIds);
+        verifyNoInteractions(rewardService);
+    }
+
+    private static BulkSubscribeMessageEntry<CloudEvent<UserProgressUpdatedEvent>> createEntry(
+            final String entryId, final UserProgressUpdatedEvent event) {
+        final CloudEvent<UserProgressUpdatedEvent> cloudEvent = new CloudEvent<>();
+        cloudEvent.setData(event);
+        return new BulkSubscribeMessageEntry<>(entryId, cloudEvent, "application/cloudevents+json", Map.of());
+    }
+
+    private static UserProgressUpdatedEvent createEvent(final UUID courseId, final UUID userId) {
+        return UserProgressUpdatedEvent.builder()
+                .courseId(courseId)
+                .userId(userId)
+                .contentId(UUID.randomUUID())
+                .build();
+    }
+}
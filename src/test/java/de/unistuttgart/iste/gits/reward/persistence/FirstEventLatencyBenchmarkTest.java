@@ -0,0 +1,137 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark for the first event of new users, which creates their reward scores.
+ * The reward scores are calculated with the real score calculators; only the content service is replaced by a
+ * course whose contents are due, with the content of the event learned.
+ * The contents of the course are fetched once per user and the reward scores of each user are inserted once,
+ * without an additional update. The latency is logged to compare it with other implementations.
+ */
+@SpringBootTest(properties = StatementCounter.ENABLE_STATISTICS)
+@Slf4j
+class FirstEventLatencyBenchmarkTest {
+
+    private static final int USERS = 100;
+    private static final int CONTENTS = 10;
+    private static final int REWARD_POINTS = 10;
+
+    @MockBean
+    private CourseContentProvider courseContentProvider;
+
+    @Autowired
+    private RewardService rewardService;
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID learnedContentId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws ContentServiceConnectionException {
+        final List<Content> contents = new ArrayList<>(CONTENTS);
+        contents.add(createContent(learnedContentId, List.of(ProgressLogItem.builder()
+                .setTimestamp(OffsetDateTime.now())
+                .setCorrectness(1.0)
+                .setHintsUsed(0)
+                .setSuccess(true)
+                .build())));
+        for (int i = 1; i < CONTENTS; i++) {
+            contents.add(createContent(UUID.randomUUID(), List.of()));
+        }
+        when(courseContentProvider.getContentsOfCourse(any(), any())).thenReturn(contents);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        scoreboardEntryRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+    }
+
+    /**
+     * Given many users without reward scores
+     * When the first event of each user is processed
+     * Then the contents are fetched once per user and the reward scores are inserted once and not updated,
+     * with the growth of the learned content
+     */
+    @Test
+    void testFirstEventOfNewUsers() throws ContentServiceConnectionException {
+        final StatementCounter statementCounter = new StatementCounter(entityManagerFactory);
+        final UUID courseId = UUID.randomUUID();
+
+        statementCounter.reset();
+        final long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            rewardService.calculateScoresOnContentWorkedOn(UserProgressUpdatedEvent.builder()
+                    .courseId(courseId)
+                    .userId(UUID.randomUUID())
+                    .contentId(learnedContentId)
+                    .correctness(1.0)
+                    .hintsUsed(0)
+                    .success(true)
+                    .build());
+        }
+        final long micros = (System.nanoTime() - start) / 1000;
+
+        assertThat(statementCounter.getInserts(AllRewardScoresEntity.class), is((long) USERS));
+        assertThat(statementCounter.getUpdates(AllRewardScoresEntity.class), is(0L));
+        assertThat(allRewardScoresRepository.findAll().stream().map(scores -> scores.getGrowth().getValue()).toList(),
+                everyItem(is(REWARD_POINTS)));
+        assertThat(allRewardScoresRepository.findAll().stream().map(scores -> scores.getPower().getValue()).toList(),
+                everyItem(greaterThan(0)));
+        verify(courseContentProvider, times(USERS)).getContentsOfCourse(eq(courseId), any());
+        verify(courseContentProvider, never()).getContentsOfCourseForUsers(any(), any());
+
+        log.info("Processed the first event of {} users in {} us ({} us per user)", USERS, micros, micros / USERS);
+    }
+
+    /**
+     * Creates a content with a past suggested date, which is learned if its progress log is not empty.
+     */
+    private static Content createContent(final UUID contentId, final List<ProgressLogItem> progressLog) {
+        return MediaContent.builder()
+                .setId(contentId)
+                .setMetadata(ContentMetadata.builder()
+                        .setRewardPoints(REWARD_POINTS)
+                        .setSuggestedDate(OffsetDateTime.now().minusDays(1))
+                        .build())
+                .setUserProgressData(UserProgressData.builder()
+                        .setIsLearned(!progressLog.isEmpty())
+                        .setIsDueForReview(false)
+                        .setLog(progressLog)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.RewardScoreLogRepository;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Benchmark for writing the reward scores and their logs of many users, as done by the nightly recalculation.
+ * The statements needed with the configured JDBC batching are compared to the statements needed without batching.
+ */
+@SpringBootTest(properties = StatementCounter.ENABLE_STATISTICS)
+@Slf4j
+class RewardScoreLogBatchingTest {
+
+    private static final int USERS = 200;
+    private static final int LOG_ENTRIES_PER_SCORE = 2;
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+    }
+
+    /**
+     * Given the reward scores of many users, each with new log entries
+     * When they are saved in one transaction
+     * Then the inserts are grouped into JDBC batches and need far fewer statements than without batching
+     */
+    @Test
+    void testLogEntriesAreInsertedInBatches() {
+        final long unbatchedStatements = saveRewardScoresOfUsers(1);
+        final long batchedStatements = saveRewardScoresOfUsers(null);
+
+        assertThat(batchedStatements, lessThan(unbatchedStatements / 5));
+    }
+
+    /**
+     * Saves the reward scores of {@link #USERS} users in one transaction.
+     *
+     * @param jdbcBatchSize the batch size of the session, or null to use the configured batch size
+     * @return the number of prepared statements
+     */
+    private long saveRewardScoresOfUsers(final Integer jdbcBatchSize) {
+        final StatementCounter statementCounter = new StatementCounter(entityManagerFactory);
+        final UUID courseId = UUID.randomUUID();
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            entities.add(createRewardScores(courseId, UUID.randomUUID()));
+        }
+
+        statementCounter.reset();
+        final long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            rewardService.saveAllRewardScores(entities);
+        });
+        final long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        final long statements = statementCounter.getStatements();
+        log.info("Saved reward scores of {} users with batch size {}: {} statements in {} ms ({} statements/s)",
+                USERS, jdbcBatchSize == null ? "default" : jdbcBatchSize, statements, millis, statements * 1000 / millis);
+        return statements;
+    }
+
+    private static AllRewardScoresEntity createRewardScores(final UUID courseId, final UUID userId) {
+        return AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(courseId, userId))
+                .health(createRewardScore(100))
+                .fitness(createRewardScore(100))
+                .growth(createRewardScore(0))
+                .strength(createRewardScore(0))
+                .power(createRewardScore(0))
+                .build();
+    }
+
+    private static RewardScoreEntity createRewardScore(final int value) {
+        final List<RewardScoreLogEntry> log = new ArrayList<>();
+        for (int i = 0; i < LOG_ENTRIES_PER_SCORE; i++) {
+            log.add(RewardScoreLogEntry.builder()
+                    .date(OffsetDateTime.now())
+                    .difference(1)
+                    .oldValue(value)
+                    .newValue(value + 1)
+                    .reason(RewardChangeReason.CONTENT_DONE)
+                    .associatedContentIds(List.of(UUID.randomUUID()))
+                    .build());
+        }
+        return RewardScoreEntity.builder()
+                .value(value)
+                .log(log)
+                .build();
+    }
+}
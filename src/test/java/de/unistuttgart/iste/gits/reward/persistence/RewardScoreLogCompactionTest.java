@@ -0,0 +1,138 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
+import de.unistuttgart.iste.gits.reward.service.RewardScoreKey;
+import de.unistuttgart.iste.gits.reward.service.RewardScoreLogCompactor;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests that the log compaction keeps the most recent log entries of a reward score
+ * and rolls older log entries up into archive entries, with PostgreSQL 15, which generates the ids of the
+ * archive entries with gen_random_uuid().
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:postgresql:15:///reward-service",
+        "reward.log_compaction.keep_entries=3",
+        "reward.log_compaction.rollup_period=DAY"})
+class RewardScoreLogCompactionTest {
+
+    private static final int LOG_ENTRIES = 10;
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+
+    @Autowired
+    private RewardScoreLogArchiveRepository rewardScoreLogArchiveRepository;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private RewardScoreLogCompactor rewardScoreLogCompactor;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+        rewardScoreLogArchiveRepository.deleteAll();
+    }
+
+    /**
+     * Given a health score with a log entry on each of the last ten days
+     * When the logs are compacted
+     * Then the three most recent log entries are kept and the others are rolled up into one archive entry per day
+     */
+    @Test
+    void testOldLogEntriesAreArchived() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        saveHealthLog(courseId, userId);
+
+        rewardScoreLogCompactor.compactAllLogs();
+
+        final List<RewardScoreLogEntry> keptEntries = rewardScoreLogRepository.findLogOfRewardScore(
+                courseId, userId, RewardScoreType.HEALTH, PageRequest.of(0, LOG_ENTRIES));
+        assertThat(keptEntries, hasSize(3));
+        assertThat(keptEntries.get(2).getNewValue(), is(92));
+
+        final List<RewardScoreLogArchiveEntry> archive
+                = rewardScoreLogArchiveRepository.findArchiveOfRewardScore(courseId, userId, RewardScoreType.HEALTH);
+        assertThat(archive, hasSize(LOG_ENTRIES - 3));
+        assertThat(archive.stream().mapToInt(RewardScoreLogArchiveEntry::getEntryCount).sum(), is(LOG_ENTRIES - 3));
+        assertThat(archive.get(0).getNewValue(), is(93));
+
+        // compacting again does not change anything
+        rewardScoreLogCompactor.compactAllLogs();
+        assertThat(rewardScoreLogArchiveRepository.count(), is((long) LOG_ENTRIES - 3));
+    }
+
+    /**
+     * Given a health score whose log was compacted
+     * When the log is read page by page
+     * Then the kept log entries are followed by the archived log entries, so that no change is missing
+     */
+    @Test
+    void testArchivedLogEntriesFollowKeptLogEntriesInLogPages() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        saveHealthLog(courseId, userId);
+        rewardScoreLogCompactor.compactAllLogs();
+
+        final RewardScoreKey rewardScore = new RewardScoreKey(courseId, userId, RewardScoreType.HEALTH);
+        final List<RewardLogItem> items = new ArrayList<>();
+        String after = null;
+        RewardLogConnection page;
+        do {
+            page = rewardService.getRewardScoreLogPage(rewardScore, null, 2, after);
+            items.addAll(page.getElements());
+            after = page.getEndCursor();
+        } while (page.getHasNext());
+
+        assertThat(items, hasSize(LOG_ENTRIES));
+        assertThat(items.stream().map(RewardLogItem::getEntryCount).toList(), everyItem(is(1)));
+        assertThat(items.stream().map(RewardLogItem::getNewValue).toList(),
+                contains(90, 91, 92, 93, 94, 95, 96, 97, 98, 99));
+        assertThat(items.get(3).getAssociatedContentIds(), is(empty()));
+    }
+
+    private void saveHealthLog(final UUID courseId, final UUID userId) {
+        final OffsetDateTime now = OffsetDateTime.now();
+
+        final List<RewardScoreLogEntry> healthLog = new ArrayList<>();
+        for (int i = 0; i < LOG_ENTRIES; i++) {
+            healthLog.add(RewardScoreLogEntry.builder()
+                    .date(now.minusDays(i))
+                    .difference(-1)
+                    .oldValue(100 - LOG_ENTRIES + i + 1)
+                    .newValue(100 - LOG_ENTRIES + i)
+                    .reason(RewardChangeReason.CONTENT_DUE_FOR_LEARNING)
+                    .associatedContentIds(List.of(UUID.randomUUID()))
+                    .build());
+        }
+
+        rewardService.saveAllRewardScores(List.of(AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(courseId, userId))
+                .health(RewardScoreEntity.builder().value(90).log(healthLog).build())
+                .fitness(rewardService.initializeRewardScoreEntity(100))
+                .growth(rewardService.initializeRewardScoreEntity(0))
+                .strength(rewardService.initializeRewardScoreEntity(0))
+                .power(rewardService.initializeRewardScoreEntity(0))
+                .build()));
+    }
+}
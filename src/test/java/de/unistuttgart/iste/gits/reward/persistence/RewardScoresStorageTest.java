@@ -0,0 +1,76 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the statements needed to read and write the reward scores of many users.
+ * The five reward scores of a user are stored in one row, so writing new reward scores inserts one row per user
+ * and reading the reward scores of a user needs a single statement without joins.
+ */
+@SpringBootTest(properties = StatementCounter.ENABLE_STATISTICS)
+class RewardScoresStorageTest {
+
+    private static final int USERS = 200;
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+    }
+
+    /**
+     * Given the new reward scores of many users
+     * When they are saved and read again user by user
+     * Then one row is inserted per user and each read needs one statement
+     */
+    @Test
+    void testReadAndWriteRewardScores() {
+        final StatementCounter statementCounter = new StatementCounter(entityManagerFactory);
+        final UUID courseId = UUID.randomUUID();
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            entities.add(AllRewardScoresEntity.builder()
+                    .id(new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()))
+                    .health(rewardService.initializeRewardScoreEntity(100))
+                    .fitness(rewardService.initializeRewardScoreEntity(100))
+                    .growth(rewardService.initializeRewardScoreEntity(0))
+                    .strength(rewardService.initializeRewardScoreEntity(0))
+                    .power(rewardService.initializeRewardScoreEntity(0))
+                    .build());
+        }
+
+        statementCounter.reset();
+        rewardService.saveAllRewardScores(entities);
+
+        assertThat(statementCounter.getInserts(), is((long) USERS));
+
+        statementCounter.reset();
+        for (final AllRewardScoresEntity entity : entities) {
+            final RewardScoreEntity power = allRewardScoresRepository.findById(entity.getId()).orElseThrow().getPower();
+            assertThat(power.getValue(), is(0));
+        }
+
+        assertThat(statementCounter.getStatements(), is((long) USERS));
+    }
+}
@@ -0,0 +1,194 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.reward.persistence.converter.UuidListConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the migration of databases with an old layout by schema.sql.
+ * Uses its own database with the layout of the first release instead of the database of the application tests,
+ * which already has the current layout.
+ */
+class SchemaMigrationTest {
+
+    /**
+     * The statement separator of schema.sql, see spring.sql.init.separator.
+     */
+    private static final String SEPARATOR = "^;";
+
+    private final SingleConnectionDataSource dataSource
+            = new SingleConnectionDataSource("jdbc:tc:postgresql:///reward-service-migration", "root", "root", true);
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    private final UUID courseId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @AfterEach
+    void closeDatabase() {
+        // closing the only connection stops the database container
+        dataSource.destroy();
+    }
+
+    /**
+     * Given a database with the layout of the first release, with reward scores and a log entry of the fitness score
+     * When schema.sql is executed
+     * Then the values of the reward scores and the owner of the log entry are copied into the new columns
+     * and the old tables and columns are dropped
+     */
+    @Test
+    void testMigrateRewardScoresToColumns() {
+        createBaselineLayout();
+        final UUID logEntryId = insertBaselineRewardScores(true);
+
+        runSchemaSql(false);
+
+        final Map<String, Object> scores = jdbcTemplate.queryForMap(
+                "SELECT * FROM reward_scores WHERE course_id = ? AND user_id = ?", courseId, userId);
+        assertThat(scores.get("health_value"), is(90));
+        assertThat(scores.get("fitness_value"), is(80));
+        assertThat(scores.get("growth_value"), is(30));
+        assertThat(scores.get("growth_percentage"), is(0.5f));
+        assertThat(scores.get("strength_value"), is(0));
+        assertThat(scores.get("power_value"), is(17));
+        assertThat(scores.get("version"), is(0L));
+        assertThat(scores, not(hasKey("health_id")));
+
+        final Map<String, Object> logEntry
+                = jdbcTemplate.queryForMap("SELECT * FROM reward_score_log_entry WHERE id = ?", logEntryId);
+        assertThat(logEntry.get("course_id"), is(courseId));
+        assertThat(logEntry.get("user_id"), is(userId));
+        assertThat(logEntry.get("score_type"), is(1));
+        assertThat(logEntry.get("difference"), is(-20));
+
+        assertThat(findTables(), not(hasItem("reward_score")));
+        assertThat(findTables(), not(hasItem("reward_score_log")));
+
+        // running the migration again does not change anything
+        runSchemaSql(false);
+        assertThat(jdbcTemplate.queryForObject("SELECT health_value FROM reward_scores", Integer.class), is(90));
+    }
+
+    /**
+     * Given a database with the layout of the first release, with reward scores whose power score row is missing
+     * When schema.sql is executed and the migration fails
+     * Then the migration of the reward scores changes nothing, so that the old tables and columns still hold all
+     * values
+     */
+    @Test
+    void testFailedMigrationChangesNothing() {
+        createBaselineLayout();
+        jdbcTemplate.execute("ALTER TABLE reward_scores DROP CONSTRAINT reward_scores_power_id_fkey");
+        insertBaselineRewardScores(false);
+
+        runSchemaSql(true);
+
+        final Map<String, Object> scores = jdbcTemplate.queryForMap("SELECT * FROM reward_scores");
+        assertThat(scores, hasKey("health_id"));
+        assertThat(scores, not(hasKey("health_value")));
+        assertThat(findTables(), hasItems("reward_score", "reward_score_log"));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM reward_score", Integer.class), is(4));
+    }
+
+    /**
+     * Given a database with the layout of the first release, with a log entry with two associated content ids
+     * When schema.sql is executed
+     * Then the content ids are copied into the binary column of the log entry and their table is dropped
+     */
+    @Test
+    void testMigrateAssociatedContentIdsToBinaryColumn() {
+        createBaselineLayout();
+        final UUID logEntryId = insertBaselineRewardScores(true);
+        final List<UUID> contentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        for (final UUID contentId : contentIds) {
+            jdbcTemplate.update("INSERT INTO reward_score_log_entry_associated_content_ids VALUES (?, ?)",
+                    logEntryId, contentId);
+        }
+
+        runSchemaSql(false);
+
+        final byte[] storedContentIds = jdbcTemplate.queryForObject(
+                "SELECT associated_content_ids FROM reward_score_log_entry WHERE id = ?", byte[].class, logEntryId);
+        assertThat(new UuidListConverter().convertToEntityAttribute(storedContentIds),
+                containsInAnyOrder(contentIds.toArray()));
+        assertThat(findTables(), not(hasItem("reward_score_log_entry_associated_content_ids")));
+    }
+
+    /**
+     * Creates the tables of the first release, as Hibernate created them.
+     */
+    private void createBaselineLayout() {
+        jdbcTemplate.execute("""
+                CREATE TABLE reward_score (
+                    id UUID PRIMARY KEY, value INTEGER NOT NULL, percentage REAL NOT NULL);
+                CREATE TABLE reward_scores (
+                    course_id UUID NOT NULL, user_id UUID NOT NULL,
+                    health_id UUID NOT NULL REFERENCES reward_score,
+                    fitness_id UUID NOT NULL REFERENCES reward_score,
+                    growth_id UUID NOT NULL REFERENCES reward_score,
+                    strength_id UUID NOT NULL REFERENCES reward_score,
+                    power_id UUID NOT NULL REFERENCES reward_score,
+                    PRIMARY KEY (course_id, user_id));
+                CREATE TABLE reward_score_log_entry (
+                    id UUID PRIMARY KEY, date TIMESTAMP(6) WITH TIME ZONE NOT NULL, difference INTEGER NOT NULL,
+                    old_value INTEGER NOT NULL, new_value INTEGER NOT NULL, reason SMALLINT NOT NULL);
+                CREATE TABLE reward_score_log (
+                    reward_score_id UUID NOT NULL REFERENCES reward_score,
+                    log_id UUID NOT NULL UNIQUE REFERENCES reward_score_log_entry);
+                CREATE TABLE reward_score_log_entry_associated_content_ids (
+                    reward_score_log_entry_id UUID NOT NULL REFERENCES reward_score_log_entry,
+                    associated_content_ids UUID);
+                """);
+    }
+
+    /**
+     * Inserts the reward scores of a user with a log entry of the fitness score.
+     *
+     * @param withPower whether the row of the power score is inserted
+     * @return the id of the log entry
+     */
+    private UUID insertBaselineRewardScores(final boolean withPower) {
+        final UUID healthId = insertRewardScore(90, 0f);
+        final UUID fitnessId = insertRewardScore(80, 0f);
+        final UUID growthId = insertRewardScore(30, 0.5f);
+        final UUID strengthId = insertRewardScore(0, 0f);
+        final UUID powerId = withPower ? insertRewardScore(17, 0f) : UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO reward_scores VALUES (?, ?, ?, ?, ?, ?, ?)",
+                courseId, userId, healthId, fitnessId, growthId, strengthId, powerId);
+
+        final UUID logEntryId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO reward_score_log_entry VALUES (?, now(), -20, 100, 80, 3)", logEntryId);
+        jdbcTemplate.update("INSERT INTO reward_score_log VALUES (?, ?)", fitnessId, logEntryId);
+        return logEntryId;
+    }
+
+    private UUID insertRewardScore(final int value, final float percentage) {
+        final UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO reward_score VALUES (?, ?, ?)", id, value, percentage);
+        return id;
+    }
+
+    private List<String> findTables() {
+        return jdbcTemplate.queryForList(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = current_schema()",
+                String.class);
+    }
+
+    private void runSchemaSql(final boolean continueOnError) {
+        final ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        populator.setSeparator(SEPARATOR);
+        populator.setContinueOnError(continueOnError);
+        populator.execute(dataSource);
+    }
+}
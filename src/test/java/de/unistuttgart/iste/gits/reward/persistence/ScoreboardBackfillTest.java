@@ -0,0 +1,72 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.ScoreboardEntryRepository;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import de.unistuttgart.iste.gits.reward.service.ScoreboardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+/**
+ * Tests that the scoreboard entries of reward scores that were created before the scoreboard was materialized
+ * are added when the application starts.
+ */
+@SpringBootTest
+class ScoreboardBackfillTest {
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+
+    @Autowired
+    private ScoreboardService scoreboardService;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        scoreboardEntryRepository.deleteAll();
+    }
+
+    /**
+     * Given reward scores of two users, where only one of them has a scoreboard entry with an outdated power score
+     * When the missing scoreboard entries are added
+     * Then the other user gets an entry with its power score and the existing entry is not changed
+     */
+    @Test
+    void testAddMissingEntries() {
+        final UUID courseId = UUID.randomUUID();
+        final AllRewardScoresEntity withEntry = allRewardScoresRepository.save(createAllRewardScores(courseId, 10));
+        final AllRewardScoresEntity withoutEntry = allRewardScoresRepository.save(createAllRewardScores(courseId, 20));
+        scoreboardEntryRepository.save(new ScoreboardEntryEntity(withEntry.getId(), 5));
+
+        scoreboardService.addMissingEntries();
+
+        assertThat(scoreboardEntryRepository.findAll(), containsInAnyOrder(
+                new ScoreboardEntryEntity(withEntry.getId(), 5),
+                new ScoreboardEntryEntity(withoutEntry.getId(), 20)));
+    }
+
+    private AllRewardScoresEntity createAllRewardScores(final UUID courseId, final int power) {
+        return AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()))
+                .health(rewardService.initializeRewardScoreEntity(100))
+                .fitness(rewardService.initializeRewardScoreEntity(100))
+                .growth(rewardService.initializeRewardScoreEntity(0))
+                .strength(rewardService.initializeRewardScoreEntity(0))
+                .power(rewardService.initializeRewardScoreEntity(power))
+                .build();
+    }
+}
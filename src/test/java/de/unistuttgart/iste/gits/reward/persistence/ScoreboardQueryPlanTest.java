@@ -0,0 +1,73 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.ScoreboardEntryEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.ScoreboardEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests that the scoreboard of a course is read in both directions from the index of the scoreboard entries,
+ * without sorting the rows.
+ */
+@SpringBootTest
+class ScoreboardQueryPlanTest {
+
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        scoreboardEntryRepository.deleteAll();
+    }
+
+    /**
+     * Given the scoreboard entries of a course
+     * When the plans of the queries for the top of the scoreboard and for the users ranked above a user are created
+     * Then both queries scan the index, the second one backwards, and do not sort the rows
+     */
+    @Test
+    void testScoreboardIsReadFromIndexWithoutSorting() {
+        final UUID courseId = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            scoreboardEntryRepository.save(new ScoreboardEntryEntity(
+                    new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()), i % 3));
+        }
+
+        final String topPlan = explain("SELECT * FROM scoreboard_entry WHERE course_id = '" + courseId + "'"
+                                       + " ORDER BY power_score DESC, user_id LIMIT 5");
+        assertThat(topPlan, containsString("idx_scoreboard_entry_course_rank"));
+        assertThat(topPlan, not(containsString("Sort")));
+
+        final String abovePlan = explain("SELECT * FROM scoreboard_entry WHERE course_id = '" + courseId + "'"
+                                         + " AND power_score > 1 ORDER BY power_score, user_id DESC LIMIT 5");
+        assertThat(abovePlan, containsString("Backward using idx_scoreboard_entry_course_rank"));
+        assertThat(abovePlan, not(containsString("Sort")));
+    }
+
+    /**
+     * Returns the plan of the query, with sequential scans disabled, because they are cheaper for the few rows
+     * of the test.
+     */
+    private String explain(final String query) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package de.unistuttgart.iste.gits.reward.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts the statements and the entity inserts and updates executed by Hibernate, for tests that check how many
+ * statements an operation needs. Hibernate only collects the counts if the test sets {@link #ENABLE_STATISTICS}.
+ */
+final class StatementCounter {
+
+    /**
+     * The property that enables the statistics of Hibernate, to be set in the properties of the test.
+     */
+    static final String ENABLE_STATISTICS = "spring.jpa.properties.hibernate.generate_statistics=true";
+
+    private final Statistics statistics;
+
+    StatementCounter(final EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Resets all counts to zero.
+     */
+    void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * Returns the number of prepared statements since the last reset.
+     */
+    long getStatements() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Returns the number of inserted entities of all types since the last reset.
+     */
+    long getInserts() {
+        return statistics.getEntityInsertCount();
+    }
+
+    /**
+     * Returns the number of inserted entities of the given type since the last reset.
+     */
+    long getInserts(final Class<?> entityClass) {
+        return statistics.getEntityStatistics(entityClass.getName()).getInsertCount();
+    }
+
+    /**
+     * Returns the number of updated entities of the given type since the last reset.
+     */
+    long getUpdates(final Class<?> entityClass) {
+        return statistics.getEntityStatistics(entityClass.getName()).getUpdateCount();
+    }
+}
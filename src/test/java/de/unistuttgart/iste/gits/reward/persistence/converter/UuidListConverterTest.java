@@ -0,0 +1,57 @@
+package de.unistuttgart.iste.gits.reward.persistence.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UuidListConverterTest {
+
+    private final UuidListConverter converter = new UuidListConverter();
+
+    /**
+     * Given a list of UUIDs
+     * When it is converted to the database column and back
+     * Then the same UUIDs are returned in the same order, stored with 16 bytes each
+     */
+    @Test
+    void testRoundTrip() {
+        final List<UUID> uuids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        final byte[] bytes = converter.convertToDatabaseColumn(uuids);
+
+        assertThat(bytes.length, is(48));
+        assertThat(converter.convertToEntityAttribute(bytes), is(uuids));
+    }
+
+    /**
+     * Given a UUID
+     * When it is converted to the database column
+     * Then the bytes are the hexadecimal digits of the UUID, like in PostgreSQL's uuid type
+     */
+    @Test
+    void testByteOrder() {
+        final UUID uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+
+        final byte[] bytes = converter.convertToDatabaseColumn(List.of(uuid));
+
+        assertThat(HexFormat.of().formatHex(bytes), is("00112233445566778899aabbccddeeff"));
+    }
+
+    @Test
+    void testEmptyAndNull() {
+        assertThat(converter.convertToDatabaseColumn(List.of()).length, is(0));
+        assertThat(converter.convertToDatabaseColumn(null), is(nullValue()));
+        assertThat(converter.convertToEntityAttribute(new byte[0]), is(empty()));
+        assertThat(converter.convertToEntityAttribute(null), is(empty()));
+    }
+
+    @Test
+    void testInvalidLength() {
+        final byte[] bytes = new byte[17];
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(bytes));
+    }
+}
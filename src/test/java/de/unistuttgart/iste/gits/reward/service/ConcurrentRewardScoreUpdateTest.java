@@ -0,0 +1,128 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.RewardScoreLogRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.ScoreboardEntryRepository;
+import de.unistuttgart.iste.gits.reward.service.calculation.*;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress test for concurrent updates of the reward scores of the same user.
+ * Each update increments the strength score by one, so a lost update shows up as a strength score that is too low.
+ */
+@SpringBootTest(properties = "reward.conflict_retry.max_attempts=100")
+@Slf4j
+class ConcurrentRewardScoreUpdateTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @MockBean
+    private CourseContentProvider courseContentProvider;
+    @MockBean
+    private HealthScoreCalculator healthScoreCalculator;
+    @MockBean
+    private FitnessScoreCalculator fitnessScoreCalculator;
+    @MockBean
+    private GrowthScoreCalculator growthScoreCalculator;
+    @MockBean
+    private StrengthScoreCalculator strengthScoreCalculator;
+    @MockBean
+    private PowerScoreCalculator powerScoreCalculator;
+
+    @Autowired
+    private RewardService rewardService;
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+
+    @BeforeEach
+    void setUp() throws ContentServiceConnectionException {
+        when(courseContentProvider.getContentsOfCourse(any(), any())).thenReturn(List.of());
+        when(healthScoreCalculator.calculateOnContentWorkedOn(any(), any(CourseSnapshot.class), any()))
+                .thenAnswer(invocation -> invocation.<AllRewardScoresEntity>getArgument(0).getHealth());
+        when(fitnessScoreCalculator.calculateOnContentWorkedOn(any(), any(CourseSnapshot.class), any()))
+                .thenAnswer(invocation -> invocation.<AllRewardScoresEntity>getArgument(0).getFitness());
+        when(growthScoreCalculator.calculateOnContentWorkedOn(any(), any(CourseSnapshot.class), any()))
+                .thenAnswer(invocation -> invocation.<AllRewardScoresEntity>getArgument(0).getGrowth());
+        when(powerScoreCalculator.calculateOnContentWorkedOn(any(), any(CourseSnapshot.class), any()))
+                .thenAnswer(invocation -> invocation.<AllRewardScoresEntity>getArgument(0).getPower());
+        when(strengthScoreCalculator.calculateOnContentWorkedOn(any(), any(CourseSnapshot.class), any())).thenAnswer(invocation -> {
+            final RewardScoreEntity strength = invocation.<AllRewardScoresEntity>getArgument(0).getStrength();
+            strength.setValue(strength.getValue() + 1);
+            return strength;
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+        scoreboardEntryRepository.deleteAll();
+    }
+
+    /**
+     * Given many threads that update the reward scores of the same user at the same time
+     * When all updates are done
+     * Then no update was lost
+     */
+    @Test
+    void testConcurrentUpdatesAreNotLost() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        rewardService.getAllRewardScoresEntity(courseId, userId);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        final long start = System.nanoTime();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < UPDATES_PER_THREAD; j++) {
+                        rewardService.calculateScoresOnContentWorkedOn(UserProgressUpdatedEvent.builder()
+                                .courseId(courseId)
+                                .userId(userId)
+                                .contentId(UUID.randomUUID())
+                                .build());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        log.info("Applied {} concurrent updates in {} ms",
+                THREADS * UPDATES_PER_THREAD, (System.nanoTime() - start) / 1_000_000);
+
+        final AllRewardScoresEntity rewardScores = allRewardScoresRepository
+                .findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId)).orElseThrow();
+        assertThat(rewardScores.getStrength().getValue(), is(THREADS * UPDATES_PER_THREAD));
+        assertThat(rewardScores.getVersion(), is((long) THREADS * UPDATES_PER_THREAD));
+    }
+}
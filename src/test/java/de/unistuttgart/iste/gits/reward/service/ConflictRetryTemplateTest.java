@@ -0,0 +1,64 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class ConflictRetryTemplateTest {
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ConflictRetryTemplate conflictRetryTemplate
+            = new ConflictRetryTemplate(transactionTemplate, meterRegistry, 3);
+
+    /**
+     * Given an update that conflicts once
+     * When it is executed
+     * Then it is repeated and the result of the second attempt is returned
+     */
+    @Test
+    void testConflictingUpdateIsRepeated() {
+        final AtomicInteger attempts = new AtomicInteger();
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("RewardScores", "id");
+            }
+            return invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+        });
+
+        final String result = conflictRetryTemplate.execute("updating", () -> "updated");
+
+        assertThat(result, is("updated"));
+        assertThat(attempts.get(), is(2));
+        assertThat(meterRegistry.get("reward.conflicts").tag("result", "retried").counter().count(), is(1.0));
+        assertThat(meterRegistry.get("reward.conflicts").tag("result", "failed").counter().count(), is(0.0));
+    }
+
+    /**
+     * Given an update that always conflicts
+     * When it is executed
+     * Then it is tried the maximum number of times and the conflict is propagated
+     */
+    @Test
+    void testConflictIsPropagatedAfterMaxAttempts() {
+        when(transactionTemplate.execute(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException("RewardScores", "id"));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> conflictRetryTemplate.execute("updating", () -> "updated"));
+
+        verify(transactionTemplate, times(3)).execute(any());
+        assertThat(meterRegistry.get("reward.conflicts").tag("result", "retried").counter().count(), is(2.0));
+        assertThat(meterRegistry.get("reward.conflicts").tag("result", "failed").counter().count(), is(1.0));
+    }
+}
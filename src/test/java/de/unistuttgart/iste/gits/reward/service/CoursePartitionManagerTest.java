@@ -0,0 +1,198 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the storage mode in which the reward tables are partitioned by course, with PostgreSQL 15.
+ * The tests check the behavior with small courses; they do not measure the duration with realistic data sizes.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:postgresql:15:///reward-service",
+        "reward.storage.partitioned=true",
+        "reward.storage.lock_timeout_ms=500"})
+class CoursePartitionManagerTest {
+
+    private static final int COURSES = 5;
+    private static final int USERS_PER_COURSE = 500;
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private ScoreboardService scoreboardService;
+
+    @Autowired
+    private CoursePartitionManager coursePartitionManager;
+
+    @Autowired
+    private CourseRewardDataRemover courseRewardDataRemover;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+        scoreboardEntryRepository.deleteAll();
+    }
+
+    /**
+     * Given the reward data of several courses in the partitioned reward tables
+     * When the courses are partitioned and one of them is removed
+     * Then queries for a course only scan the partition of the course
+     * and removing the course drops its partitions without touching the other courses
+     */
+    @Test
+    void testPartitionAndRemoveCourses() throws Exception {
+        for (final String table : List.of("reward_scores", "scoreboard_entry", "reward_score_log_entry",
+                "reward_score_log_archive_entry")) {
+            assertThat(coursePartitionManager.isPartitioned(table), is(true));
+        }
+
+        final List<UUID> courseIds = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            courseIds.add(UUID.randomUUID());
+            saveRewardData(courseIds.get(i));
+        }
+
+        coursePartitionManager.partitionNewCourses();
+
+        final UUID removedCourseId = courseIds.get(0);
+        assertThat(coursePartitionManager.hasPartitions(removedCourseId), is(true));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(removedCourseId),
+                hasSize(USERS_PER_COURSE));
+
+        final String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT * FROM reward_scores WHERE course_id = '" + removedCourseId + "'", String.class));
+        assertThat(plan, containsString("reward_scores_" + removedCourseId.toString().replace("-", "")));
+        assertThat(plan, not(containsString("reward_scores_default")));
+
+        courseRewardDataRemover.removeCourse(removedCourseId).get(30, TimeUnit.SECONDS);
+
+        assertThat(coursePartitionManager.hasPartitions(removedCourseId), is(false));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(removedCourseId), is(empty()));
+        assertThat(scoreboardService.getScoreboard(removedCourseId), is(empty()));
+        assertThat(allRewardScoresRepository.count(), is((long) (COURSES - 1) * USERS_PER_COURSE));
+        assertThat(rewardScoreLogRepository.count(), is((long) (COURSES - 1) * USERS_PER_COURSE));
+    }
+
+    /**
+     * Given the reward data of a new course and a transaction that writes to the default partitions
+     * When the new courses are partitioned while the transaction is open
+     * Then the course is skipped after the lock timeout instead of waiting for the transaction,
+     * and it is partitioned at the next run
+     */
+    @Test
+    void testPartitionNewCoursesWithLockTimeout() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        saveRewardData(courseId);
+
+        runWhileLocked("reward_scores_default", "ROW EXCLUSIVE", coursePartitionManager::partitionNewCourses);
+        assertThat(coursePartitionManager.hasPartitions(courseId), is(false));
+
+        coursePartitionManager.partitionNewCourses();
+        assertThat(coursePartitionManager.hasPartitions(courseId), is(true));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId),
+                hasSize(USERS_PER_COURSE));
+    }
+
+    /**
+     * Given a partitioned course and a transaction that reads the scoreboard
+     * When the partitions of the course are dropped while the transaction is open
+     * Then dropping fails after the lock timeout instead of waiting for the transaction,
+     * and dropping again afterwards removes the partitions that are left
+     */
+    @Test
+    void testDropPartitionsOfCourseWithLockTimeout() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        saveRewardData(courseId);
+        coursePartitionManager.partitionNewCourses();
+
+        runWhileLocked("scoreboard_entry", "ACCESS SHARE", () ->
+                assertThrows(DataAccessException.class, () -> coursePartitionManager.dropPartitionsOfCourse(courseId)));
+        assertThat(coursePartitionManager.hasPartitions(courseId), is(true));
+
+        coursePartitionManager.dropPartitionsOfCourse(courseId);
+        assertThat(coursePartitionManager.hasPartitions(courseId), is(false));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId), is(empty()));
+    }
+
+    /**
+     * Runs the action while another transaction holds a lock on the table.
+     */
+    private void runWhileLocked(final String table, final String lockMode, final Runnable action) throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final CompletableFuture<Void> lockHolder = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("LOCK TABLE " + table + " IN " + lockMode + " MODE");
+                    locked.countDown();
+                    try {
+                        done.await(30, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        try {
+            assertThat(locked.await(30, TimeUnit.SECONDS), is(true));
+            action.run();
+        } finally {
+            done.countDown();
+            lockHolder.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void saveRewardData(final UUID courseId) {
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(USERS_PER_COURSE);
+        for (int i = 0; i < USERS_PER_COURSE; i++) {
+            final RewardScoreEntity health = rewardService.initializeRewardScoreEntity(100);
+            health.getLog().add(RewardScoreLogEntry.builder()
+                    .date(OffsetDateTime.now())
+                    .difference(0)
+                    .oldValue(100)
+                    .newValue(100)
+                    .reason(RewardChangeReason.CONTENT_DONE)
+                    .associatedContentIds(List.of(UUID.randomUUID()))
+                    .build());
+            entities.add(AllRewardScoresEntity.builder()
+                    .id(new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()))
+                    .health(health)
+                    .fitness(rewardService.initializeRewardScoreEntity(100))
+                    .growth(rewardService.initializeRewardScoreEntity(0))
+                    .strength(rewardService.initializeRewardScoreEntity(0))
+                    .power(rewardService.initializeRewardScoreEntity(0))
+                    .build());
+        }
+        scoreboardService.updateEntries(rewardService.saveAllRewardScores(entities));
+    }
+}
@@ -0,0 +1,247 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.RewardChangeReason;
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that the reward data of a deleted course is removed in chunks, without touching other courses,
+ * and that the removal is retried and resumed until it is complete.
+ */
+@SpringBootTest(properties = "reward.deletion.chunk_size=7")
+class CourseRewardDataRemoverTest {
+
+    private static final int USERS = 20;
+
+    @Autowired
+    private AllRewardScoresRepository allRewardScoresRepository;
+
+    @Autowired
+    private RewardScoreLogRepository rewardScoreLogRepository;
+
+    @Autowired
+    private ScoreboardEntryRepository scoreboardEntryRepository;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private ScoreboardService scoreboardService;
+
+    @Autowired
+    private PendingCourseDeletionRepository pendingCourseDeletionRepository;
+
+    @Autowired
+    private CourseRewardDataRemover courseRewardDataRemover;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        allRewardScoresRepository.deleteAll();
+        rewardScoreLogRepository.deleteAll();
+        scoreboardEntryRepository.deleteAll();
+        pendingCourseDeletionRepository.deleteAll();
+    }
+
+    /**
+     * Given the reward data of two courses, with more rows per course than the chunk size
+     * When one of the courses is removed
+     * Then all reward data of the removed course is deleted and the reward data of the other course is kept
+     */
+    @Test
+    void testRemoveCourse() throws Exception {
+        final UUID deletedCourseId = UUID.randomUUID();
+        final UUID otherCourseId = UUID.randomUUID();
+        saveRewardData(deletedCourseId);
+        saveRewardData(otherCourseId);
+
+        courseRewardDataRemover.removeCourse(deletedCourseId).get(30, TimeUnit.SECONDS);
+
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(deletedCourseId).size(), is(0));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(otherCourseId).size(), is(USERS));
+        assertThat(scoreboardService.getScoreboard(deletedCourseId).size(), is(0));
+        assertThat(scoreboardService.getScoreboard(otherCourseId).size(), is(USERS));
+        // each user of the other course has one log entry per reward score
+        assertThat(rewardScoreLogRepository.count(), is(USERS * 5L));
+        assertThat(pendingCourseDeletionRepository.existsById(deletedCourseId), is(false));
+        assertThat(courseRewardDataRemover.isDeleted(deletedCourseId), is(true));
+        assertThat(courseRewardDataRemover.isDeleted(otherCourseId), is(false));
+    }
+
+    /**
+     * Given the reward data of a course
+     * When the course is removed in a transaction
+     * Then the removal does not start before the transaction was committed, so that the marker of the course exists
+     */
+    @Test
+    void testRemoveCourseInTransaction() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        saveRewardData(courseId);
+
+        final Future<?> removed = new TransactionTemplate(transactionManager).execute(status -> {
+            final Future<?> future = courseRewardDataRemover.removeCourse(courseId);
+            assertThat(future.isDone(), is(false));
+            assertThat(courseRewardDataRemover.isDeleted(courseId), is(true));
+            return future;
+        });
+        removed.get(30, TimeUnit.SECONDS);
+
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId).size(), is(0));
+        assertThat(pendingCourseDeletionRepository.existsById(courseId), is(false));
+    }
+
+    /**
+     * Given the reward data of a course
+     * When the course is removed in a transaction that is rolled back
+     * Then the removal is not started and the course is not considered deleted
+     */
+    @Test
+    void testRemoveCourseInRolledBackTransaction() {
+        final UUID courseId = UUID.randomUUID();
+        saveRewardData(courseId);
+
+        final Future<?> removed = new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            return courseRewardDataRemover.removeCourse(courseId);
+        });
+
+        assertThrows(ExecutionException.class, () -> removed.get(30, TimeUnit.SECONDS));
+        assertThat(courseRewardDataRemover.isDeleted(courseId), is(false));
+        assertThat(pendingCourseDeletionRepository.existsById(courseId), is(false));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId).size(), is(USERS));
+    }
+
+    /**
+     * Given the reward data of a course whose removal was interrupted, so that it is still pending deletion
+     * When the pending deletions are resumed, as at the start of the application
+     * Then all reward data of the course is removed and its marker is deleted
+     */
+    @Test
+    void testResumePendingDeletions() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        saveRewardData(courseId);
+        pendingCourseDeletionRepository.save(new PendingCourseDeletionEntity(courseId, OffsetDateTime.now()));
+
+        courseRewardDataRemover.resumePendingDeletions();
+
+        assertThat(courseRewardDataRemover.isDeleted(courseId), is(true));
+        final long deadline = System.currentTimeMillis() + 30_000;
+        while (pendingCourseDeletionRepository.existsById(courseId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(pendingCourseDeletionRepository.existsById(courseId), is(false));
+        assertThat(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId).size(), is(0));
+        assertThat(rewardScoreLogRepository.count(), is(0L));
+    }
+
+    /**
+     * Given a course that was marked as pending deletion by another instance of the service
+     * When the pending deletions are refreshed
+     * Then the course is considered deleted without querying the database again
+     */
+    @Test
+    void testRefreshPendingDeletions() {
+        final UUID courseId = UUID.randomUUID();
+        final PendingCourseDeletionRepository pendingDeletions = mock(PendingCourseDeletionRepository.class);
+        when(pendingDeletions.findAllCourseIds()).thenReturn(List.of(courseId));
+        final CourseRewardDataRemover remover = new CourseRewardDataRemover(
+                mock(AllRewardScoresRepository.class),
+                mock(RewardScoreLogRepository.class),
+                mock(RewardScoreLogArchiveRepository.class),
+                mock(ScoreboardEntryRepository.class),
+                mock(CoursePartitionManager.class),
+                pendingDeletions,
+                7,
+                0);
+
+        assertThat(remover.isDeleted(courseId), is(false));
+        remover.refreshPendingDeletions();
+
+        assertThat(remover.isDeleted(courseId), is(true));
+        assertThat(remover.isDeleted(UUID.randomUUID()), is(false));
+        verify(pendingDeletions).findAllCourseIds();
+        verifyNoMoreInteractions(pendingDeletions);
+    }
+
+    /**
+     * Given a removal whose first attempt fails
+     * When the course is removed
+     * Then the removal is retried after the retry delay and the marker of the course is deleted afterwards
+     */
+    @Test
+    void testRetryFailedRemoval() throws Exception {
+        final UUID courseId = UUID.randomUUID();
+        final ScoreboardEntryRepository failingScoreboardEntryRepository = mock(ScoreboardEntryRepository.class);
+        final PendingCourseDeletionRepository pendingDeletions = mock(PendingCourseDeletionRepository.class);
+        when(failingScoreboardEntryRepository.deleteChunkOfCourse(courseId, 7))
+                .thenThrow(new IllegalStateException("test"))
+                .thenReturn(0);
+        final CourseRewardDataRemover remover = new CourseRewardDataRemover(
+                mock(AllRewardScoresRepository.class),
+                mock(RewardScoreLogRepository.class),
+                mock(RewardScoreLogArchiveRepository.class),
+                failingScoreboardEntryRepository,
+                mock(CoursePartitionManager.class),
+                pendingDeletions,
+                7,
+                0);
+
+        try {
+            remover.removeCourse(courseId).get(30, TimeUnit.SECONDS);
+        } finally {
+            remover.shutdown();
+        }
+
+        verify(failingScoreboardEntryRepository, times(2)).deleteChunkOfCourse(courseId, 7);
+        verify(pendingDeletions).save(any(PendingCourseDeletionEntity.class));
+        verify(pendingDeletions).deleteOfCourse(courseId);
+    }
+
+    private void saveRewardData(final UUID courseId) {
+        final List<AllRewardScoresEntity> entities = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            entities.add(AllRewardScoresEntity.builder()
+                    .id(new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()))
+                    .health(createRewardScore(100))
+                    .fitness(createRewardScore(100))
+                    .growth(createRewardScore(0))
+                    .strength(createRewardScore(0))
+                    .power(createRewardScore(0))
+                    .build());
+        }
+        scoreboardService.updateEntries(rewardService.saveAllRewardScores(entities));
+    }
+
+    private static RewardScoreEntity createRewardScore(final int value) {
+        final List<RewardScoreLogEntry> log = new ArrayList<>();
+        log.add(RewardScoreLogEntry.builder()
+                .date(OffsetDateTime.now())
+                .difference(0)
+                .oldValue(value)
+                .newValue(value)
+                .reason(RewardChangeReason.CONTENT_DONE)
+                .associatedContentIds(List.of(UUID.randomUUID()))
+                .build());
+        return RewardScoreEntity.builder()
+                .value(value)
+                .log(log)
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.persistence.entity.*;
+import de.unistuttgart.iste.gits.reward.service.calculation.*;
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class LazyDecayEvaluatorTest {
+
+    private final LazyDecayEvaluator lazyDecayEvaluator = createEvaluator(true);
+
+    /**
+     * Given reward scores whose decay was last applied three days ago and a content that is due but was never worked on
+     * When the pending decay is applied
+     * Then the health decay of each of the three missed nightly recalculations is applied with its own log entry,
+     * and applying it again right afterwards does not change anything
+     */
+    @Test
+    void testApplyDecayOfMissedNights() {
+        final OffsetDateTime evaluatedAt = OffsetDateTime.now().minusDays(3);
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(evaluatedAt);
+        final UUID contentId = UUID.randomUUID();
+        final List<Content> contents = List.of(createContent(contentId, OffsetDateTime.now().minusDays(10),
+                UserProgressData.builder().setIsLearned(false).build()));
+
+        assertThat(lazyDecayEvaluator.hasPendingDecay(allRewardScores), is(true));
+        final int nights = lazyDecayEvaluator.applyPendingDecay(allRewardScores, contents);
+
+        assertThat(nights, is(3));
+        final List<RewardScoreLogEntry> log = allRewardScores.getHealth().getLog();
+        assertThat(log, hasSize(3));
+        int expectedHealth = 100;
+        for (final RewardScoreLogEntry logEntry : log) {
+            // the content is between 7 and 10 days overdue at each of the nights
+            assertThat(logEntry.getDifference(), is(between(-5, -4)));
+            assertThat(logEntry.getReason(), is(RewardChangeReason.CONTENT_DUE_FOR_LEARNING));
+            assertThat(logEntry.getAssociatedContentIds(), contains(contentId));
+            assertThat(logEntry.getDate(), is(both(greaterThan(evaluatedAt)).and(lessThan(OffsetDateTime.now()))));
+            expectedHealth += logEntry.getDifference();
+        }
+        assertThat(allRewardScores.getHealth().getValue(), is(expectedHealth));
+        assertThat(allRewardScores.getFitness().getValue(), is(100));
+        assertThat(allRewardScores.getDecayEvaluatedAt(), is(greaterThan(evaluatedAt)));
+
+        assertThat(lazyDecayEvaluator.hasPendingDecay(allRewardScores), is(false));
+        assertThat(lazyDecayEvaluator.applyPendingDecay(allRewardScores, contents), is(0));
+        assertThat(allRewardScores.getHealth().getValue(), is(expectedHealth));
+    }
+
+    /**
+     * Given reward scores whose decay was last applied three days ago and a learned content that became due
+     * for review two days ago
+     * When the pending decay is applied
+     * Then the fitness decreases only at the nights at which the content was due for review
+     */
+    @Test
+    void testApplyFitnessDecayOnlyAfterNextLearnDate() {
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(OffsetDateTime.now().minusDays(3));
+        final UserProgressData progressData = UserProgressData.builder()
+                .setIsLearned(true)
+                .setIsDueForReview(true)
+                .setNextLearnDate(OffsetDateTime.now().minusDays(2))
+                .setLog(List.of(ProgressLogItem.builder()
+                        .setTimestamp(OffsetDateTime.now().minusDays(5))
+                        .setCorrectness(1.0)
+                        .setHintsUsed(0)
+                        .setSuccess(true)
+                        .build()))
+                .build();
+        final List<Content> contents = List.of(createContent(UUID.randomUUID(), null, progressData));
+
+        lazyDecayEvaluator.applyPendingDecay(allRewardScores, contents);
+
+        // the correctness of the last review was 100%, so the fitness decreases by 1 per night
+        final RewardScoreEntity fitness = allRewardScores.getFitness();
+        assertThat(fitness.getLog(), hasSize(between(2, 3)));
+        assertThat(fitness.getValue(), is(100 - fitness.getLog().size()));
+        assertThat(fitness.getLog().get(0).getReason(), is(RewardChangeReason.CONTENT_DUE_FOR_REPETITION));
+        assertThat(allRewardScores.getHealth().getValue(), is(100));
+    }
+
+    /**
+     * Given new reward scores without a time of the last decay evaluation
+     * When the pending decay is applied
+     * Then nothing is changed and the decay starts from now on
+     */
+    @Test
+    void testNewRewardScoresStartDecayingNow() {
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        final List<Content> contents = List.of(createContent(UUID.randomUUID(), OffsetDateTime.now().minusDays(10),
+                UserProgressData.builder().setIsLearned(false).build()));
+
+        assertThat(lazyDecayEvaluator.hasPendingDecay(allRewardScores), is(false));
+        assertThat(lazyDecayEvaluator.applyPendingDecay(allRewardScores, contents), is(0));
+
+        assertThat(allRewardScores.getHealth().getValue(), is(100));
+        assertThat(allRewardScores.getDecayEvaluatedAt(), is(notNullValue()));
+    }
+
+    /**
+     * Given a nightly schedule
+     * When the time of the last scheduled decay is requested
+     * Then it is within the last day, and reward scores evaluated right before it have a pending decay,
+     * while reward scores evaluated at it have none
+     */
+    @Test
+    void testLastDecayTime() {
+        final OffsetDateTime lastDecay = lazyDecayEvaluator.getLastDecayTime();
+
+        assertThat(lastDecay, is(both(greaterThan(OffsetDateTime.now().minusDays(1)))
+                .and(lessThanOrEqualTo(OffsetDateTime.now()))));
+        assertThat(lazyDecayEvaluator.hasPendingDecay(createAllRewardScoresEntity(lastDecay.minusSeconds(1))), is(true));
+        assertThat(lazyDecayEvaluator.hasPendingDecay(createAllRewardScoresEntity(lastDecay)), is(false));
+    }
+
+    /**
+     * Given the lazy mode is disabled
+     * When the pending decay is applied
+     * Then nothing is changed, because the decay is applied by the nightly recalculation
+     */
+    @Test
+    void testDisabled() {
+        final LazyDecayEvaluator disabledEvaluator = createEvaluator(false);
+        final OffsetDateTime evaluatedAt = OffsetDateTime.now().minusDays(3);
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(evaluatedAt);
+        final List<Content> contents = List.of(createContent(UUID.randomUUID(), OffsetDateTime.now().minusDays(10),
+                UserProgressData.builder().setIsLearned(false).build()));
+
+        assertThat(disabledEvaluator.hasPendingDecay(allRewardScores), is(false));
+        assertThat(disabledEvaluator.applyPendingDecay(allRewardScores, contents), is(0));
+
+        assertThat(allRewardScores.getHealth().getValue(), is(100));
+        assertThat(allRewardScores.getDecayEvaluatedAt(), is(evaluatedAt));
+    }
+
+    private static LazyDecayEvaluator createEvaluator(final boolean enabled) {
+        return new LazyDecayEvaluator(new HealthScoreCalculator(), new FitnessScoreCalculator(),
+                new PowerScoreCalculator(), enabled, "0 0 3 * * *");
+    }
+
+    private static Matcher<Integer> between(final int min, final int max) {
+        return both(greaterThanOrEqualTo(min)).and(lessThanOrEqualTo(max));
+    }
+
+    private static Content createContent(final UUID contentId,
+                                         final OffsetDateTime suggestedDate,
+                                         final UserProgressData userProgressData) {
+        return FlashcardSetAssessment.builder()
+                .setId(contentId)
+                .setMetadata(ContentMetadata.builder().setSuggestedDate(suggestedDate).build())
+                .setAssessmentMetadata(AssessmentMetadata.builder().build())
+                .setUserProgressData(userProgressData)
+                .build();
+    }
+
+    private static AllRewardScoresEntity createAllRewardScoresEntity(final OffsetDateTime decayEvaluatedAt) {
+        return AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID()))
+                .health(RewardScoreEntity.builder().value(100).log(new ArrayList<>()).build())
+                .fitness(RewardScoreEntity.builder().value(100).log(new ArrayList<>()).build())
+                .growth(RewardScoreEntity.builder().value(0).log(new ArrayList<>()).build())
+                .strength(RewardScoreEntity.builder().value(0).log(new ArrayList<>()).build())
+                .power(RewardScoreEntity.builder().value(0).log(new ArrayList<>()).build())
+                .decayEvaluatedAt(decayEvaluatedAt)
+                .build();
+    }
+}
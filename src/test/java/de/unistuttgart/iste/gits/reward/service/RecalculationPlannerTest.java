@@ -0,0 +1,172 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.service.calculation.CourseSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+class RecalculationPlannerTest {
+
+    private final LazyDecayEvaluator lazyDecayEvaluator = mock(LazyDecayEvaluator.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RecalculationPlanner recalculationPlanner
+            = new RecalculationPlanner(lazyDecayEvaluator, meterRegistry, 7);
+
+    private final OffsetDateTime now = OffsetDateTime.now();
+
+    /**
+     * Given a content that is due but was never worked on
+     * When the next recalculation is planned
+     * Then the reward scores are due immediately, because the health decreases every night
+     */
+    @Test
+    void testDueImmediatelyWhileHealthDecays() {
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.minusDays(1), null)), now);
+
+        recalculationPlanner.planNextRecalculation(allRewardScores, course);
+
+        assertThat(allRewardScores.getNextRecalculationAt(), is(now));
+    }
+
+    /**
+     * Given reward scores that are decaying and whose planned recalculation has already passed
+     * When the next recalculation is planned
+     * Then the planned time is kept, so that the reward scores are not written only to update it
+     */
+    @Test
+    void testPassedTimeIsKeptWhileDecaying() {
+        final OffsetDateTime planned = now.minusDays(1);
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(planned);
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.minusDays(1), null)), now);
+
+        recalculationPlanner.planNextRecalculation(allRewardScores, course);
+
+        assertThat(allRewardScores.getNextRecalculationAt(), is(planned));
+    }
+
+    /**
+     * Given a content whose suggested date is in two days and a learned content whose next learn date is in three days
+     * When the next recalculation is planned
+     * Then the reward scores are due when the suggested date passes
+     */
+    @Test
+    void testDueAtNextDueDate() {
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        final CourseSnapshot course = new CourseSnapshot(List.of(
+                createContent(now.plusDays(2), null),
+                createContent(null, now.plusDays(3))), now);
+
+        recalculationPlanner.planNextRecalculation(allRewardScores, course);
+
+        assertThat(allRewardScores.getNextRecalculationAt(), is(now.plusDays(2)));
+    }
+
+    /**
+     * Given no content that becomes due within the maximum interval
+     * When the next recalculation is planned
+     * Then the reward scores are due after the maximum interval
+     */
+    @Test
+    void testDueAfterMaxInterval() {
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.plusDays(30), null)), now);
+
+        recalculationPlanner.planNextRecalculation(allRewardScores, course);
+
+        assertThat(allRewardScores.getNextRecalculationAt(), is(now.plusDays(7)));
+    }
+
+    /**
+     * Given the decay is evaluated lazily and a content that is due but was never worked on
+     * When the next recalculation is planned
+     * Then the reward scores are not due immediately, because the nightly recalculation does not apply the decay
+     */
+    @Test
+    void testNotDueImmediatelyWithLazyDecay() {
+        when(lazyDecayEvaluator.isEnabled()).thenReturn(true);
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.minusDays(1), null)), now);
+
+        recalculationPlanner.planNextRecalculation(allRewardScores, course);
+
+        assertThat(allRewardScores.getNextRecalculationAt(), is(now.plusDays(7)));
+    }
+
+    /**
+     * Given reward scores that were last recalculated with the same contents and a content that becomes due later
+     * When it is checked whether the recalculation can be skipped
+     * Then it can be skipped and the skip is counted
+     */
+    @Test
+    void testUnchangedInputsAreSkipped() {
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.plusDays(2), null)), now);
+        final AllRewardScoresEntity allRewardScores = createAllRewardScoresEntity(null);
+        allRewardScores.setInputFingerprint(course.getFingerprint());
+
+        assertThat(recalculationPlanner.isUnchanged(allRewardScores, course), is(true));
+        assertThat(getInputsCount("skipped"), is(1.0));
+        assertThat(getInputsCount("recalculated"), is(0.0));
+    }
+
+    /**
+     * Given reward scores whose health decays, or which were changed by an event since their last recalculation
+     * When it is checked whether the recalculation can be skipped
+     * Then it cannot be skipped
+     */
+    @Test
+    void testDecayingOrChangedInputsAreRecalculated() {
+        final CourseSnapshot decayingCourse = new CourseSnapshot(List.of(createContent(now.minusDays(1), null)), now);
+        final AllRewardScoresEntity decaying = createAllRewardScoresEntity(null);
+        decaying.setInputFingerprint(decayingCourse.getFingerprint());
+
+        final CourseSnapshot course = new CourseSnapshot(List.of(createContent(now.plusDays(2), null)), now);
+        final AllRewardScoresEntity changedByEvent = createAllRewardScoresEntity(null);
+
+        assertThat(recalculationPlanner.isUnchanged(decaying, decayingCourse), is(false));
+        assertThat(recalculationPlanner.isUnchanged(changedByEvent, course), is(false));
+        assertThat(getInputsCount("recalculated"), is(2.0));
+    }
+
+    private double getInputsCount(final String result) {
+        return meterRegistry.get("reward.recalculation.inputs").tag("result", result).counter().count();
+    }
+
+    /**
+     * Creates a content that is learned if it has a next learn date.
+     */
+    private static Content createContent(final OffsetDateTime suggestedDate, final OffsetDateTime nextLearnDate) {
+        return MediaContent.builder()
+                .setId(UUID.randomUUID())
+                .setMetadata(ContentMetadata.builder().setSuggestedDate(suggestedDate).build())
+                .setUserProgressData(UserProgressData.builder()
+                        .setIsLearned(nextLearnDate != null)
+                        .setIsDueForReview(false)
+                        .setNextLearnDate(nextLearnDate)
+                        .build())
+                .build();
+    }
+
+    private static AllRewardScoresEntity createAllRewardScoresEntity(final OffsetDateTime nextRecalculationAt) {
+        return AllRewardScoresEntity.builder()
+                .id(new AllRewardScoresEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID()))
+                .health(RewardScoreEntity.builder().value(100).build())
+                .fitness(RewardScoreEntity.builder().value(100).build())
+                .growth(RewardScoreEntity.builder().value(0).build())
+                .strength(RewardScoreEntity.builder().value(0).build())
+                .power(RewardScoreEntity.builder().value(0).build())
+                .nextRecalculationAt(nextRecalculationAt)
+                .build();
+    }
+}
@@ -2,44 +2,79 @@ package de.unistuttgart.iste.gits.reward.service;
 
 import de.unistuttgart.iste.gits.common.event.*;
 import de.unistuttgart.iste.gits.common.exception.IncompleteEventMessageException;
-import de.unistuttgart.iste.gits.content_service.client.ContentServiceClient;
 import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
 import de.unistuttgart.iste.gits.generated.dto.*;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
 import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
 import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
 import de.unistuttgart.iste.gits.reward.persistence.mapper.RewardScoreMapper;
-import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import de.unistuttgart.iste.gits.reward.persistence.repository.*;
 import de.unistuttgart.iste.gits.reward.service.calculation.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class RewardServiceTest {
 
     private final AllRewardScoresRepository allRewardScoresRepository = mock(AllRewardScoresRepository.class);
+    private final RewardScoreLogRepository rewardScoreLogRepository = mock(RewardScoreLogRepository.class);
+    private final RewardScoreLogArchiveRepository rewardScoreLogArchiveRepository
+            = mock(RewardScoreLogArchiveRepository.class);
     private final RewardScoreMapper rewardScoreMapper = mock(RewardScoreMapper.class);
+    private final ScoreboardService scoreboardService = mock(ScoreboardService.class);
     private final HealthScoreCalculator healthScoreCalculator = mock(HealthScoreCalculator.class);
     private final FitnessScoreCalculator fitnessScoreCalculator = mock(FitnessScoreCalculator.class);
     private final StrengthScoreCalculator strengthScoreCalculator = mock(StrengthScoreCalculator.class);
     private final PowerScoreCalculator powerScoreCalculator = mock(PowerScoreCalculator.class);
     private final GrowthScoreCalculator growthScoreCalculator = mock(GrowthScoreCalculator.class);
 
-    private final ContentServiceClient contentServiceClient = mock(ContentServiceClient.class);
+    private final CourseContentProvider courseContentProvider = mock(CourseContentProvider.class);
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private final ConflictRetryTemplate conflictRetryTemplate = mock(ConflictRetryTemplate.class);
+
+    private final CourseRewardDataRemover courseRewardDataRemover = mock(CourseRewardDataRemover.class);
+
+    private final LazyDecayEvaluator lazyDecayEvaluator = mock(LazyDecayEvaluator.class);
+
+    private final RecalculationPlanner recalculationPlanner = mock(RecalculationPlanner.class);
 
     private final RewardService rewardService = new RewardService(
             allRewardScoresRepository,
+            rewardScoreLogRepository,
+            rewardScoreLogArchiveRepository,
             rewardScoreMapper,
+            scoreboardService,
             healthScoreCalculator,
             fitnessScoreCalculator,
             strengthScoreCalculator,
             powerScoreCalculator,
             growthScoreCalculator,
-            contentServiceClient);
+            courseContentProvider,
+            entityManager,
+            conflictRetryTemplate,
+            courseRewardDataRemover,
+            lazyDecayEvaluator,
+            recalculationPlanner);
+
+    @BeforeEach
+    void setUp() {
+        when(conflictRetryTemplate.execute(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
 
     /**
      * Given a courseId and userID
@@ -65,7 +100,7 @@ class RewardServiceTest {
     /**
      * Given a progressEvent
      * when calculateScoresOnContentWorkedOn is called
-     * Then update the rewardScores and return it
+     * Then update the rewardScores and the scoreboard entry and return it
      */
     @Test
     void testCalculateScoresOnContentWorkedOn() throws ContentServiceConnectionException {
@@ -91,25 +126,105 @@ class RewardServiceTest {
         final AllRewardScoresEntity allRewardScoresEntity = dummyAllRewardScoresBuilder(courseId, userID).build();
 
         final RewardScores expectedRewardScores = new RewardScores(
-                new RewardScore(100, 0, null),
-                new RewardScore(100, 0, null),
-                new RewardScore(0, 0, null),
-                new RewardScore(0, 0, null),
-                new RewardScore(0, 0, null));
+                createRewardScore(100),
+                createRewardScore(100),
+                createRewardScore(0),
+                createRewardScore(0),
+                createRewardScore(0));
 
         when(allRewardScoresRepository.findById(primaryKey)).thenReturn(Optional.ofNullable(allRewardScoresEntity));
         when(allRewardScoresRepository.save(any())).thenReturn(allRewardScoresEntity);
-        when(contentServiceClient.queryContentsOfCourse(userID, courseId)).thenReturn(contents);
+        when(courseContentProvider.getContentsOfCourse(courseId, userID)).thenReturn(contents);
         when(rewardScoreMapper.entityToDto(allRewardScoresEntity)).thenReturn(expectedRewardScores);
+        when(powerScoreCalculator.calculateOnContentWorkedOn(eq(allRewardScoresEntity), courseOf(contents), eq(event)))
+                .thenReturn(initializeRewardScoreEntity(10));
 
         final RewardScores rewardScores = rewardService.calculateScoresOnContentWorkedOn(event);
 
         assertThat(rewardScores, is(expectedRewardScores));
         verify(allRewardScoresRepository).save(any());
         verify(allRewardScoresRepository).findById(primaryKey);
-        verify(contentServiceClient).queryContentsOfCourse(userID, courseId);
+        verify(courseContentProvider).getContentsOfCourse(courseId, userID);
         verify(rewardScoreMapper).entityToDto(allRewardScoresEntity);
+        verify(scoreboardService).updateEntry(allRewardScoresEntity);
+
+    }
+
+    /**
+     * Given a progressEvent of a user without rewardScores
+     * when calculateScoresOnContentWorkedOn is called
+     * Then the contents are fetched once and the new rewardScores are saved once, with the initial health value
+     */
+    @Test
+    void testCalculateScoresOnFirstContentWorkedOn() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userID = UUID.randomUUID();
+
+        final AllRewardScoresEntity.PrimaryKey primaryKey = new AllRewardScoresEntity.PrimaryKey(courseId, userID);
+        final List<Content> contents = List.of(
+                createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .userId(userID)
+                .courseId(courseId)
+                .contentId(UUID.randomUUID())
+                .build();
+
+        when(allRewardScoresRepository.findById(primaryKey)).thenReturn(Optional.empty());
+        when(allRewardScoresRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseContentProvider.getContentsOfCourse(courseId, userID)).thenReturn(contents);
+        when(healthScoreCalculator.calculateInitialHealthValueForNewEntity(courseOf(contents))).thenReturn(80);
+        when(healthScoreCalculator.calculateOnContentWorkedOn(any(), courseOf(contents), eq(event)))
+                .thenAnswer(invocation -> invocation.<AllRewardScoresEntity>getArgument(0).getHealth());
+        when(powerScoreCalculator.calculateOnContentWorkedOn(any(), courseOf(contents), eq(event)))
+                .thenReturn(initializeRewardScoreEntity(0));
+
+        rewardService.calculateScoresOnContentWorkedOn(event);
+
+        verify(courseContentProvider, times(1)).getContentsOfCourse(courseId, userID);
+        verify(allRewardScoresRepository, times(1)).save(argThat(entity ->
+                entity.getId().equals(primaryKey) && entity.getHealth().getValue() == 80));
+        verify(scoreboardService, times(1)).updateEntry(any());
+    }
+
+    /**
+     * Given several progress events of the same user
+     * when calculateScoresOnContentsWorkedOn is called
+     * Then the rewardScores and the contents are loaded once, all events are applied in order
+     * and the rewardScores are saved once
+     */
+    @Test
+    void testCalculateScoresOnContentsWorkedOn() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userID = UUID.randomUUID();
+
+        final AllRewardScoresEntity.PrimaryKey primaryKey = new AllRewardScoresEntity.PrimaryKey(courseId, userID);
+        final List<Content> contents = List.of(
+                createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
+
+        final List<UserProgressUpdatedEvent> events = List.of(
+                UserProgressUpdatedEvent.builder().userId(userID).courseId(courseId).contentId(UUID.randomUUID()).build(),
+                UserProgressUpdatedEvent.builder().userId(userID).courseId(courseId).contentId(UUID.randomUUID()).build());
+
+        final AllRewardScoresEntity allRewardScoresEntity = dummyAllRewardScoresBuilder(courseId, userID).build();
+
+        when(allRewardScoresRepository.findById(primaryKey)).thenReturn(Optional.of(allRewardScoresEntity));
+        when(allRewardScoresRepository.save(any())).thenReturn(allRewardScoresEntity);
+        when(courseContentProvider.getContentsOfCourse(courseId, userID)).thenReturn(contents);
+        when(powerScoreCalculator.calculateOnContentWorkedOn(eq(allRewardScoresEntity), courseOf(contents), any()))
+                .thenReturn(initializeRewardScoreEntity(10), initializeRewardScoreEntity(20));
 
+        rewardService.calculateScoresOnContentsWorkedOn(events);
+
+        assertThat(allRewardScoresEntity.getPower().getValue(), is(20));
+        verify(allRewardScoresRepository).findById(primaryKey);
+        verify(courseContentProvider).getContentsOfCourse(courseId, userID);
+        final var inOrder = inOrder(powerScoreCalculator);
+        inOrder.verify(powerScoreCalculator)
+                .calculateOnContentWorkedOn(eq(allRewardScoresEntity), courseOf(contents), eq(events.get(0)));
+        inOrder.verify(powerScoreCalculator)
+                .calculateOnContentWorkedOn(eq(allRewardScoresEntity), courseOf(contents), eq(events.get(1)));
+        verify(allRewardScoresRepository).save(any());
+        verify(scoreboardService).updateEntry(allRewardScoresEntity);
     }
 
     /**
@@ -129,15 +244,15 @@ class RewardServiceTest {
         final List<Content> contents = List.of(createContentWithUserData(contentId, progressData));
 
         final RewardScores expectedRewardScores = new RewardScores(
-                new RewardScore(100, 0, null),
-                new RewardScore(100, 0, null),
-                new RewardScore(0, 0, null),
-                new RewardScore(0, 0, null),
-                new RewardScore(0, 0, null));
+                createRewardScore(100),
+                createRewardScore(100),
+                createRewardScore(0),
+                createRewardScore(0),
+                createRewardScore(0));
 
         when(allRewardScoresRepository.findById(primaryKey)).thenReturn(Optional.ofNullable(allRewardScoresEntity));
         when(allRewardScoresRepository.save(any())).thenReturn(allRewardScoresEntity);
-        when(contentServiceClient.queryContentsOfCourse(userId, courseId)).thenReturn(contents);
+        when(courseContentProvider.getContentsOfCourse(courseId, userId)).thenReturn(contents);
         when(rewardScoreMapper.entityToDto(allRewardScoresEntity)).thenReturn(expectedRewardScores);
 
         final RewardScores rewardScores = rewardService.recalculateScores(courseId, userId);
@@ -145,86 +260,279 @@ class RewardServiceTest {
         assertThat(rewardScores, is(expectedRewardScores));
         verify(allRewardScoresRepository).findById(primaryKey);
         verify(allRewardScoresRepository).save(any());
-        verify(contentServiceClient).queryContentsOfCourse(userId, courseId);
+        verify(courseContentProvider).getContentsOfCourse(courseId, userId);
         verify(rewardScoreMapper).entityToDto(allRewardScoresEntity);
 
     }
 
     /**
-     * Given courseId
-     * When getScoreboard is called
-     * Then the scoreboard for the course is returned
+     * Given the decay is evaluated lazily and reward scores that were saved before the lazy mode was enabled,
+     * without a time of the last decay evaluation
+     * When the reward scores are recalculated, or new reward scores are initialized
+     * Then both start decaying from now on, so that the pending decay is applied to them later
      */
     @Test
-    void testGetScoreboardSuccessfully() {
-        // arrange test data
+    void testRewardScoresWithoutDecayEvaluationStartDecayingWithLazyDecay() throws ContentServiceConnectionException {
         final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        final AllRewardScoresEntity allRewardScoresEntity = dummyAllRewardScoresBuilder(courseId, userId).build();
 
-        final UUID userId1 = UUID.randomUUID();
-        final UUID userId2 = UUID.randomUUID();
-        final UUID userId3 = UUID.randomUUID();
+        when(lazyDecayEvaluator.isEnabled()).thenReturn(true);
+        when(allRewardScoresRepository.findById(allRewardScoresEntity.getId()))
+                .thenReturn(Optional.of(allRewardScoresEntity));
+        when(allRewardScoresRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseContentProvider.getContentsOfCourse(courseId, userId)).thenReturn(List.of());
 
-        final AllRewardScoresEntity rewardScores1 = dummyAllRewardScoresBuilder(courseId, userId1).power(initializeRewardScoreEntity(10)).build();
-        final AllRewardScoresEntity rewardScores2 = dummyAllRewardScoresBuilder(courseId, userId2).power(initializeRewardScoreEntity(30)).build();
-        final AllRewardScoresEntity rewardScores3 = dummyAllRewardScoresBuilder(courseId, userId3).build();
+        rewardService.recalculateScores(courseId, userId);
 
-        final List<AllRewardScoresEntity> rewardScoresEntities = new ArrayList<>();
-        rewardScoresEntities.add(rewardScores1);
-        rewardScoresEntities.add(rewardScores2);
-        rewardScoresEntities.add(rewardScores3);
+        assertThat(allRewardScoresEntity.getDecayEvaluatedAt(), is(notNullValue()));
+        verify(healthScoreCalculator, never()).recalculateScore(any(), any(CourseSnapshot.class));
 
-        // mock repository
-        when(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId)).thenReturn(rewardScoresEntities);
+        final AllRewardScoresEntity newEntity = rewardService.initializeRewardScores(courseId, UUID.randomUUID());
 
-        // act
-        final List<ScoreboardItem> scoreboardItemList = rewardService.getScoreboard(courseId);
+        assertThat(newEntity.getDecayEvaluatedAt(), is(notNullValue()));
+    }
 
-        //assert
-        assertThat(scoreboardItemList.size(), is(3));
-        assertThat(scoreboardItemList.get(0).getUserId(), is(rewardScores2.getId().getUserId()));
-        assertThat(scoreboardItemList.get(1).getUserId(), is(rewardScores1.getId().getUserId()));
-        assertThat(scoreboardItemList.get(2).getUserId(), is(rewardScores3.getId().getUserId()));
+    /**
+     * Given the decay is evaluated lazily and reward scores of a course with a pending decay
+     * When the reward scores of the course are read
+     * Then the pending decay is applied and the decayed reward scores and their scoreboard entries are saved
+     */
+    @Test
+    void testGetRewardScoresOfCourseAppliesPendingDecay() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        final AllRewardScoresEntity entity = dummyAllRewardScoresBuilder(courseId, userId).build();
+        final List<Content> contents = List.of(createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
 
-        // verify that the repository was called
-        verify(allRewardScoresRepository, times(1)).findAllRewardScoresEntitiesById_CourseId(courseId);
+        when(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId)).thenReturn(List.of(entity));
+        when(lazyDecayEvaluator.hasPendingDecay(entity)).thenReturn(true);
+        when(courseContentProvider.getContentsOfCourseForUsers(courseId, List.of(userId)))
+                .thenReturn(Map.of(userId, contents));
+
+        rewardService.getRewardScoresOfCourse(courseId);
+
+        verify(lazyDecayEvaluator).applyPendingDecay(entity, contents);
+        verify(allRewardScoresRepository).saveAll(List.of(entity));
+        verify(scoreboardService).updateEntries(List.of(entity));
     }
 
+    /**
+     * Given the decay is evaluated lazily and a reward score of a course whose decay was evaluated before the last
+     * nightly recalculation
+     * When the pending decay of the course is applied before its scoreboard is read
+     * Then only the reward scores evaluated before the last nightly recalculation are loaded and decayed,
+     * and their scoreboard entries are updated
+     */
     @Test
-    void testDataDeletion() throws IncompleteEventMessageException {
-        // arrange test data
+    void testApplyPendingDecayOfCourse() throws ContentServiceConnectionException {
         final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+        final OffsetDateTime lastDecay = OffsetDateTime.now().minusHours(3);
+        final AllRewardScoresEntity entity = dummyAllRewardScoresBuilder(courseId, userId).build();
+        final List<Content> contents = List.of(createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
+
+        when(lazyDecayEvaluator.isEnabled()).thenReturn(true);
+        when(lazyDecayEvaluator.getLastDecayTime()).thenReturn(lastDecay);
+        when(allRewardScoresRepository.findAllOfCourseWithDecayEvaluatedBefore(courseId, lastDecay))
+                .thenReturn(List.of(entity));
+        when(lazyDecayEvaluator.hasPendingDecay(entity)).thenReturn(true);
+        when(courseContentProvider.getContentsOfCourseForUsers(courseId, List.of(userId)))
+                .thenReturn(Map.of(userId, contents));
+
+        rewardService.applyPendingDecayOfCourse(courseId);
+
+        verify(lazyDecayEvaluator).applyPendingDecay(entity, contents);
+        verify(scoreboardService).updateEntries(List.of(entity));
+        verify(allRewardScoresRepository, never()).findAllRewardScoresEntitiesById_CourseId(any());
+    }
 
-        final UUID userId1 = UUID.randomUUID();
-        final UUID userId2 = UUID.randomUUID();
-        final UUID userId3 = UUID.randomUUID();
+    /**
+     * Given the decay is applied by the nightly recalculation
+     * When the pending decay of a course is applied before its scoreboard is read
+     * Then no reward scores are loaded
+     */
+    @Test
+    void testApplyPendingDecayOfCourseWithoutLazyDecay() {
+        rewardService.applyPendingDecayOfCourse(UUID.randomUUID());
 
-        final AllRewardScoresEntity rewardScores1 = dummyAllRewardScoresBuilder(courseId, userId1)
-                .power(initializeRewardScoreEntity(10))
-                .build();
-        final AllRewardScoresEntity rewardScores2 = dummyAllRewardScoresBuilder(courseId, userId2)
-                .power(initializeRewardScoreEntity(30))
-                .build();
-        final AllRewardScoresEntity rewardScores3 = dummyAllRewardScoresBuilder(courseId, userId3).build();
+        verifyNoInteractions(allRewardScoresRepository, scoreboardService);
+    }
+
+    /**
+     * Given the contents for two reward scores, where the calculation fails for one of them
+     * When recalculateScores is called for the chunk
+     * Then only the successfully recalculated entity is saved and the failed one is detached
+     */
+    @Test
+    void testRecalculateScoresOfChunk() {
+        final UUID courseId = UUID.randomUUID();
+        final AllRewardScoresEntity successfulEntity = dummyAllRewardScoresBuilder(courseId, UUID.randomUUID()).build();
+        final AllRewardScoresEntity failingEntity = dummyAllRewardScoresBuilder(courseId, UUID.randomUUID()).build();
+
+        final List<Content> contents = List.of(createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
+        final List<Content> failingContents = List.of();
+
+        final Map<AllRewardScoresEntity.PrimaryKey, List<Content>> contentsById = new HashMap<>();
+        contentsById.put(successfulEntity.getId(), contents);
+        contentsById.put(failingEntity.getId(), failingContents);
+
+        when(allRewardScoresRepository.findAllOfCourseAndUsers(eq(courseId), anyCollection()))
+                .thenReturn(List.of(successfulEntity, failingEntity));
+        when(healthScoreCalculator.recalculateScore(eq(failingEntity), courseOf(failingContents)))
+                .thenThrow(new IllegalStateException("test"));
+
+        final int recalculated = rewardService.recalculateScores(contentsById);
+
+        assertThat(recalculated, is(1));
+        verify(allRewardScoresRepository).saveAll(List.of(successfulEntity));
+        verify(scoreboardService).updateEntries(List.of(successfulEntity));
+        verify(entityManager).detach(failingEntity);
+        verify(entityManager, never()).detach(successfulEntity);
+        verify(allRewardScoresRepository).findAllOfCourseAndUsers(eq(courseId), anyCollection());
+    }
+
+    /**
+     * Given the contents for two reward scores, where the contents of one of them did not change
+     * since its last recalculation
+     * When recalculateScores is called for the chunk
+     * Then only the other reward scores are recalculated and saved, and the unchanged ones are detached and only get
+     * a new planned recalculation, which is stored without writing the rest of them
+     */
+    @Test
+    void testRecalculateScoresOfChunkSkipsUnchangedInputs() {
+        final UUID courseId = UUID.randomUUID();
+        final AllRewardScoresEntity changedEntity = dummyAllRewardScoresBuilder(courseId, UUID.randomUUID()).build();
+        final AllRewardScoresEntity unchangedEntity = dummyAllRewardScoresBuilder(courseId, UUID.randomUUID()).build();
+
+        final List<Content> changedContents = List.of(createContentWithUserData(UUID.randomUUID(), UserProgressData.builder().build()));
+        final List<Content> unchangedContents = List.of();
+
+        final Map<AllRewardScoresEntity.PrimaryKey, List<Content>> contentsById = new HashMap<>();
+        contentsById.put(changedEntity.getId(), changedContents);
+        contentsById.put(unchangedEntity.getId(), unchangedContents);
+
+        when(allRewardScoresRepository.findAllOfCourseAndUsers(eq(courseId), anyCollection()))
+                .thenReturn(List.of(changedEntity, unchangedEntity));
+        when(recalculationPlanner.isUnchanged(eq(unchangedEntity), courseOf(unchangedContents))).thenReturn(true);
+        final OffsetDateTime nextRecalculationAt = OffsetDateTime.now().plusDays(7);
+        doAnswer(invocation -> {
+            invocation.<AllRewardScoresEntity>getArgument(0).setNextRecalculationAt(nextRecalculationAt);
+            return null;
+        }).when(recalculationPlanner).planNextRecalculation(eq(unchangedEntity), any());
+
+        final int recalculated = rewardService.recalculateScores(contentsById);
+
+        assertThat(recalculated, is(2));
+        verify(healthScoreCalculator).recalculateScore(eq(changedEntity), courseOf(changedContents));
+        verify(healthScoreCalculator, never()).recalculateScore(eq(unchangedEntity), any(CourseSnapshot.class));
+        verify(recalculationPlanner).planNextRecalculation(eq(unchangedEntity), courseOf(unchangedContents));
+        verify(entityManager).detach(unchangedEntity);
+        verify(entityManager, never()).detach(changedEntity);
+        verify(allRewardScoresRepository).updateNextRecalculationAt(
+                courseId, List.of(unchangedEntity.getId().getUserId()), nextRecalculationAt);
+        verify(allRewardScoresRepository).saveAll(List.of(changedEntity));
+        verify(allRewardScoresRepository, never()).save(any());
+        verify(entityManager, never()).flush();
+        verify(scoreboardService).updateEntries(List.of(changedEntity));
+    }
+
+    /**
+     * Given the ids of two users of a course, where only one of them has reward scores
+     * When getRewardScores is called for the ids
+     * Then the existing reward scores are loaded with one query and the missing ones are initialized together
+     */
+    @Test
+    void testGetRewardScoresOfSeveralUsers() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final AllRewardScoresEntity existingEntity = dummyAllRewardScoresBuilder(courseId, UUID.randomUUID()).build();
+        final AllRewardScoresEntity.PrimaryKey missingId = new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID());
+        final RewardScores existingRewardScores = new RewardScores();
+        final RewardScores initializedRewardScores = new RewardScores();
+
+        when(allRewardScoresRepository.findAllOfCourseAndUsers(eq(courseId), anyCollection()))
+                .thenReturn(List.of(existingEntity));
+        when(courseContentProvider.getContentsOfCourseForUsers(courseId, List.of(missingId.getUserId())))
+                .thenReturn(Map.of(missingId.getUserId(), List.of()));
+        when(healthScoreCalculator.calculateInitialHealthValueForNewEntity(List.of())).thenReturn(80);
+        when(allRewardScoresRepository.saveAll(anyCollection())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(rewardScoreMapper.entityToDto(existingEntity)).thenReturn(existingRewardScores);
+        when(rewardScoreMapper.entityToDto(argThat(entity -> entity.getId().equals(missingId))))
+                .thenReturn(initializedRewardScores);
+
+        final Map<AllRewardScoresEntity.PrimaryKey, RewardScores> rewardScores
+                = rewardService.getRewardScores(List.of(existingEntity.getId(), missingId));
+
+        assertThat(rewardScores, is(Map.of(existingEntity.getId(), existingRewardScores, missingId, initializedRewardScores)));
+        verify(allRewardScoresRepository, times(1)).findAllOfCourseAndUsers(eq(courseId), anyCollection());
+        verify(allRewardScoresRepository, never()).findById(any());
+        verify(allRewardScoresRepository).saveAll(argThat((List<AllRewardScoresEntity> entities) -> entities.size() == 1
+                && entities.get(0).getId().equals(missingId)
+                && entities.get(0).getHealth().getValue() == 80));
+    }
+
+    /**
+     * Given a page size larger than the maximum page size of the log
+     * When a page of the log of a reward score is requested
+     * Then at most the maximum page size plus one log entry to detect the next page are fetched
+     */
+    @Test
+    void testGetRewardScoreLogPageLimitsPageSize() {
+        final RewardScoreKey rewardScore = new RewardScoreKey(UUID.randomUUID(), UUID.randomUUID(), RewardScoreType.HEALTH);
+        when(rewardScoreLogRepository.findLogOfRewardScoreAfterCursor(any(), any(), any(), any(), any(), any(), any(),
+                any(), any())).thenReturn(List.of());
+
+        final RewardLogConnection page = rewardService.getRewardScoreLogPage(rewardScore, null, Integer.MAX_VALUE, null);
 
-        final List<AllRewardScoresEntity> rewardScoresEntities = new ArrayList<>();
-        rewardScoresEntities.add(rewardScores1);
-        rewardScoresEntities.add(rewardScores2);
-        rewardScoresEntities.add(rewardScores3);
+        assertThat(page.getHasNext(), is(false));
+        verify(rewardScoreLogRepository).findLogOfRewardScoreAfterCursor(eq(rewardScore.getCourseId()),
+                eq(rewardScore.getUserId()), eq(RewardScoreType.HEALTH), any(), any(), any(), any(), any(),
+                eq(PageRequest.of(0, 101)));
+    }
+
+    /**
+     * Given a DELETE event of a course
+     * when removeRewardData is called
+     * Then the removal of the reward data of the course is queued, without loading the reward data
+     */
+    @Test
+    void testDataDeletion() throws IncompleteEventMessageException {
+        // arrange test data
+        final UUID courseId = UUID.randomUUID();
 
         final CourseChangeEvent event = CourseChangeEvent.builder()
                 .courseId(courseId)
                 .operation(CrudOperation.DELETE)
                 .build();
 
-        // mock repository
-        when(allRewardScoresRepository.findAllRewardScoresEntitiesById_CourseId(courseId)).thenReturn(rewardScoresEntities);
-
         // act
         rewardService.removeRewardData(event);
 
-        // verify that the repository was called
-        verify(allRewardScoresRepository, times(1)).findAllRewardScoresEntitiesById_CourseId(courseId);
-        verify(allRewardScoresRepository, times(1)).deleteAll(rewardScoresEntities);
+        // verify that the removal was queued
+        verify(courseRewardDataRemover, times(1)).removeCourse(courseId);
+        verify(allRewardScoresRepository, never()).findAllRewardScoresEntitiesById_CourseId(any());
+        verify(allRewardScoresRepository, never()).deleteAll(any());
+    }
+
+    /**
+     * Given a progressEvent of a course whose reward data is being removed
+     * when calculateScoresOnContentWorkedOn is called
+     * Then the event is ignored and no reward scores are loaded or saved
+     */
+    @Test
+    void testIgnoreEventsOfCoursePendingDeletion() {
+        final UUID courseId = UUID.randomUUID();
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .userId(UUID.randomUUID())
+                .contentId(UUID.randomUUID())
+                .courseId(courseId)
+                .success(true)
+                .build();
+
+        when(courseRewardDataRemover.isDeleted(courseId)).thenReturn(true);
+
+        assertThat(rewardService.calculateScoresOnContentWorkedOn(event), is(nullValue()));
+        verifyNoInteractions(allRewardScoresRepository, courseContentProvider, scoreboardService);
     }
 
     private static AllRewardScoresEntity.AllRewardScoresEntityBuilder dummyAllRewardScoresBuilder(final UUID courseId, final UUID userId) {
@@ -272,6 +580,26 @@ class RewardServiceTest {
         verify(allRewardScoresRepository, never()).deleteAll(any());
     }
 
+    /**
+     * Given an UPDATE event of a course
+     * when removeRewardData is called
+     * Then the reward scores of the course are made due in the next nightly recalculation, without loading them,
+     * and nothing is removed
+     */
+    @Test
+    void testCourseUpdateMakesRewardScoresDue() throws IncompleteEventMessageException {
+        final UUID courseId = UUID.randomUUID();
+
+        rewardService.removeRewardData(CourseChangeEvent.builder()
+                .courseId(courseId)
+                .operation(CrudOperation.UPDATE)
+                .build());
+
+        verify(allRewardScoresRepository).clearNextRecalculationAtOfCourse(courseId);
+        verify(allRewardScoresRepository, never()).findAllRewardScoresEntitiesById_CourseId(any());
+        verifyNoInteractions(courseRewardDataRemover);
+    }
+
     private static RewardScoreEntity initializeRewardScoreEntity(final int initialValue) {
         final RewardScoreEntity rewardScoreEntity = new RewardScoreEntity();
         rewardScoreEntity.setValue(initialValue);
@@ -287,5 +615,18 @@ class RewardServiceTest {
                 .build();
     }
 
+    private static RewardScore createRewardScore(final int value) {
+        return RewardScore.builder()
+                .setValue(value)
+                .setPercentage(0.0)
+                .build();
+    }
+
+    /**
+     * Matches a {@link CourseSnapshot} of the given contents.
+     */
+    private static CourseSnapshot courseOf(final List<Content> contents) {
+        return argThat(course -> course.getContents() == contents);
+    }
 }
 
@@ -0,0 +1,114 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.content_service.exception.ContentServiceConnectionException;
+import de.unistuttgart.iste.gits.generated.dto.Content;
+import de.unistuttgart.iste.gits.reward.client.CourseContentProvider;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.AllRewardScoresRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+class ScoreRecalculationEngineTest {
+
+    private final AllRewardScoresRepository allRewardScoresRepository = mock(AllRewardScoresRepository.class);
+    private final RewardService rewardService = mock(RewardService.class);
+    private final CourseContentProvider courseContentProvider = mock(CourseContentProvider.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ScoreRecalculationEngine engine = new ScoreRecalculationEngine(
+            allRewardScoresRepository,
+            rewardService,
+            courseContentProvider,
+            meterRegistry,
+            2,
+            2);
+
+    /**
+     * Given five reward scores, split over two pages
+     * When recalculateAllScores is called
+     * Then all reward scores are recalculated in chunks and the metrics are updated
+     */
+    @Test
+    void testRecalculateAllScoresInChunks() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final List<AllRewardScoresEntity.PrimaryKey> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID()));
+        }
+        final AllRewardScoresEntity.PrimaryKey lastOfFirstPage = ids.get(3);
+        final AllRewardScoresEntity.PrimaryKey lastOfSecondPage = ids.get(4);
+
+        when(allRewardScoresRepository.findFirstDueIds(any(), any())).thenReturn(ids.subList(0, 4));
+        when(allRewardScoresRepository.findDueIdsAfter(eq(courseId), eq(lastOfFirstPage.getUserId()), any(), any()))
+                .thenReturn(ids.subList(4, 5));
+        when(allRewardScoresRepository.findDueIdsAfter(eq(courseId), eq(lastOfSecondPage.getUserId()), any(), any()))
+                .thenReturn(List.of());
+        when(courseContentProvider.getContentsOfCourseForUsers(eq(courseId), anyList())).thenAnswer(invocation -> {
+            final Map<UUID, List<Content>> contentsByUser = new HashMap<>();
+            invocation.<List<UUID>>getArgument(1).forEach(userId -> contentsByUser.put(userId, List.of()));
+            return contentsByUser;
+        });
+        when(rewardService.recalculateScores(anyMap())).thenAnswer(invocation -> invocation.<Map<?, ?>>getArgument(0).size());
+
+        engine.recalculateAllScores();
+
+        // 2 chunks for the first page, 1 chunk for the second page, contents are fetched once per chunk
+        verify(rewardService, times(3)).recalculateScores(anyMap());
+        verify(courseContentProvider, times(3)).getContentsOfCourseForUsers(eq(courseId), anyList());
+
+        assertThat(meterRegistry.get("reward.recalculation.entries").tag("result", "success").counter().count(), is(5.0));
+        assertThat(meterRegistry.get("reward.recalculation.entries").tag("result", "failure").counter().count(), is(0.0));
+        assertThat(meterRegistry.get("reward.recalculation.progress").gauge().value(), is(5.0));
+    }
+
+    /**
+     * Given reward scores of two courses on the same page
+     * When recalculateAllScores is called
+     * Then the chunks do not mix users of different courses
+     */
+    @Test
+    void testRecalculateAllScoresGroupsByCourse() throws ContentServiceConnectionException {
+        final AllRewardScoresEntity.PrimaryKey idOfFirstCourse = new AllRewardScoresEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID());
+        final AllRewardScoresEntity.PrimaryKey idOfSecondCourse = new AllRewardScoresEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID());
+
+        when(allRewardScoresRepository.findFirstDueIds(any(), any())).thenReturn(List.of(idOfFirstCourse, idOfSecondCourse));
+        when(allRewardScoresRepository.findDueIdsAfter(any(), any(), any(), any())).thenReturn(List.of());
+        when(courseContentProvider.getContentsOfCourseForUsers(any(), anyList())).thenReturn(Map.of());
+
+        engine.recalculateAllScores();
+
+        verify(courseContentProvider).getContentsOfCourseForUsers(idOfFirstCourse.getCourseId(), List.of(idOfFirstCourse.getUserId()));
+        verify(courseContentProvider).getContentsOfCourseForUsers(idOfSecondCourse.getCourseId(), List.of(idOfSecondCourse.getUserId()));
+    }
+
+    /**
+     * Given a reward score for which the contents cannot be fetched
+     * When recalculateAllScores is called
+     * Then the reward score is counted as failed and the other reward scores are still recalculated
+     */
+    @Test
+    void testRecalculateAllScoresWithFailingContentService() throws ContentServiceConnectionException {
+        final UUID courseId = UUID.randomUUID();
+        final AllRewardScoresEntity.PrimaryKey failingId = new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID());
+        final AllRewardScoresEntity.PrimaryKey successfulId = new AllRewardScoresEntity.PrimaryKey(courseId, UUID.randomUUID());
+
+        when(allRewardScoresRepository.findFirstDueIds(any(), any())).thenReturn(List.of(failingId, successfulId));
+        when(allRewardScoresRepository.findDueIdsAfter(any(), any(), any(), any())).thenReturn(List.of());
+        // the provider omits users for which the contents could not be fetched
+        when(courseContentProvider.getContentsOfCourseForUsers(courseId, List.of(failingId.getUserId(), successfulId.getUserId())))
+                .thenReturn(Map.of(successfulId.getUserId(), List.of()));
+        when(rewardService.recalculateScores(anyMap())).thenAnswer(invocation -> invocation.<Map<?, ?>>getArgument(0).size());
+
+        engine.recalculateAllScores();
+
+        verify(rewardService).recalculateScores(Map.of(successfulId, List.of()));
+        assertThat(meterRegistry.get("reward.recalculation.entries").tag("result", "success").counter().count(), is(1.0));
+        assertThat(meterRegistry.get("reward.recalculation.entries").tag("result", "failure").counter().count(), is(1.0));
+    }
+}
@@ -0,0 +1,98 @@
+package de.unistuttgart.iste.gits.reward.service;
+
+import de.unistuttgart.iste.gits.generated.dto.RankedScoreboardItem;
+import de.unistuttgart.iste.gits.generated.dto.ScoreboardItem;
+import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
+import de.unistuttgart.iste.gits.reward.persistence.entity.ScoreboardEntryEntity;
+import de.unistuttgart.iste.gits.reward.persistence.repository.ScoreboardEntryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+class ScoreboardServiceTest {
+
+    private final ScoreboardEntryRepository scoreboardEntryRepository = mock(ScoreboardEntryRepository.class);
+
+    private final ScoreboardService scoreboardService = new ScoreboardService(scoreboardEntryRepository);
+
+    /**
+     * Given courseId
+     * When getScoreboard is called
+     * Then the scoreboard for the course is returned in the order of the scoreboard entries
+     */
+    @Test
+    void testGetScoreboardSuccessfully() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId1 = UUID.randomUUID();
+        final UUID userId2 = UUID.randomUUID();
+
+        when(scoreboardEntryRepository.findScoreboardOfCourse(courseId)).thenReturn(List.of(
+                new ScoreboardEntryEntity(new AllRewardScoresEntity.PrimaryKey(courseId, userId2), 30),
+                new ScoreboardEntryEntity(new AllRewardScoresEntity.PrimaryKey(courseId, userId1), 10)));
+
+        final List<ScoreboardItem> scoreboard = scoreboardService.getScoreboard(courseId);
+
+        assertThat(scoreboard, is(List.of(new ScoreboardItem(userId2, 30), new ScoreboardItem(userId1, 10))));
+        verify(scoreboardEntryRepository, times(1)).findScoreboardOfCourse(courseId);
+    }
+
+    /**
+     * Given courseId and a limit
+     * When getTop is called
+     * Then the first entries of the scoreboard are returned with their ranks
+     */
+    @Test
+    void testGetTop() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId1 = UUID.randomUUID();
+        final UUID userId2 = UUID.randomUUID();
+
+        when(scoreboardEntryRepository.findScoreboardOfCourse(courseId, PageRequest.of(0, 2))).thenReturn(List.of(
+                new ScoreboardEntryEntity(new AllRewardScoresEntity.PrimaryKey(courseId, userId2), 30),
+                new ScoreboardEntryEntity(new AllRewardScoresEntity.PrimaryKey(courseId, userId1), 10)));
+
+        final List<RankedScoreboardItem> top = scoreboardService.getTop(courseId, 2);
+
+        assertThat(top, is(List.of(new RankedScoreboardItem(1, userId2, 30), new RankedScoreboardItem(2, userId1, 10))));
+    }
+
+    /**
+     * Given a user without scoreboard entry
+     * When getRankWindow is called
+     * Then an empty list is returned
+     */
+    @Test
+    void testGetRankWindowOfUserWithoutEntry() {
+        final UUID courseId = UUID.randomUUID();
+        final UUID userId = UUID.randomUUID();
+
+        when(scoreboardEntryRepository.findById(new AllRewardScoresEntity.PrimaryKey(courseId, userId))).thenReturn(Optional.empty());
+
+        assertThat(scoreboardService.getRankWindow(courseId, userId, 5), is(List.of()));
+        verify(scoreboardEntryRepository, never()).countRankedAbove(any(), anyInt(), any());
+    }
+
+    /**
+     * Given the reward scores of a user
+     * When updateEntry is called
+     * Then the scoreboard entry of the user is saved with the power score of the user
+     */
+    @Test
+    void testUpdateEntry() {
+        final AllRewardScoresEntity.PrimaryKey id = new AllRewardScoresEntity.PrimaryKey(UUID.randomUUID(), UUID.randomUUID());
+        final RewardScoreEntity power = new RewardScoreEntity();
+        power.setValue(42);
+
+        scoreboardService.updateEntry(AllRewardScoresEntity.builder().id(id).power(power).build());
+
+        verify(scoreboardEntryRepository).save(new ScoreboardEntryEntity(id, 42));
+    }
+}
@@ -0,0 +1,123 @@
+package de.unistuttgart.iste.gits.reward.service.calculation;
+
+import de.unistuttgart.iste.gits.generated.dto.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseSnapshotTest {
+
+    private final OffsetDateTime now = OffsetDateTime.now();
+
+    @Test
+    void testContentsAreClassified() {
+        // arrange
+        final Content learnedAndDueForReview = dummyContent(10, now.minusDays(3), true, true);
+        final Content learned = dummyContent(20, now.minusDays(2), true, false);
+        final Content dueAndNeverWorked = dummyContent(30, now.minusDays(1), false, false);
+        final Content notDueYet = dummyContent(40, now.plusDays(1), false, false);
+
+        // act
+        final CourseSnapshot course = new CourseSnapshot(
+                List.of(learnedAndDueForReview, learned, dueAndNeverWorked, notDueYet), now);
+
+        // assert
+        assertEquals(List.of(dueAndNeverWorked), course.getDueContentsThatWereNeverWorked());
+        assertEquals(List.of(learnedAndDueForReview), course.getContentsDueForReview());
+        assertEquals(30, course.getLearnedRewardPoints());
+        assertEquals(100, course.getTotalRewardPoints());
+        assertTrue(course.isDueAndNeverWorked(dueAndNeverWorked.getId()));
+        assertFalse(course.isDueAndNeverWorked(notDueYet.getId()));
+        assertEquals(Optional.of(learned), course.getContent(learned.getId()));
+        assertEquals(Optional.empty(), course.getContent(UUID.randomUUID()));
+    }
+
+    @Test
+    void testContentsWithoutProgressDataAndMetadata() {
+        // arrange
+        final Content content = MediaContent.builder()
+                .setId(UUID.randomUUID())
+                .build();
+
+        // act
+        final CourseSnapshot course = new CourseSnapshot(List.of(content), now);
+
+        // assert
+        assertTrue(course.getDueContentsThatWereNeverWorked().isEmpty());
+        assertTrue(course.getContentsDueForReview().isEmpty());
+        assertEquals(0, course.getTotalRewardPoints());
+        assertFalse(course.isDueAndNeverWorked(content.getId()));
+        assertNull(course.getNextDueDate());
+    }
+
+    @Test
+    void testNextDueDateIsTheEarliestUpcomingDate() {
+        // arrange
+        final Content dueAndNeverWorked = dummyContent(10, now.minusDays(1), false, false);
+        final Content dueLater = dummyContent(10, now.plusDays(2), false, false);
+        // the suggested date of a learned content is not relevant, only its next learn date
+        final Content learned = dummyContent(10, now.plusHours(1), true, false);
+        learned.getUserProgressData().setNextLearnDate(now.plusDays(1));
+
+        // act
+        final CourseSnapshot course = new CourseSnapshot(List.of(dueAndNeverWorked, dueLater, learned), now);
+
+        // assert
+        assertEquals(now.plusDays(1), course.getNextDueDate());
+    }
+
+    @Test
+    void testAsOfEarlierTimeUsesNextLearnDates() {
+        // arrange
+        final Content dueForReviewNow = dummyContent(10, null, true, true);
+        dueForReviewNow.getUserProgressData().setNextLearnDate(now.minusDays(1));
+        final Content dueForReviewEarlier = dummyContent(10, null, true, true);
+        dueForReviewEarlier.getUserProgressData().setNextLearnDate(now.minusDays(3));
+
+        // act
+        final CourseSnapshot course = CourseSnapshot.asOf(List.of(dueForReviewNow, dueForReviewEarlier),
+                now.minusDays(2));
+
+        // assert
+        assertEquals(List.of(dueForReviewEarlier), course.getContentsDueForReview());
+    }
+
+    @Test
+    void testFingerprintDependsOnInputsButNotOnOrder() {
+        // arrange
+        final Content first = dummyContent(10, now.minusDays(1), false, false);
+        final Content second = dummyContent(20, now.plusDays(1), true, true);
+        final Content changedSecond = dummyContent(20, now.plusDays(1), true, false);
+        changedSecond.setId(second.getId());
+
+        // act
+        final long fingerprint = new CourseSnapshot(List.of(first, second), now).getFingerprint();
+
+        // assert
+        assertEquals(fingerprint, new CourseSnapshot(List.of(second, first), now).getFingerprint());
+        assertNotEquals(fingerprint, new CourseSnapshot(List.of(first, changedSecond), now).getFingerprint());
+        assertNotEquals(fingerprint, new CourseSnapshot(List.of(first), now).getFingerprint());
+        // the first content is not due yet at an earlier time
+        assertNotEquals(fingerprint, new CourseSnapshot(List.of(first, second), now.minusDays(2)).getFingerprint());
+    }
+
+    private static Content dummyContent(final int rewardPoints,
+                                        final OffsetDateTime suggestedDate,
+                                        final boolean learned,
+                                        final boolean dueForReview) {
+        return MediaContent.builder()
+                .setId(UUID.randomUUID())
+                .setMetadata(ContentMetadata.builder()
+                        .setRewardPoints(rewardPoints)
+                        .setSuggestedDate(suggestedDate)
+                        .build())
+                .setUserProgressData(UserProgressData.builder()
+                        .setIsLearned(learned)
+                        .setIsDueForReview(dueForReview)
+                        .build())
+                .build();
+    }
+}
@@ -6,6 +6,7 @@ import de.unistuttgart.iste.gits.reward.persistence.entity.AllRewardScoresEntity
 import de.unistuttgart.iste.gits.reward.persistence.entity.RewardScoreEntity;
 import org.junit.jupiter.api.Test;
 
+import java.time.OffsetDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -21,24 +22,189 @@ class GrowthScoreCalculatorTest {
 
         final UUID userId = UUID.randomUUID();
 
-        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(courseId, userId).build();
-
         final Content content1 = dummyContent(10, true);
         final Content content2 = dummyContent(10, false);
         final Content content3 = dummyContent(20, true);
 
+        // content3 was learned before
+        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(courseId, userId)
+                .growth(initializeRewardScoreEntity(20))
+                .learnedContentIds(List.of(content3.getId()))
+                .build();
+
         final List<Content> contentList = List.of(content1, content2, content3);
         final UserProgressUpdatedEvent progressLogEvent1 = UserProgressUpdatedEvent.builder()
                 .contentId(content1.getId())
+                .success(true)
                 .build();
 
         // act
         final RewardScoreEntity rewardScore = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, contentList, progressLogEvent1);
 
         // assert
+        // only the reward points of the content worked on are added
         assertEquals(0.75f, rewardScore.getPercentage(), 0.05f);
         assertEquals(30, rewardScore.getValue());
+        assertEquals(1, rewardScore.getLog().size());
+        assertEquals(10, rewardScore.getLog().get(0).getDifference());
+        assertEquals(RewardChangeReason.CONTENT_DONE, rewardScore.getLog().get(0).getReason());
+        assertEquals(Set.of(content1.getId(), content3.getId()), new HashSet<>(allRewardScores.getLearnedContentIds()));
+    }
+
+    @Test
+    void testGrowthScoreIsNotIncreasedWhenContentWasLearnedBefore() {
+        // arrange
+        final Content content = dummyContent(10, true);
+        content.getUserProgressData().setLog(List.of(successfulAttempt(), successfulAttempt()));
+
+        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID())
+                .growth(initializeRewardScoreEntity(10))
+                .learnedContentIds(List.of(content.getId()))
+                .build();
+
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .contentId(content.getId())
+                .success(true)
+                .build();
+
+        // act
+        final RewardScoreEntity rewardScore = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event);
+
+        // assert
+        assertEquals(10, rewardScore.getValue());
+        assertEquals(0, rewardScore.getLog().size());
+    }
+
+    /**
+     * Given the event of a content that is learned for the first time
+     * When the event is delivered again after it was processed
+     * Then the reward points of the content are added only once
+     */
+    @Test
+    void testRedeliveredEventDoesNotAddRewardPointsTwice() {
+        final Content content = dummyContent(10, true);
+        content.getUserProgressData().setLog(List.of(successfulAttempt()));
+        final AllRewardScoresEntity allRewardScores
+                = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID()).build();
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .contentId(content.getId())
+                .success(true)
+                .build();
+
+        growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event);
+        final RewardScoreEntity rewardScore
+                = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event);
+
+        assertEquals(10, rewardScore.getValue());
+        assertEquals(1, rewardScore.getLog().size());
+        assertEquals(List.of(content.getId()), allRewardScores.getLearnedContentIds());
+    }
+
+    /**
+     * Given two successful events of a content that was not learned before, which are processed together,
+     * so that the progress log of the content already contains both successful attempts
+     * When both events are processed
+     * Then the reward points of the content are added once, with the first event
+     */
+    @Test
+    void testCoalescedEventsAddRewardPointsOnce() {
+        final Content content = dummyContent(10, true);
+        content.getUserProgressData().setLog(List.of(successfulAttempt(), successfulAttempt()));
+        final AllRewardScoresEntity allRewardScores
+                = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID()).build();
+        final UserProgressUpdatedEvent event1 = UserProgressUpdatedEvent.builder()
+                .contentId(content.getId())
+                .success(true)
+                .build();
+        final UserProgressUpdatedEvent event2 = UserProgressUpdatedEvent.builder()
+                .contentId(content.getId())
+                .success(true)
+                .build();
+
+        final RewardScoreEntity afterFirst
+                = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event1);
+        assertEquals(10, afterFirst.getValue());
+        final RewardScoreEntity afterSecond
+                = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event2);
+
+        assertEquals(10, afterSecond.getValue());
+        assertEquals(1, afterSecond.getLog().size());
+        assertEquals(RewardChangeReason.CONTENT_DONE, afterSecond.getLog().get(0).getReason());
+    }
+
+    /**
+     * Given a growth score of a learned content and a new content that was added to the course
+     * When an event of a content that does not change the growth score is processed
+     * Then the percentage is updated with the reward points of the new content
+     */
+    @Test
+    void testPercentageIsUpdatedWhenGrowthScoreDoesNotChange() {
+        final Content learned = dummyContent(10, true);
+        final Content added = dummyContent(30, false);
+        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID())
+                .growth(initializeRewardScoreEntity(10))
+                .learnedContentIds(List.of(learned.getId()))
+                .build();
+        allRewardScores.getGrowth().setPercentage(1.0f);
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .contentId(added.getId())
+                .success(false)
+                .build();
+
+        final RewardScoreEntity rewardScore
+                = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(learned, added), event);
+
+        assertEquals(10, rewardScore.getValue());
+        assertEquals(0.25f, rewardScore.getPercentage(), 0.001f);
+        assertEquals(0, rewardScore.getLog().size());
+    }
+
+    /**
+     * Given a growth score that was saved before the ids of the learned contents were stored
+     * When an event of a content that was learned before is processed
+     * Then the growth score is reconciled with all learned contents instead of adding the reward points again
+     */
+    @Test
+    void testGrowthScoreWithoutStoredIdsIsReconciledOnEvent() {
+        final Content content = dummyContent(10, true);
+        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID())
+                .growth(initializeRewardScoreEntity(10))
+                .build();
+        final UserProgressUpdatedEvent event = UserProgressUpdatedEvent.builder()
+                .contentId(content.getId())
+                .success(true)
+                .build();
+
+        final RewardScoreEntity rewardScore
+                = growthScoreCalculator.calculateOnContentWorkedOn(allRewardScores, List.of(content), event);
+
+        assertEquals(10, rewardScore.getValue());
+        assertEquals(0, rewardScore.getLog().size());
+        assertEquals(List.of(content.getId()), allRewardScores.getLearnedContentIds());
+    }
+
+    @Test
+    void testGrowthScoreIsReconciledOnRecalculation() {
+        // arrange
+        final AllRewardScoresEntity allRewardScores = dummyAllRewardScoresBuilder(UUID.randomUUID(), UUID.randomUUID())
+                .growth(initializeRewardScoreEntity(20))
+                .build();
+
+        final List<Content> contentList = List.of(
+                dummyContent(10, true),
+                dummyContent(10, false),
+                dummyContent(20, true));
+
+        // act
+        final RewardScoreEntity rewardScore = growthScoreCalculator.recalculateScore(allRewardScores, contentList);
 
+        // assert
+        assertEquals(0.75f, rewardScore.getPercentage(), 0.05f);
+        assertEquals(30, rewardScore.getValue());
+        assertEquals(1, rewardScore.getLog().size());
+        assertEquals(10, rewardScore.getLog().get(0).getDifference());
+        assertEquals(RewardChangeReason.RECALCULATED, rewardScore.getLog().get(0).getReason());
+        assertEquals(0, rewardScore.getLog().get(0).getAssociatedContentIds().size());
     }
 
     private static AllRewardScoresEntity.AllRewardScoresEntityBuilder dummyAllRewardScoresBuilder(final UUID courseId,
@@ -68,6 +234,15 @@ class GrowthScoreCalculatorTest {
                 .build();
     }
 
+    private static ProgressLogItem successfulAttempt() {
+        return ProgressLogItem.builder()
+                .setTimestamp(OffsetDateTime.now())
+                .setCorrectness(1)
+                .setSuccess(true)
+                .setHintsUsed(0)
+                .build();
+    }
+
     private static RewardScoreEntity initializeRewardScoreEntity(final int initialValue) {
         final RewardScoreEntity rewardScoreEntity = new RewardScoreEntity();
         rewardScoreEntity.setValue(initialValue);
@@ -0,0 +1,130 @@
+package de.unistuttgart.iste.gits.reward.service.event;
+
+import de.unistuttgart.iste.gits.common.event.UserProgressUpdatedEvent;
+import de.unistuttgart.iste.gits.generated.dto.RewardScores;
+import de.unistuttgart.iste.gits.reward.service.RewardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class UserProgressEventProcessorTest {
+
+    private final RewardService rewardService = mock(RewardService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UserProgressEventProcessor processor = new UserProgressEventProcessor(rewardService, meterRegistry, 1, 1, 10);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        processor.shutdown();
+    }
+
+    /**
+     * Given an event
+     * When it is processed
+     * Then the mono emits the reward scores calculated by the reward service
+     */
+    @Test
+    void testProcessEvent() {
+        final UserProgressUpdatedEvent event = createEvent();
+        final RewardScores rewardScores = new RewardScores();
+        when(rewardService.calculateScoresOnContentsWorkedOn(List.of(event))).thenReturn(rewardScores);
+
+        assertThat(processor.process(event).block(Duration.ofSeconds(5)), is(rewardScores));
+    }
+
+    /**
+     * Given a worker thread that is busy and a full queue
+     * When another event is processed
+     * Then the event is rejected and the queue depth is reported
+     */
+    @Test
+    void testEventIsRejectedWhenQueueIsFull() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(rewardService.calculateScoresOnContentsWorkedOn(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new RewardScores();
+        });
+
+        final Mono<RewardScores> running = processor.process(createEvent()).cache();
+        running.subscribe();
+        started.await();
+        final Mono<RewardScores> queued = processor.process(createEvent()).cache();
+        queued.subscribe();
+
+        assertThat(meterRegistry.get("reward.event_processing.queue_depth").gauge().value(), is(1.0));
+        final Mono<RewardScores> rejected = processor.process(createEvent());
+        assertThrows(RejectedExecutionException.class, rejected::block);
+        assertThat(meterRegistry.get("reward.event_processing.rejected").counter().count(), is(1.0));
+
+        release.countDown();
+        running.block(Duration.ofSeconds(5));
+        queued.block(Duration.ofSeconds(5));
+        verify(rewardService, times(2)).calculateScoresOnContentsWorkedOn(any());
+    }
+
+    /**
+     * Given a worker thread that is busy with an event of a user
+     * When more events of the same user arrive
+     * Then they are processed together in arrival order after the running event, in one calculation
+     */
+    @Test
+    void testEventsOfSameUserAreCoalesced() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final UserProgressUpdatedEvent first = createEvent();
+        final UserProgressUpdatedEvent second = createEvent(first.getCourseId(), first.getUserId());
+        final UserProgressUpdatedEvent third = createEvent(first.getCourseId(), first.getUserId());
+        when(rewardService.calculateScoresOnContentsWorkedOn(List.of(first))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new RewardScores();
+        });
+        when(rewardService.calculateScoresOnContentsWorkedOn(List.of(second, third))).thenReturn(new RewardScores());
+
+        final Mono<RewardScores> running = processor.process(first).cache();
+        running.subscribe();
+        started.await();
+        final Mono<RewardScores> coalesced1 = processor.process(second).cache();
+        coalesced1.subscribe();
+        final Mono<RewardScores> coalesced2 = processor.process(third).cache();
+        coalesced2.subscribe();
+
+        release.countDown();
+        running.block(Duration.ofSeconds(5));
+        assertThat(coalesced1.block(Duration.ofSeconds(5)), is(coalesced2.block(Duration.ofSeconds(5))));
+        verify(rewardService).calculateScoresOnContentsWorkedOn(List.of(first));
+        verify(rewardService).calculateScoresOnContentsWorkedOn(List.of(second, third));
+        assertThat(meterRegistry.get("reward.event_processing.coalesced").counter().count(), is(1.0));
+    }
+
+    private static UserProgressUpdatedEvent createEvent() {
+        return createEvent(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    private static UserProgressUpdatedEvent createEvent(final UUID courseId, final UUID userId) {
+        return UserProgressUpdatedEvent.builder()
+                .userId(userId)
+                .contentId(UUID.randomUUID())
+                .courseId(courseId)
+                .chapterId(UUID.randomUUID())
+                .correctness(1)
+                .hintsUsed(0)
+                .success(true)
+                .build();
+    }
+}